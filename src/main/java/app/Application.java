@@ -257,6 +257,11 @@ public class Application implements Consumer<Event> {
                         case H -> window.minimize();
                         case S -> PanelRendering.save();
                         case O -> PanelRendering.load();
+                        case Z -> PanelRendering.task.undo();
+                        case Y -> PanelRendering.task.redo();
+                        case M -> PanelRendering.task.sortPoints();
+                        case R -> PanelRendering.showMemoryReport();
+                        case E -> PanelRendering.exportMemoryReport();
                         case DIGIT1 -> {
                             if (maximizedWindow)
                                 window.restore();
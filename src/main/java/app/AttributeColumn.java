@@ -0,0 +1,334 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.util.Arrays;
+
+/**
+ * Столбец значений атрибута точек, нарезанный на блоки по {@link #CHUNK_SIZE} значений.
+ * Как и координаты в {@link HeapPointStore}, блоки делятся со снимками
+ * и копируются только при первой записи в ту их часть, которую видят снимки.
+ * Все значения хранятся в примитивных массивах своего типа, а наружу
+ * для перестановок выдаются в виде битов long
+ */
+abstract class AttributeColumn {
+    /**
+     * Двоичный логарифм кол-ва значений в блоке
+     */
+    private static final int CHUNK_BITS = 12;
+    /**
+     * Кол-во значений в блоке
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * Маска индекса внутри блока
+     */
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Атрибут
+     */
+    final Point.Attribute attribute;
+    /**
+     * Блоки значений (массивы примитивов)
+     */
+    Object[] chunks = new Object[0];
+    /**
+     * Кол-во выделенных блоков
+     */
+    private int chunkCount;
+    /**
+     * Эпохи блоков: блок принадлежит столбцу, если его эпоха совпадает с текущей
+     */
+    private int[] epochs = new int[0];
+    /**
+     * Текущая эпоха (увеличивается при каждом снимке)
+     */
+    private int epoch;
+    /**
+     * Флаг, что массив блоков разделён со снимком
+     */
+    private boolean spineShared;
+    /**
+     * Кол-во значений, видимых снимкам
+     */
+    private int sharedSize;
+
+    /**
+     * Конструктор пустого столбца
+     *
+     * @param attribute атрибут
+     */
+    AttributeColumn(Point.Attribute attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Создать пустой столбец атрибута
+     *
+     * @param attribute атрибут
+     * @return столбец
+     */
+    static AttributeColumn create(Point.Attribute attribute) {
+        return switch (attribute) {
+            case TIMESTAMP -> new LongColumn(attribute);
+            case WEIGHT -> new FloatColumn(attribute);
+            case SOURCE -> new IntColumn(attribute);
+        };
+    }
+
+    /**
+     * Создать пустой блок
+     *
+     * @return блок
+     */
+    abstract Object newChunk();
+
+    /**
+     * Скопировать блок
+     *
+     * @param chunk блок
+     * @return копия
+     */
+    abstract Object cloneChunk(Object chunk);
+
+    /**
+     * Получить биты значения
+     *
+     * @param index индекс
+     * @return биты значения
+     */
+    abstract long getBits(int index);
+
+    /**
+     * Записать биты значения в блок
+     *
+     * @param chunk блок
+     * @param i     индекс внутри блока
+     * @param bits  биты значения
+     */
+    abstract void store(Object chunk, int i, long bits);
+
+    /**
+     * Создать пустой столбец того же типа
+     *
+     * @return столбец
+     */
+    abstract AttributeColumn emptyLike();
+
+    /**
+     * Обеспечить ёмкость не меньше заданной
+     *
+     * @param capacity требуемая ёмкость
+     */
+    void ensureCapacity(int capacity) {
+        int count = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+        if (count <= chunkCount)
+            return;
+        if (count > chunks.length) {
+            int newLength = Math.max(count, chunks.length + (chunks.length >> 1));
+            chunks = Arrays.copyOf(chunks, newLength);
+            epochs = Arrays.copyOf(epochs, newLength);
+            spineShared = false;
+        }
+        // новые блоки лежат за пределами снимков
+        for (int c = chunkCount; c < count; c++) {
+            chunks[c] = newChunk();
+            epochs[c] = epoch;
+        }
+        chunkCount = count;
+    }
+
+    /**
+     * Записать биты значения
+     *
+     * @param index индекс
+     * @param bits  биты значения
+     */
+    void setBits(int index, long bits) {
+        int c = index >>> CHUNK_BITS;
+        if (index < sharedSize && epochs[c] != epoch) {
+            // блок видят снимки: копируем его перед записью
+            if (spineShared) {
+                chunks = chunks.clone();
+                spineShared = false;
+            }
+            chunks[c] = cloneChunk(chunks[c]);
+            epochs[c] = epoch;
+        }
+        store(chunks[c], index & CHUNK_MASK, bits);
+    }
+
+    /**
+     * Сделать снимок столбца, разделяющий с ним блоки
+     *
+     * @param size кол-во значений, видимых снимку
+     * @return снимок
+     */
+    AttributeColumn share(int size) {
+        AttributeColumn snapshot = emptyLike();
+        snapshot.chunks = chunks;
+        snapshot.chunkCount = chunkCount;
+        epoch++;
+        spineShared = true;
+        sharedSize = Math.max(sharedSize, size);
+        return snapshot;
+    }
+
+    /**
+     * Получить объём памяти столбца
+     *
+     * @return объём, байт
+     */
+    long getBytes() {
+        return MemoryLayout.of(chunks) + MemoryLayout.of(epochs) +
+                chunkCount * MemoryLayout.array(CHUNK_SIZE, attribute.bytes);
+    }
+
+    /**
+     * Столбец значений long
+     */
+    static class LongColumn extends AttributeColumn {
+        /**
+         * Конструктор столбца
+         *
+         * @param attribute атрибут
+         */
+        LongColumn(Point.Attribute attribute) {
+            super(attribute);
+        }
+
+        /**
+         * Получить значение
+         *
+         * @param index индекс
+         * @return значение
+         */
+        long get(int index) {
+            return ((long[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+        }
+
+        @Override
+        Object newChunk() {
+            return new long[CHUNK_SIZE];
+        }
+
+        @Override
+        Object cloneChunk(Object chunk) {
+            return ((long[]) chunk).clone();
+        }
+
+        @Override
+        long getBits(int index) {
+            return get(index);
+        }
+
+        @Override
+        void store(Object chunk, int i, long bits) {
+            ((long[]) chunk)[i] = bits;
+        }
+
+        @Override
+        AttributeColumn emptyLike() {
+            return new LongColumn(attribute);
+        }
+    }
+
+    /**
+     * Столбец значений float
+     */
+    static class FloatColumn extends AttributeColumn {
+        /**
+         * Конструктор столбца
+         *
+         * @param attribute атрибут
+         */
+        FloatColumn(Point.Attribute attribute) {
+            super(attribute);
+        }
+
+        /**
+         * Получить значение
+         *
+         * @param index индекс
+         * @return значение
+         */
+        float get(int index) {
+            return ((float[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+        }
+
+        @Override
+        Object newChunk() {
+            return new float[CHUNK_SIZE];
+        }
+
+        @Override
+        Object cloneChunk(Object chunk) {
+            return ((float[]) chunk).clone();
+        }
+
+        @Override
+        long getBits(int index) {
+            return Float.floatToRawIntBits(get(index));
+        }
+
+        @Override
+        void store(Object chunk, int i, long bits) {
+            ((float[]) chunk)[i] = Float.intBitsToFloat((int) bits);
+        }
+
+        @Override
+        AttributeColumn emptyLike() {
+            return new FloatColumn(attribute);
+        }
+    }
+
+    /**
+     * Столбец значений int
+     */
+    static class IntColumn extends AttributeColumn {
+        /**
+         * Конструктор столбца
+         *
+         * @param attribute атрибут
+         */
+        IntColumn(Point.Attribute attribute) {
+            super(attribute);
+        }
+
+        /**
+         * Получить значение
+         *
+         * @param index индекс
+         * @return значение
+         */
+        int get(int index) {
+            return ((int[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+        }
+
+        @Override
+        Object newChunk() {
+            return new int[CHUNK_SIZE];
+        }
+
+        @Override
+        Object cloneChunk(Object chunk) {
+            return ((int[]) chunk).clone();
+        }
+
+        @Override
+        long getBits(int index) {
+            return get(index);
+        }
+
+        @Override
+        void store(Object chunk, int i, long bits) {
+            ((int[]) chunk)[i] = (int) bits;
+        }
+
+        @Override
+        AttributeColumn emptyLike() {
+            return new IntColumn(attribute);
+        }
+    }
+}
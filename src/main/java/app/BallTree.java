@@ -0,0 +1,708 @@
+package app;
+
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Иерархия ограничивающих окружностей (ball tree) над точками задачи.
+ * Каждый лист хранит минимальную окружность своих точек, каждый внутренний
+ * узел - минимальную окружность, содержащую окружности двух потомков.
+ * Листья хранят индексы точек в хранилище {@link PointStore}.
+ * Задача это дерево при правках не обновляет: отсечение по окну идёт по {@link QuadTree},
+ * а попадание курсором - по {@link KdTree}, поэтому дерево строится по требованию.
+ */
+public class BallTree {
+    /**
+     * Максимальное кол-во точек в листе
+     */
+    public static final int LEAF_SIZE = 16;
+    /**
+     * Размер поддерева, начиная с которого построение распараллеливается
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Узел дерева
+     */
+    public static class Node {
+        /**
+         * Окружность, содержащая все точки поддерева
+         */
+        private Circle circle;
+        /**
+         * Родительский узел
+         */
+        private Node parent;
+        /**
+         * Левый потомок
+         */
+        private Node left;
+        /**
+         * Правый потомок
+         */
+        private Node right;
+        /**
+         * Индексы точек листа (null у внутренних узлов)
+         */
+        private int[] items;
+        /**
+         * Кол-во точек в поддереве
+         */
+        private int size;
+
+        /**
+         * Получить окружность узла
+         *
+         * @return окружность узла
+         */
+        public Circle getCircle() {
+            return circle;
+        }
+
+        /**
+         * Проверить, является ли узел листом
+         *
+         * @return флаг, является ли узел листом
+         */
+        public boolean isLeaf() {
+            return items != null;
+        }
+
+        /**
+         * Получить кол-во точек в поддереве
+         *
+         * @return кол-во точек в поддереве
+         */
+        public int getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Хранилище точек
+     */
+    private final PointStore store;
+    /**
+     * Корень дерева
+     */
+    private Node root;
+
+    /**
+     * Конструктор пустого дерева
+     *
+     * @param store хранилище точек
+     */
+    public BallTree(PointStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Построить дерево по всем точкам хранилища
+     * (большие поддеревья строятся параллельно)
+     *
+     * @param store хранилище точек
+     * @return дерево
+     */
+    public static BallTree build(PointStore store) {
+        BallTree tree = new BallTree(store);
+        tree.rebuild();
+        return tree;
+    }
+
+    /**
+     * Перестроить дерево по всем точкам хранилища
+     */
+    public void rebuild() {
+        root = null;
+        int n = store.size();
+        if (n > 0) {
+            int[] arr = new int[n];
+            for (int i = 0; i < n; i++)
+                arr[i] = i;
+            root = ForkJoinPool.commonPool().invoke(new BuildTask(store, arr, 0, n));
+        }
+    }
+
+    /**
+     * Задача построения поддерева
+     */
+    private static class BuildTask extends RecursiveTask<Node> {
+        /**
+         * Хранилище точек
+         */
+        private final PointStore store;
+        /**
+         * Массив индексов точек
+         */
+        private final int[] arr;
+        /**
+         * Начало диапазона
+         */
+        private final int from;
+        /**
+         * Конец диапазона (не включительно)
+         */
+        private final int to;
+
+        /**
+         * Конструктор задачи
+         *
+         * @param store хранилище точек
+         * @param arr   массив индексов точек
+         * @param from  начало диапазона
+         * @param to    конец диапазона (не включительно)
+         */
+        BuildTask(PointStore store, int[] arr, int from, int to) {
+            this.store = store;
+            this.arr = arr;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Node compute() {
+            // маленький диапазон превращаем в лист
+            if (to - from <= LEAF_SIZE)
+                return makeLeaf(store, arr, from, to);
+            // делим точки пополам вдоль самой длинной стороны их габарита
+            int mid = split(store, arr, from, to);
+            Node node = new Node();
+            if (to - from >= PARALLEL_THRESHOLD) {
+                BuildTask leftTask = new BuildTask(store, arr, from, mid);
+                leftTask.fork();
+                node.right = new BuildTask(store, arr, mid, to).compute();
+                node.left = leftTask.join();
+            } else {
+                node.left = new BuildTask(store, arr, from, mid).compute();
+                node.right = new BuildTask(store, arr, mid, to).compute();
+            }
+            node.left.parent = node;
+            node.right.parent = node;
+            node.size = to - from;
+            node.circle = Circle.enclosing(node.left.circle, node.right.circle);
+            return node;
+        }
+    }
+
+    /**
+     * Создать лист из диапазона точек
+     *
+     * @param store хранилище точек
+     * @param arr   массив индексов точек
+     * @param from  начало диапазона
+     * @param to    конец диапазона (не включительно)
+     * @return лист
+     */
+    private static Node makeLeaf(PointStore store, int[] arr, int from, int to) {
+        Node leaf = new Node();
+        leaf.items = Arrays.copyOfRange(arr, from, from + LEAF_SIZE + 1);
+        leaf.size = to - from;
+        leaf.circle = leafCircle(store, leaf);
+        return leaf;
+    }
+
+    /**
+     * Минимальная окружность точек листа
+     *
+     * @param store хранилище точек
+     * @param leaf  лист
+     * @return окружность
+     */
+    private static Circle leafCircle(PointStore store, Node leaf) {
+        double[] xs = new double[leaf.size];
+        double[] ys = new double[leaf.size];
+        for (int i = 0; i < leaf.size; i++) {
+            xs[i] = store.getX(leaf.items[i]);
+            ys[i] = store.getY(leaf.items[i]);
+        }
+        return CircleSolver.solve(xs, ys, leaf.size, false);
+    }
+
+    /**
+     * Разделить диапазон пополам вдоль самой длинной стороны габарита:
+     * слева от середины окажутся точки с меньшей координатой
+     *
+     * @param store хранилище точек
+     * @param arr   массив индексов точек
+     * @param from  начало диапазона
+     * @param to    конец диапазона (не включительно)
+     * @return индекс середины
+     */
+    private static int split(PointStore store, int[] arr, int from, int to) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minX = Math.min(minX, store.getX(arr[i]));
+            minY = Math.min(minY, store.getY(arr[i]));
+            maxX = Math.max(maxX, store.getX(arr[i]));
+            maxY = Math.max(maxY, store.getY(arr[i]));
+        }
+        int mid = (from + to) >>> 1;
+        select(store, maxX - minX >= maxY - minY, arr, from, to - 1, mid);
+        return mid;
+    }
+
+    /**
+     * Ключ упорядочивания точки
+     *
+     * @param store хранилище точек
+     * @param byX   флаг, упорядочивать ли по X (иначе по Y)
+     * @param index индекс точки
+     * @return координата X или Y
+     */
+    static double key(PointStore store, boolean byX, int index) {
+        return byX ? store.getX(index) : store.getY(index);
+    }
+
+    /**
+     * Частично упорядочить индексы так, чтобы на месте k оказался k-й по ключу элемент,
+     * слева - не большие, справа - не меньшие (алгоритм Хоара, в среднем O(n))
+     *
+     * @param store хранилище точек
+     * @param byX   флаг, упорядочивать ли по X (иначе по Y)
+     * @param arr   массив индексов точек
+     * @param left  левая граница (включительно)
+     * @param right правая граница (включительно)
+     * @param k     искомая позиция
+     */
+    static void select(PointStore store, boolean byX, int[] arr, int left, int right, int k) {
+        while (left < right) {
+            double pivot = key(store, byX, arr[(left + right) >>> 1]);
+            int i = left, j = right;
+            while (i <= j) {
+                while (key(store, byX, arr[i]) < pivot)
+                    i++;
+                while (key(store, byX, arr[j]) > pivot)
+                    j--;
+                if (i <= j) {
+                    int t = arr[i];
+                    arr[i] = arr[j];
+                    arr[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Добавить в дерево точку хранилища
+     *
+     * @param index индекс точки в хранилище
+     */
+    public void insert(int index) {
+        double x = store.getX(index);
+        double y = store.getY(index);
+        // если дерево пустое, создаём лист
+        if (root == null) {
+            root = makeLeaf(store, new int[]{index}, 0, 1);
+            return;
+        }
+        // спускаемся в тот лист, окружность которого вырастет меньше всего
+        Node node = root;
+        while (!node.isLeaf()) {
+            node.size++;
+            node = growth(node.left.circle, x, y) <= growth(node.right.circle, x, y) ? node.left : node.right;
+        }
+        node.items[node.size++] = index;
+        // пересчитываем окружность листа, только если точка в неё не попала
+        if (!node.circle.contains(x, y))
+            node.circle = leafCircle(store, node);
+        // переполненный лист делим на два
+        if (node.size > LEAF_SIZE) {
+            int[] arr = node.items;
+            int mid = split(store, arr, 0, node.size);
+            node.left = makeLeaf(store, arr, 0, mid);
+            node.right = makeLeaf(store, arr, mid, node.size);
+            node.left.parent = node;
+            node.right.parent = node;
+            node.items = null;
+        }
+        // поднимаемся к корню, расширяя окружности предков; разделённый лист сохраняет
+        // свою окружность, которая уже содержит обоих потомков, поэтому начинаем с родителя
+        for (Node n = node.parent; n != null; n = n.parent) {
+            if (n.circle.contains(n.left.circle) && n.circle.contains(n.right.circle))
+                break;
+            n.circle = Circle.enclosing(n.left.circle, n.right.circle);
+        }
+    }
+
+    /**
+     * На сколько вырастет радиус окружности, если добавить в неё точку
+     *
+     * @param c окружность
+     * @param x координата X точки
+     * @param y координата Y точки
+     * @return прирост радиуса
+     */
+    private static double growth(Circle c, double x, double y) {
+        return Math.max(0, (Math.hypot(x - c.centre.x, y - c.centre.y) - c.radius) / 2);
+    }
+
+    /**
+     * Удалить из дерева точку хранилища (вызывается до изменения хранилища).
+     * Окружности узлов не сужаются: они остаются верными, хоть и не минимальными
+     *
+     * @param index индекс точки в хранилище
+     * @return флаг, была ли точка найдена
+     */
+    public boolean remove(int index) {
+        return root != null && remove(root, index, store.getX(index), store.getY(index));
+    }
+
+    /**
+     * Удалить точку из поддерева
+     *
+     * @param node  узел
+     * @param index индекс точки
+     * @param x     координата X точки
+     * @param y     координата Y точки
+     * @return флаг, была ли точка найдена
+     */
+    private static boolean remove(Node node, int index, double x, double y) {
+        // окружности потомков могут пересекаться, поэтому проверяем все, содержащие точку
+        if (!node.circle.contains(x, y))
+            return false;
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++) {
+                if (node.items[i] == index) {
+                    node.items[i] = node.items[--node.size];
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (remove(node.left, index, x, y) || remove(node.right, index, x, y)) {
+            node.size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Заменить индекс точки (точка переехала в другую ячейку хранилища;
+     * вызывается, пока координаты по старому индексу ещё доступны)
+     *
+     * @param from старый индекс
+     * @param to   новый индекс
+     * @return флаг, была ли точка найдена
+     */
+    public boolean relabel(int from, int to) {
+        return root != null && relabel(root, from, to, store.getX(from), store.getY(from));
+    }
+
+    /**
+     * Заменить индекс точки в поддереве
+     *
+     * @param node узел
+     * @param from старый индекс
+     * @param to   новый индекс
+     * @param x    координата X точки
+     * @param y    координата Y точки
+     * @return флаг, была ли точка найдена
+     */
+    private static boolean relabel(Node node, int from, int to, double x, double y) {
+        if (!node.circle.contains(x, y))
+            return false;
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++) {
+                if (node.items[i] == from) {
+                    node.items[i] = to;
+                    return true;
+                }
+            }
+            return false;
+        }
+        return relabel(node.left, from, to, x, y) || relabel(node.right, from, to, x, y);
+    }
+
+    /**
+     * Очистить дерево
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Получить кол-во точек в дереве
+     *
+     * @return кол-во точек в дереве
+     */
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * Получить объём памяти дерева по раскладке {@link MemoryLayout}:
+     * узлы (5 ссылок и int), их окружности с центрами и массивы индексов листьев
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        long nodeBytes = MemoryLayout.object(5 * MemoryLayout.REFERENCE + Integer.BYTES);
+        long circleBytes = MemoryLayout.object(MemoryLayout.REFERENCE + Double.BYTES) +
+                MemoryLayout.object(2 * Double.BYTES);
+        long bytes = MemoryLayout.object(2 * MemoryLayout.REFERENCE);
+        // обходим узлы без рекурсии: после вставок ветки могут быть глубокими
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        if (root != null)
+            stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            bytes += nodeBytes + MemoryLayout.of(node.items);
+            if (node.circle != null)
+                bytes += circleBytes;
+            if (node.left != null)
+                stack.push(node.left);
+            if (node.right != null)
+                stack.push(node.right);
+        }
+        return bytes;
+    }
+
+    /**
+     * Получить корень дерева
+     *
+     * @return корень дерева или null, если дерево пустое
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Перебрать точки, попавшие в прямоугольник
+     * (поддеревья, окружность которых лежит внутри прямоугольника, перебираются без проверок)
+     *
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param consumer обработчик индекса точки
+     */
+    public void query(Vector2d min, Vector2d max, IntConsumer consumer) {
+        if (root != null)
+            query(root, min, max, consumer);
+    }
+
+    /**
+     * Перебрать точки поддерева, попавшие в прямоугольник
+     *
+     * @param node     узел
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param consumer обработчик индекса точки
+     */
+    private void query(Node node, Vector2d min, Vector2d max, IntConsumer consumer) {
+        Circle c = node.circle;
+        // ближайшая к центру окружности точка прямоугольника
+        double nx = Math.max(min.x, Math.min(max.x, c.centre.x));
+        double ny = Math.max(min.y, Math.min(max.y, c.centre.y));
+        // если окружность не пересекает прямоугольник
+        if (!c.contains(nx, ny))
+            return;
+        // если окружность целиком внутри прямоугольника
+        boolean inside = c.centre.x - c.radius >= min.x && c.centre.x + c.radius <= max.x &&
+                c.centre.y - c.radius >= min.y && c.centre.y + c.radius <= max.y;
+        if (inside) {
+            forEach(node, consumer);
+        } else if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++) {
+                int idx = node.items[i];
+                double x = store.getX(idx), y = store.getY(idx);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    consumer.accept(idx);
+            }
+        } else {
+            query(node.left, min, max, consumer);
+            query(node.right, min, max, consumer);
+        }
+    }
+
+    /**
+     * Перебрать все точки поддерева
+     *
+     * @param node     узел
+     * @param consumer обработчик индекса точки
+     */
+    private static void forEach(Node node, IntConsumer consumer) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++)
+                consumer.accept(node.items[i]);
+        } else {
+            forEach(node.left, consumer);
+            forEach(node.right, consumer);
+        }
+    }
+
+    /**
+     * Получить окружность, содержащую все точки дерева
+     *
+     * @return окружность корня или null, если дерево пустое
+     */
+    public Circle getBounds() {
+        return root == null ? null : root.circle;
+    }
+
+    /**
+     * Найти минимальную окружность точек, попавших в прямоугольник
+     *
+     * @param min минимальные координаты прямоугольника
+     * @param max максимальные координаты прямоугольника
+     * @return минимальная окружность или null, если в прямоугольник не попало ни одной точки
+     */
+    public Circle enclosingCircle(Vector2d min, Vector2d max) {
+        int[] cnt = new int[1];
+        query(min, max, idx -> cnt[0]++);
+        double[] xs = new double[cnt[0]];
+        double[] ys = new double[cnt[0]];
+        cnt[0] = 0;
+        query(min, max, idx -> {
+            xs[cnt[0]] = store.getX(idx);
+            ys[cnt[0]++] = store.getY(idx);
+        });
+        return CircleSolver.solve(xs, ys, cnt[0], false);
+    }
+
+    /**
+     * Состояние поиска ближайшей/самой дальней точки
+     */
+    private static class Search {
+        /**
+         * Искомое положение
+         */
+        final Vector2d pos;
+        /**
+         * Индекс лучшей найденной точки
+         */
+        int best = -1;
+        /**
+         * Расстояние до лучшей найденной точки
+         */
+        double bestDist;
+
+        /**
+         * Конструктор состояния поиска
+         *
+         * @param pos      искомое положение
+         * @param bestDist начальное значение лучшего расстояния
+         */
+        Search(Vector2d pos, double bestDist) {
+            this.pos = pos;
+            this.bestDist = bestDist;
+        }
+    }
+
+    /**
+     * Найти ближайшую к положению точку
+     *
+     * @param pos положение
+     * @return индекс ближайшей точки или -1, если дерево пустое
+     */
+    public int nearest(Vector2d pos) {
+        return nearest(pos, Double.MAX_VALUE);
+    }
+
+    /**
+     * Найти ближайшую к положению точку не дальше заданного расстояния
+     * (используется для попадания курсором в точку)
+     *
+     * @param pos     положение
+     * @param maxDist максимальное расстояние
+     * @return индекс ближайшей точки или -1, если такой нет
+     */
+    public int nearest(Vector2d pos, double maxDist) {
+        Search search = new Search(pos, maxDist);
+        if (root != null)
+            nearest(root, search);
+        return search.best;
+    }
+
+    /**
+     * Найти ближайшую точку в поддереве
+     *
+     * @param node   узел
+     * @param search состояние поиска
+     */
+    private void nearest(Node node, Search search) {
+        // если даже граница окружности дальше лучшего результата, отсекаем поддерево
+        if (Vector2d.subtract(search.pos, node.circle.centre).length() - node.circle.radius > search.bestDist)
+            return;
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++) {
+                int idx = node.items[i];
+                double dist = Math.hypot(search.pos.x - store.getX(idx), search.pos.y - store.getY(idx));
+                if (dist <= search.bestDist) {
+                    search.bestDist = dist;
+                    search.best = idx;
+                }
+            }
+            return;
+        }
+        // сначала спускаемся в более близкого потомка
+        double dl = Vector2d.subtract(search.pos, node.left.circle.centre).length() - node.left.circle.radius;
+        double dr = Vector2d.subtract(search.pos, node.right.circle.centre).length() - node.right.circle.radius;
+        if (dl <= dr) {
+            nearest(node.left, search);
+            nearest(node.right, search);
+        } else {
+            nearest(node.right, search);
+            nearest(node.left, search);
+        }
+    }
+
+    /**
+     * Найти самую дальнюю от положения точку
+     *
+     * @param pos положение
+     * @return индекс самой дальней точки или -1, если дерево пустое
+     */
+    public int farthest(Vector2d pos) {
+        Search search = new Search(pos, -1);
+        if (root != null)
+            farthest(root, search);
+        return search.best;
+    }
+
+    /**
+     * Найти самую дальнюю точку в поддереве
+     *
+     * @param node   узел
+     * @param search состояние поиска
+     */
+    private void farthest(Node node, Search search) {
+        // если вся окружность ближе лучшего результата, отсекаем поддерево
+        if (Vector2d.subtract(search.pos, node.circle.centre).length() + node.circle.radius < search.bestDist)
+            return;
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.size; i++) {
+                int idx = node.items[i];
+                double dist = Math.hypot(search.pos.x - store.getX(idx), search.pos.y - store.getY(idx));
+                if (dist > search.bestDist) {
+                    search.bestDist = dist;
+                    search.best = idx;
+                }
+            }
+            return;
+        }
+        // сначала спускаемся в потомка с более дальней границей
+        double dl = Vector2d.subtract(search.pos, node.left.circle.centre).length() + node.left.circle.radius;
+        double dr = Vector2d.subtract(search.pos, node.right.circle.centre).length() + node.right.circle.radius;
+        if (dl >= dr) {
+            farthest(node.left, search);
+            farthest(node.right, search);
+        } else {
+            farthest(node.right, search);
+            farthest(node.left, search);
+        }
+    }
+}
@@ -10,6 +10,11 @@ import misc.Vector2d;
 import java.util.Objects;
 public class Circle {
 
+        /**
+         * Относительная погрешность проверки принадлежности окружности
+         */
+        public static final double EPSILON = 1e-9;
+
         /**
          * Координаты центра
          */
@@ -49,6 +54,118 @@ public class Circle {
             return radius;
         }
 
+        /**
+         * Окружность, построенная на отрезке как на диаметре
+         *
+         * @param a первый конец диаметра
+         * @param b второй конец диаметра
+         * @return окружность
+         */
+        public static Circle byDiameter(Vector2d a, Vector2d b) {
+            Vector2d centre = new Vector2d((a.x + b.x) / 2, (a.y + b.y) / 2);
+            return new Circle(centre, Vector2d.subtract(a, centre).length());
+        }
+
+        /**
+         * Окружность, описанная вокруг треугольника
+         * (для вырожденного треугольника возвращается окружность на самой длинной стороне)
+         *
+         * @param a первая вершина
+         * @param b вторая вершина
+         * @param c третья вершина
+         * @return окружность
+         */
+        public static Circle circumscribed(Vector2d a, Vector2d b, Vector2d c) {
+            // переносим начало координат в точку a, чтобы не терять точность
+            double bx = b.x - a.x, by = b.y - a.y;
+            double cx = c.x - a.x, cy = c.y - a.y;
+            double d = 2 * (bx * cy - by * cx);
+            // если точки лежат на одной прямой
+            if (Math.abs(d) < EPSILON * EPSILON) {
+                Circle ab = byDiameter(a, b);
+                Circle ac = byDiameter(a, c);
+                Circle bc = byDiameter(b, c);
+                Circle res = ab.radius > ac.radius ? ab : ac;
+                return res.radius > bc.radius ? res : bc;
+            }
+            double b2 = bx * bx + by * by;
+            double c2 = cx * cx + cy * cy;
+            double ux = (cy * b2 - by * c2) / d;
+            double uy = (bx * c2 - cx * b2) / d;
+            return new Circle(new Vector2d(a.x + ux, a.y + uy), Math.sqrt(ux * ux + uy * uy));
+        }
+
+        /**
+         * Минимальная окружность, содержащая две заданные окружности
+         *
+         * @param a первая окружность
+         * @param b вторая окружность
+         * @return окружность
+         */
+        public static Circle enclosing(Circle a, Circle b) {
+            double dx = b.centre.x - a.centre.x;
+            double dy = b.centre.y - a.centre.y;
+            double dist = Math.sqrt(dx * dx + dy * dy);
+            // если одна окружность лежит внутри другой
+            if (dist + b.radius <= a.radius)
+                return new Circle(new Vector2d(a.centre.x, a.centre.y), a.radius);
+            if (dist + a.radius <= b.radius)
+                return new Circle(new Vector2d(b.centre.x, b.centre.y), b.radius);
+            // иначе центр лежит на линии центров
+            double radius = (dist + a.radius + b.radius) / 2;
+            double k = (radius - a.radius) / dist;
+            return new Circle(new Vector2d(a.centre.x + dx * k, a.centre.y + dy * k), radius);
+        }
+
+        /**
+         * Проверить, лежит ли точка строго внутри окружности, не касаясь границы
+         * (с учётом погрешности)
+         *
+         * @param x координата X точки
+         * @param y координата Y точки
+         * @return флаг, лежит ли точка строго внутри окружности
+         */
+        public boolean strictlyContains(double x, double y) {
+            double dx = x - centre.x;
+            double dy = y - centre.y;
+            double r = radius - EPSILON * Math.max(1, radius);
+            return r > 0 && dx * dx + dy * dy < r * r;
+        }
+
+        /**
+         * Проверить, лежит ли точка внутри окружности (с учётом погрешности)
+         *
+         * @param x координата X точки
+         * @param y координата Y точки
+         * @return флаг, лежит ли точка внутри окружности
+         */
+        public boolean contains(double x, double y) {
+            double dx = x - centre.x;
+            double dy = y - centre.y;
+            double r = radius + EPSILON * Math.max(1, radius);
+            return dx * dx + dy * dy <= r * r;
+        }
+
+        /**
+         * Проверить, лежит ли точка внутри окружности (с учётом погрешности)
+         *
+         * @param pos положение точки
+         * @return флаг, лежит ли точка внутри окружности
+         */
+        public boolean contains(Vector2d pos) {
+            return contains(pos.x, pos.y);
+        }
+
+        /**
+         * Проверить, лежит ли окружность целиком внутри текущей
+         *
+         * @param c окружность
+         * @return флаг, лежит ли окружность целиком внутри текущей
+         */
+        public boolean contains(Circle c) {
+            return Vector2d.subtract(c.centre, centre).length() + c.radius <= radius + EPSILON * Math.max(1, radius);
+        }
+
         /**
          * Строковое представление объекта
          *
@@ -0,0 +1,230 @@
+package app;
+
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Paint;
+import io.github.humbleui.types.Rect;
+import misc.CoordinateSystem2d;
+import misc.CoordinateSystem2i;
+import misc.MemoryLayout;
+
+/**
+ * Рисование окружностей СК задачи в окне. При разных масштабах осей окружность
+ * в окне - эллипс. Пока радиус в пикселях умеренный, эллипс рисуется готовым
+ * примитивом движка. Для огромных радиусов (глубокое приближение) точности float
+ * в примитиве не хватает, и эллипс собирается из отрезков: их кол-во подбирается
+ * по радиусу в пикселях, вершины берутся из заранее посчитанной таблицы единичной
+ * окружности и пишутся в переиспользуемый буфер. Если даже самой подробной таблицы
+ * не хватает, отрезками собирается только дуга возле окна. Окружности, которые
+ * не видны (целиком вне окна или окно целиком внутри), не рисуются вовсе
+ */
+public class CircleRenderer {
+    /**
+     * Двоичный логарифм наименьшего кол-ва отрезков
+     */
+    private static final int MIN_SEGMENTS_LOG = 3;
+    /**
+     * Двоичный логарифм наибольшего кол-ва отрезков (и размера таблицы)
+     */
+    private static final int MAX_SEGMENTS_LOG = 12;
+    /**
+     * Допустимое отклонение ломаной от окружности, пикселей
+     */
+    private static final double TOLERANCE = 0.25;
+    /**
+     * Наибольший радиус в пикселях, который ещё рисуется готовым примитивом
+     */
+    private static final double NATIVE_RADIUS = 1 << 15;
+    /**
+     * Косинусы углов таблицы единичной окружности
+     */
+    private static final double[] COS = new double[1 << MAX_SEGMENTS_LOG];
+    /**
+     * Синусы углов таблицы единичной окружности
+     */
+    private static final double[] SIN = new double[1 << MAX_SEGMENTS_LOG];
+    /**
+     * Наибольший радиус в пикселях, для которого хватает самой подробной таблицы
+     */
+    private static final double TABLE_RADIUS = TOLERANCE / (1 - Math.cos(Math.PI / (1 << MAX_SEGMENTS_LOG)));
+
+    static {
+        for (int i = 0; i < COS.length; i++) {
+            COS[i] = Math.cos(2 * Math.PI * i / COS.length);
+            SIN[i] = Math.sin(2 * Math.PI * i / COS.length);
+        }
+    }
+
+    /**
+     * Буферы отрезков по двоичному логарифму их кол-ва (создаются по мере надобности)
+     */
+    private final float[][] buffers = new float[MAX_SEGMENTS_LOG + 1][];
+
+    /**
+     * Нарисовать окружность
+     *
+     * @param canvas   область рисования
+     * @param paint    перо (обводка)
+     * @param cx       координата X центра в СК задачи
+     * @param cy       координата Y центра в СК задачи
+     * @param radius   радиус в СК задачи
+     * @param windowCS СК окна
+     * @param ownCS    СК задачи
+     */
+    public void draw(Canvas canvas, Paint paint, double cx, double cy, double radius,
+                     CoordinateSystem2i windowCS, CoordinateSystem2d ownCS) {
+        // переводим в СК окна без округления, как CoordinateSystem2i.getX/getY
+        double kx = (windowCS.getSize().x - 1) / ownCS.getSize().x;
+        double ky = (windowCS.getSize().y - 1) / ownCS.getSize().y;
+        double wx = (cx - ownCS.getMin().x) * kx + windowCS.getMin().x;
+        double wy = (cy - ownCS.getMin().y) * ky + windowCS.getMin().y;
+        double rx = radius * kx;
+        double ry = radius * ky;
+        if (!isVisible(wx, wy, rx, ry, windowCS))
+            return;
+        if (Math.max(rx, ry) <= NATIVE_RADIUS) {
+            canvas.drawOval(Rect.makeLTRB((float) (wx - rx), (float) (wy - ry), (float) (wx + rx), (float) (wy + ry)),
+                    paint);
+            return;
+        }
+        if (Math.max(rx, ry) > TABLE_RADIUS) {
+            drawArc(canvas, paint, wx, wy, rx, ry, windowCS);
+            return;
+        }
+        int log = segmentsLog(Math.max(rx, ry));
+        int n = 1 << log;
+        // при n отрезках берём каждую stride-ю вершину таблицы
+        int stride = COS.length >> log;
+        float[] lines = buffer(log);
+        float px = (float) (wx + rx);
+        float py = (float) wy;
+        for (int i = 1; i <= n; i++) {
+            int t = (i * stride) & (COS.length - 1);
+            float x = (float) (wx + rx * COS[t]);
+            float y = (float) (wy + ry * SIN[t]);
+            lines[(i - 1) * 4] = px;
+            lines[(i - 1) * 4 + 1] = py;
+            lines[(i - 1) * 4 + 2] = x;
+            lines[(i - 1) * 4 + 3] = y;
+            px = x;
+            py = y;
+        }
+        canvas.drawLines(lines, paint);
+    }
+
+    /**
+     * Нарисовать только дугу эллипса возле окна. Ближайшая к центру окна точка
+     * эллипса лежит не дальше половины диагонали окна, а видимые точки - не дальше
+     * диагонали от неё, поэтому хватает дуги в диагональ по обе стороны
+     *
+     * @param canvas   область рисования
+     * @param paint    перо (обводка)
+     * @param wx       координата X центра в СК окна
+     * @param wy       координата Y центра в СК окна
+     * @param rx       радиус вдоль оси X, пикселей
+     * @param ry       радиус вдоль оси Y, пикселей
+     * @param windowCS СК окна
+     */
+    private void drawArc(Canvas canvas, Paint paint, double wx, double wy, double rx, double ry,
+                         CoordinateSystem2i windowCS) {
+        double x0 = windowCS.getMin().x;
+        double y0 = windowCS.getMin().y;
+        double x1 = windowCS.getMax().x;
+        double y1 = windowCS.getMax().y;
+        // угол направления на центр окна
+        double theta = Math.atan2(((y0 + y1) / 2 - wy) / ry, ((x0 + x1) / 2 - wx) / rx);
+        double half = Math.min(Math.PI, Math.hypot(x1 - x0, y1 - y0) / Math.min(rx, ry));
+        // наибольший угол отрезка, при котором хорда отходит от дуги не больше допустимого
+        double maxStep = 2 * Math.acos(1 - TOLERANCE / Math.max(rx, ry));
+        int log = clampLog(2 * half / maxStep);
+        int n = 1 << log;
+        double step = 2 * half / n;
+        float[] lines = buffer(log);
+        float px = (float) (wx + rx * Math.cos(theta - half));
+        float py = (float) (wy + ry * Math.sin(theta - half));
+        for (int i = 1; i <= n; i++) {
+            double angle = theta - half + step * i;
+            float x = (float) (wx + rx * Math.cos(angle));
+            float y = (float) (wy + ry * Math.sin(angle));
+            lines[(i - 1) * 4] = px;
+            lines[(i - 1) * 4 + 1] = py;
+            lines[(i - 1) * 4 + 2] = x;
+            lines[(i - 1) * 4 + 3] = y;
+            px = x;
+            py = y;
+        }
+        canvas.drawLines(lines, paint);
+    }
+
+    /**
+     * Получить буфер отрезков
+     *
+     * @param log двоичный логарифм кол-ва отрезков
+     * @return буфер на 2 * 2^log вершин
+     */
+    private float[] buffer(int log) {
+        float[] lines = buffers[log];
+        if (lines == null)
+            lines = buffers[log] = new float[(1 << log) * 4];
+        return lines;
+    }
+
+    /**
+     * Проверить, видна ли в окне хоть часть эллипса
+     *
+     * @param wx       координата X центра в СК окна
+     * @param wy       координата Y центра в СК окна
+     * @param rx       радиус вдоль оси X, пикселей
+     * @param ry       радиус вдоль оси Y, пикселей
+     * @param windowCS СК окна
+     * @return флаг, видна ли часть эллипса
+     */
+    private static boolean isVisible(double wx, double wy, double rx, double ry, CoordinateSystem2i windowCS) {
+        double x0 = windowCS.getMin().x;
+        double y0 = windowCS.getMin().y;
+        double x1 = windowCS.getMax().x;
+        double y1 = windowCS.getMax().y;
+        // габарит эллипса не задевает окно
+        if (wx + rx < x0 || wx - rx > x1 || wy + ry < y0 || wy - ry > y1)
+            return false;
+        // окно целиком внутри эллипса: достаточно, чтобы внутри был самый дальний угол
+        double dx = Math.max(Math.abs(x0 - wx), Math.abs(x1 - wx)) / rx;
+        double dy = Math.max(Math.abs(y0 - wy), Math.abs(y1 - wy)) / ry;
+        return dx * dx + dy * dy >= 1;
+    }
+
+    /**
+     * Подобрать кол-во отрезков по радиусу: отклонение хорды от дуги
+     * r (1 - cos(pi / n)) не должно превышать {@link #TOLERANCE}
+     *
+     * @param pixelRadius радиус, пикселей
+     * @return двоичный логарифм кол-ва отрезков
+     */
+    static int segmentsLog(double pixelRadius) {
+        if (pixelRadius <= TOLERANCE)
+            return MIN_SEGMENTS_LOG;
+        return clampLog(Math.PI / Math.acos(1 - TOLERANCE / pixelRadius));
+    }
+
+    /**
+     * Округлить кол-во отрезков вверх до степени двойки в допустимых пределах
+     *
+     * @param segments нужное кол-во отрезков
+     * @return двоичный логарифм кол-ва отрезков
+     */
+    private static int clampLog(double segments) {
+        int log = 64 - Long.numberOfLeadingZeros((long) Math.ceil(Math.min(segments, 1 << MAX_SEGMENTS_LOG)) - 1);
+        return Math.max(MIN_SEGMENTS_LOG, Math.min(MAX_SEGMENTS_LOG, log));
+    }
+
+    /**
+     * Получить объём памяти буферов
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        long bytes = MemoryLayout.object(MemoryLayout.REFERENCE) + MemoryLayout.of(buffers);
+        for (float[] buffer : buffers)
+            bytes += MemoryLayout.of(buffer);
+        return bytes;
+    }
+}
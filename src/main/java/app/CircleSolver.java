@@ -0,0 +1,326 @@
+package app;
+
+import misc.Vector2d;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Поиск окружности наименьшей площади, содержащей все точки множества
+ * (рандомизированный алгоритм Вельцля, ожидаемое время O(n)).
+ * Специализированный плоский вариант {@link MiniBall}.
+ */
+public class CircleSolver {
+    /**
+     * Кол-во точек, начиная с которого опорные точки ищутся во float
+     */
+    public static final int FLOAT_THRESHOLD = 1024;
+    /**
+     * Относительная погрешность проверки принадлежности окружности во float
+     */
+    private static final float FLOAT_EPSILON = 1e-5f;
+    /**
+     * Максимальная по модулю координата, квадрат которой ещё помещается во float
+     */
+    private static final float FLOAT_RANGE = 1e18f;
+
+    /**
+     * Найти минимальную окружность, содержащую все точки
+     *
+     * @param positions положения точек
+     * @return минимальная окружность или null, если точек нет
+     */
+    public static Circle solve(List<Vector2d> positions) {
+        int n = positions.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            Vector2d pos = positions.get(i);
+            xs[i] = pos.x;
+            ys[i] = pos.y;
+        }
+        return solve(xs, ys, n);
+    }
+
+    /**
+     * Найти минимальную окружность, содержащую все точки
+     * (массивы координат перемешиваются на месте).
+     * Для больших множеств опорные точки ищутся по упакованным float-координатам,
+     * после чего окружность пересчитывается и проверяется в double.
+     *
+     * @param xs координаты X точек
+     * @param ys координаты Y точек
+     * @param n  кол-во точек
+     * @return минимальная окружность или null, если точек нет
+     */
+    public static Circle solve(double[] xs, double[] ys, int n) {
+        return solve(xs, ys, n, true);
+    }
+
+    /**
+     * Найти минимальную окружность, содержащую все точки
+     * (массивы координат перемешиваются на месте).
+     * Внутренние вызовы (листья индексов, запросы к ним) не учитываются в статистике,
+     * чтобы отчёт описывал только решения задачи
+     *
+     * @param xs     координаты X точек
+     * @param ys     координаты Y точек
+     * @param n      кол-во точек
+     * @param record флаг, нужно ли учитывать решение в {@link SolverStats}
+     * @return минимальная окружность или null, если точек нет
+     */
+    static Circle solve(double[] xs, double[] ys, int n, boolean record) {
+        // если точек нет, то и окружности нет
+        if (n == 0)
+            return null;
+        long start = System.nanoTime();
+        // перемешиваем, чтобы получить ожидаемое линейное время
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            double tx = xs[i];
+            xs[i] = xs[j];
+            xs[j] = tx;
+            double ty = ys[i];
+            ys[i] = ys[j];
+            ys[j] = ty;
+        }
+        long shuffled = System.nanoTime();
+        if (n >= FLOAT_THRESHOLD) {
+            float[] xy = pack(xs, ys, n);
+            if (xy == null) {
+                if (record)
+                    SolverStats.addRangeFallback();
+            } else {
+                Circle c = refine(xs, ys, n, solveFloat(xy, n));
+                if (c != null) {
+                    if (record)
+                        SolverStats.addFloatSolve(n, System.nanoTime() - start);
+                    return c;
+                }
+                if (record)
+                    SolverStats.addVerifyFallback();
+            }
+        }
+        // время неудачной попытки во float в статистику double не включаем
+        long doubleStart = System.nanoTime();
+        Circle c = solveDouble(xs, ys, n);
+        if (record)
+            SolverStats.addDoubleSolve(n, shuffled - start + System.nanoTime() - doubleStart);
+        return c;
+    }
+
+    /**
+     * Алгоритм Вельцля в double
+     *
+     * @param xs координаты X перемешанных точек
+     * @param ys координаты Y перемешанных точек
+     * @param n  кол-во точек
+     * @return минимальная окружность
+     */
+    private static Circle solveDouble(double[] xs, double[] ys, int n) {
+        Circle c = new Circle(new Vector2d(xs[0], ys[0]), 0);
+        for (int i = 1; i < n; i++) {
+            // если точка уже внутри, ничего не делаем
+            if (c.contains(xs[i], ys[i]))
+                continue;
+            // иначе точка i обязательно лежит на границе
+            Vector2d pi = new Vector2d(xs[i], ys[i]);
+            c = new Circle(pi, 0);
+            for (int j = 0; j < i; j++) {
+                if (c.contains(xs[j], ys[j]))
+                    continue;
+                // точки i и j лежат на границе
+                Vector2d pj = new Vector2d(xs[j], ys[j]);
+                c = Circle.byDiameter(pi, pj);
+                for (int k = 0; k < j; k++) {
+                    if (!c.contains(xs[k], ys[k]))
+                        // границу задают три точки
+                        c = Circle.circumscribed(pi, pj, new Vector2d(xs[k], ys[k]));
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Упаковать координаты во float-массив вида x0, y0, x1, y1, ...
+     *
+     * @param xs координаты X точек
+     * @param ys координаты Y точек
+     * @param n  кол-во точек
+     * @return упакованные координаты или null, если они не помещаются во float
+     */
+    private static float[] pack(double[] xs, double[] ys, int n) {
+        float[] xy = new float[n * 2];
+        for (int i = 0; i < n; i++) {
+            xy[i * 2] = (float) xs[i];
+            xy[i * 2 + 1] = (float) ys[i];
+        }
+        // квадраты расстояний тоже должны помещаться во float
+        for (float v : xy)
+            if (!(Math.abs(v) <= FLOAT_RANGE))
+                return null;
+        return xy;
+    }
+
+    /**
+     * Алгоритм Вельцля во float: ищет только опорные точки
+     *
+     * @param xy упакованные координаты
+     * @param n  кол-во точек
+     * @return индексы опорных точек (-1 на месте отсутствующих)
+     */
+    private static int[] solveFloat(float[] xy, int n) {
+        int[] support = {0, -1, -1};
+        float cx = xy[0], cy = xy[1], r2 = 0;
+        for (int i = 1; i < n; i++) {
+            float xi = xy[i * 2], yi = xy[i * 2 + 1];
+            if (insideFloat(cx, cy, r2, xi, yi))
+                continue;
+            cx = xi;
+            cy = yi;
+            r2 = 0;
+            support[0] = i;
+            support[1] = -1;
+            support[2] = -1;
+            for (int j = 0; j < i; j++) {
+                float xj = xy[j * 2], yj = xy[j * 2 + 1];
+                if (insideFloat(cx, cy, r2, xj, yj))
+                    continue;
+                cx = (xi + xj) / 2;
+                cy = (yi + yj) / 2;
+                r2 = ((xi - xj) * (xi - xj) + (yi - yj) * (yi - yj)) / 4;
+                support[0] = i;
+                support[1] = j;
+                support[2] = -1;
+                for (int k = 0; k < j; k++) {
+                    float xk = xy[k * 2], yk = xy[k * 2 + 1];
+                    if (insideFloat(cx, cy, r2, xk, yk))
+                        continue;
+                    // описанная окружность в координатах относительно точки i
+                    float bx = xj - xi, by = yj - yi;
+                    float kx = xk - xi, ky = yk - yi;
+                    float d = 2 * (bx * ky - by * kx);
+                    float b2 = bx * bx + by * by;
+                    float k2 = kx * kx + ky * ky;
+                    if (d == 0) {
+                        // точки на одной прямой: берём самую длинную сторону
+                        float jk = (xj - xk) * (xj - xk) + (yj - yk) * (yj - yk);
+                        int a = i, b = k;
+                        float best = k2;
+                        if (b2 > best) {
+                            b = j;
+                            best = b2;
+                        }
+                        if (jk > best) {
+                            a = j;
+                            best = jk;
+                        }
+                        cx = (xy[a * 2] + xy[b * 2]) / 2;
+                        cy = (xy[a * 2 + 1] + xy[b * 2 + 1]) / 2;
+                        r2 = best / 4;
+                        support[0] = a;
+                        support[1] = b;
+                        support[2] = -1;
+                    } else {
+                        float ux = (ky * b2 - by * k2) / d;
+                        float uy = (bx * k2 - kx * b2) / d;
+                        cx = xi + ux;
+                        cy = yi + uy;
+                        r2 = ux * ux + uy * uy;
+                        support[0] = i;
+                        support[1] = j;
+                        support[2] = k;
+                    }
+                }
+            }
+        }
+        return support;
+    }
+
+    /**
+     * Лежит ли точка внутри окружности с учётом погрешности float
+     *
+     * @param cx x-координата центра
+     * @param cy y-координата центра
+     * @param r2 квадрат радиуса
+     * @param x  x-координата точки
+     * @param y  y-координата точки
+     * @return флаг, лежит ли точка внутри
+     */
+    private static boolean insideFloat(float cx, float cy, float r2, float x, float y) {
+        float dx = x - cx;
+        float dy = y - cy;
+        return dx * dx + dy * dy <= r2 * (1 + FLOAT_EPSILON);
+    }
+
+    /**
+     * Пересчитать окружность по опорным точкам в double и проверить её
+     *
+     * @param xs      координаты X точек
+     * @param ys      координаты Y точек
+     * @param n       кол-во точек
+     * @param support индексы опорных точек
+     * @return окружность или null, если она не содержит все точки или не минимальна
+     */
+    private static Circle refine(double[] xs, double[] ys, int n, int[] support) {
+        Vector2d a = new Vector2d(xs[support[0]], ys[support[0]]);
+        Circle c;
+        if (support[1] < 0) {
+            c = new Circle(a, 0);
+        } else if (support[2] < 0) {
+            c = Circle.byDiameter(a, new Vector2d(xs[support[1]], ys[support[1]]));
+        } else {
+            Vector2d b = new Vector2d(xs[support[1]], ys[support[1]]);
+            Vector2d d = new Vector2d(xs[support[2]], ys[support[2]]);
+            // окружность по трём точкам минимальна, только если треугольник не тупоугольный
+            if (obtuse(a, b, d) || obtuse(b, d, a) || obtuse(d, a, b))
+                return null;
+            c = Circle.circumscribed(a, b, d);
+        }
+        // проверяем, что все точки внутри
+        for (int i = 0; i < n; i++)
+            if (!c.contains(xs[i], ys[i]))
+                return null;
+        return c;
+    }
+
+    /**
+     * Проверить, тупой ли угол треугольника при вершине a
+     *
+     * @param a вершина угла
+     * @param b вторая вершина
+     * @param c третья вершина
+     * @return флаг, тупой ли угол
+     */
+    private static boolean obtuse(Vector2d a, Vector2d b, Vector2d c) {
+        Vector2d ab = Vector2d.subtract(b, a);
+        Vector2d ac = Vector2d.subtract(c, a);
+        return ab.x * ac.x + ab.y * ac.y < -Circle.EPSILON * ab.length() * ac.length();
+    }
+
+    /**
+     * Найти минимальную окружность, содержащую все точки
+     *
+     * @param points список точек
+     * @return минимальная окружность или null, если точек нет
+     */
+    public static Circle solvePoints(List<Point> points) {
+        int n = points.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i).pos.x;
+            ys[i] = points.get(i).pos.y;
+        }
+        return solve(xs, ys, n);
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private CircleSolver() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+}
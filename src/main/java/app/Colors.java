@@ -58,6 +58,32 @@ public class Colors {
      * Цвет разности
      */
     public static final int SUBTRACTED_COLOR = Misc.getColor(200, 255, 255, 0);
+    /**
+     * Цвет выпуклой оболочки
+     */
+    public static final int HULL_COLOR = Misc.getColor(120, 0, 255, 255);
+    /**
+     * Цвет найденной окружности
+     */
+    public static final int ANSWER_COLOR = Misc.getColor(220, 255, 255, 0);
+    /**
+     * Цвет выделенных точек
+     */
+    public static final int SELECTION_COLOR = Misc.getColor(255, 255, 140, 0);
+    /**
+     * Опорные цвета шкалы плотности: от редких пикселей к самым плотным
+     */
+    public static final int[] DENSITY_RAMP = {
+            Misc.getColor(96, 20, 40, 140),
+            Misc.getColor(192, 0, 140, 255),
+            Misc.getColor(224, 0, 255, 240),
+            Misc.getColor(240, 255, 230, 0),
+            Misc.getColor(255, 255, 255, 255)
+    };
+    /**
+     * Цвет обводки точки под курсором
+     */
+    public static final int HOVER_COLOR = Misc.getColor(255, 255, 255, 255);
 
     /**
      * Цвет подложки
@@ -0,0 +1,378 @@
+package app;
+
+import misc.DoubleArrayList;
+import misc.LongOpenHashSet;
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выпуклая оболочка точек задачи, поддерживаемая при каждом добавлении точки.
+ * Вершины хранятся в порядке обхода против часовой стрелки, коллинеарные
+ * вершины не хранятся. Координаты вершин лежат в примитивных списках,
+ * поэтому добавление точки ничего не выделяет, пока списки не выросли.
+ * <p>
+ * Добавление точки внутрь оболочки (самый частый случай) стоит O(log h), где h - кол-во
+ * вершин: принадлежность проверяется двоичным поиском по веерным треугольникам.
+ * Точка снаружи меняет оболочку, и тогда цепочка видимых рёбер ищется и вырезается
+ * за O(h): вершины лежат в массиве, и вставка всё равно сдвигает его хвост.
+ */
+public class ConvexHull {
+    /**
+     * Координаты X вершин оболочки
+     */
+    private DoubleArrayList xs = new DoubleArrayList();
+    /**
+     * Координаты Y вершин оболочки
+     */
+    private DoubleArrayList ys = new DoubleArrayList();
+    /**
+     * Запасные списки для пересборки оболочки (меняются местами с основными)
+     */
+    private DoubleArrayList spareXs = new DoubleArrayList();
+    /**
+     * Запасные списки для пересборки оболочки (меняются местами с основными)
+     */
+    private DoubleArrayList spareYs = new DoubleArrayList();
+    /**
+     * Ключи вершин для быстрого отказа в {@link #isVertex(double, double)}
+     */
+    private final LongOpenHashSet vertexKeys = new LongOpenHashSet();
+    /**
+     * Флаг, что ключи вершин устарели
+     */
+    private boolean keysDirty = true;
+
+    /**
+     * Векторное произведение (b - a) x (c - a)
+     *
+     * @param ax координата X точки a
+     * @param ay координата Y точки a
+     * @param bx координата X точки b
+     * @param by координата Y точки b
+     * @param cx координата X точки c
+     * @param cy координата Y точки c
+     * @return положительное значение, если c лежит слева от направленного отрезка ab
+     */
+    private static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    /**
+     * Проверить, лежит ли точка c на отрезке ab (при условии, что все три точки на одной прямой)
+     *
+     * @param ax координата X начала отрезка
+     * @param ay координата Y начала отрезка
+     * @param bx координата X конца отрезка
+     * @param by координата Y конца отрезка
+     * @param cx координата X точки
+     * @param cy координата Y точки
+     * @return флаг, лежит ли точка на отрезке
+     */
+    private static boolean onSegment(double ax, double ay, double bx, double by, double cx, double cy) {
+        return Math.min(ax, bx) <= cx && cx <= Math.max(ax, bx) &&
+                Math.min(ay, by) <= cy && cy <= Math.max(ay, by);
+    }
+
+    /**
+     * Видно ли ребро i -> i+1 из точки p, т.е. лежит ли p снаружи относительно него
+     *
+     * @param i  номер начальной вершины ребра
+     * @param px координата X точки
+     * @param py координата Y точки
+     * @return флаг, видно ли ребро из точки
+     */
+    private boolean visible(int i, double px, double py) {
+        int j = i + 1 == xs.size() ? 0 : i + 1;
+        double ax = xs.get(i), ay = ys.get(i);
+        double bx = xs.get(j), by = ys.get(j);
+        double c = cross(ax, ay, bx, by, px, py);
+        // точка на продолжении ребра тоже считается снаружи,
+        // иначе в оболочке появятся коллинеарные вершины
+        return c < 0 || (c == 0 && !onSegment(ax, ay, bx, by, px, py));
+    }
+
+    /**
+     * Проверить, лежит ли точка строго внутри оболочки из трёх и более вершин, за O(log h):
+     * двоичным поиском находится веерный треугольник (v0, vk, vk+1), в угол которого
+     * попадает точка, и проверяется ребро vk -> vk+1. Точки на границе и её продолжениях
+     * считаются не внутри, их разбирает полный перебор рёбер
+     *
+     * @param px координата X точки
+     * @param py координата Y точки
+     * @return флаг, лежит ли точка строго внутри
+     */
+    private boolean strictlyInside(double px, double py) {
+        int n = xs.size();
+        double x0 = xs.get(0), y0 = ys.get(0);
+        if (cross(x0, y0, xs.get(1), ys.get(1), px, py) <= 0 ||
+                cross(x0, y0, xs.get(n - 1), ys.get(n - 1), px, py) >= 0)
+            return false;
+        // точка слева от луча v0 -> v_lo и не слева от луча v0 -> v_hi
+        int lo = 1;
+        int hi = n - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (cross(x0, y0, xs.get(mid), ys.get(mid), px, py) > 0)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return cross(xs.get(lo), ys.get(lo), xs.get(hi), ys.get(hi), px, py) > 0;
+    }
+
+    /**
+     * Добавить точку в оболочку
+     *
+     * @param p положение точки
+     * @return флаг, изменилась ли оболочка
+     */
+    public boolean insert(Vector2d p) {
+        return insert(p.x, p.y);
+    }
+
+    /**
+     * Добавить точку в оболочку
+     *
+     * @param px координата X точки
+     * @param py координата Y точки
+     * @return флаг, изменилась ли оболочка
+     */
+    public boolean insert(double px, double py) {
+        int n = xs.size();
+        // первая точка
+        if (n == 0) {
+            xs.add(px);
+            ys.add(py);
+            keysDirty = true;
+            return true;
+        }
+        // оболочка из одной точки
+        if (n == 1) {
+            if (xs.get(0) == px && ys.get(0) == py)
+                return false;
+            xs.add(px);
+            ys.add(py);
+            keysDirty = true;
+            return true;
+        }
+        // оболочка-отрезок
+        if (n == 2) {
+            double ax = xs.get(0), ay = ys.get(0);
+            double bx = xs.get(1), by = ys.get(1);
+            double c = cross(ax, ay, bx, by, px, py);
+            keysDirty = true;
+            if (c == 0) {
+                // оставляем две самые удалённые друг от друга точки
+                if (onSegment(ax, ay, bx, by, px, py))
+                    return false;
+                int k = onSegment(px, py, bx, by, ax, ay) ? 0 : 1;
+                xs.set(k, px);
+                ys.set(k, py);
+                return true;
+            }
+            // упорядочиваем вершины против часовой стрелки
+            if (c > 0) {
+                xs.add(px);
+                ys.add(py);
+            } else {
+                xs.add(bx);
+                ys.add(by);
+                xs.set(1, px);
+                ys.set(1, py);
+            }
+            return true;
+        }
+        // точка внутри: оболочка не меняется
+        if (strictlyInside(px, py))
+            return false;
+        // ищем цепочку рёбер, видимых из точки: рёбра s..e
+        int s = -1;
+        int e = -1;
+        boolean prevVisible = visible(n - 1, px, py);
+        for (int i = 0; i < n; i++) {
+            boolean curVisible = visible(i, px, py);
+            if (curVisible && !prevVisible)
+                s = i;
+            if (!curVisible && prevVisible)
+                e = (i - 1 + n) % n;
+            prevVisible = curVisible;
+        }
+        // если ни одно ребро не видно, точка внутри
+        if (s < 0)
+            return false;
+        // вершины s+1..e удаляются, точка встаёт между вершинами s и e+1
+        spareXs.clear();
+        spareYs.clear();
+        for (int i = (e + 1) % n; ; i = (i + 1) % n) {
+            spareXs.add(xs.get(i));
+            spareYs.add(ys.get(i));
+            if (i == s)
+                break;
+        }
+        spareXs.add(px);
+        spareYs.add(py);
+        DoubleArrayList tx = xs;
+        xs = spareXs;
+        spareXs = tx;
+        DoubleArrayList ty = ys;
+        ys = spareYs;
+        spareYs = ty;
+        keysDirty = true;
+        return true;
+    }
+
+    /**
+     * Получить ключ вершины для множества ключей
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @return ключ (у разных точек ключи могут совпасть)
+     */
+    private static long key(double x, double y) {
+        return Double.doubleToLongBits(x) * 31 + Double.doubleToLongBits(y);
+    }
+
+    /**
+     * Проверить, является ли точка вершиной оболочки.
+     * Множество ключей вершин пересобирается только после изменения оболочки,
+     * поэтому серия проверок (например, при удалении многих точек)
+     * почти всегда отвечает без перебора вершин
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @return флаг, является ли точка вершиной
+     */
+    public boolean isVertex(double x, double y) {
+        if (keysDirty) {
+            vertexKeys.clear();
+            for (int i = 0; i < xs.size(); i++)
+                vertexKeys.add(key(xs.get(i), ys.get(i)));
+            keysDirty = false;
+        }
+        if (!vertexKeys.contains(key(x, y)))
+            return false;
+        // ключ мог совпасть случайно, поэтому подтверждаем перебором
+        for (int i = 0; i < xs.size(); i++)
+            if (xs.get(i) == x && ys.get(i) == y)
+                return true;
+        return false;
+    }
+
+    /**
+     * Найти номер вершины по координатам
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @return номер вершины или -1, если такой вершины нет
+     */
+    public int indexOf(double x, double y) {
+        if (!isVertex(x, y))
+            return -1;
+        for (int i = 0; i < xs.size(); i++)
+            if (xs.get(i) == x && ys.get(i) == y)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Убрать отмеченные вершины. Оставшиеся вершины выпуклого многоугольника
+     * в прежнем порядке тоже образуют выпуклый многоугольник без коллинеарных
+     * вершин, поэтому оболочку остаётся дополнить точками, оказавшимися снаружи
+     *
+     * @param removed флаги удаления по номерам вершин
+     */
+    public void removeVertices(boolean[] removed) {
+        int k = 0;
+        for (int i = 0; i < xs.size(); i++) {
+            if (removed[i])
+                continue;
+            xs.set(k, xs.get(i));
+            ys.set(k, ys.get(i));
+            k++;
+        }
+        xs.truncate(k);
+        ys.truncate(k);
+        keysDirty = true;
+    }
+
+    /**
+     * Очистить оболочку
+     */
+    public void clear() {
+        xs.clear();
+        ys.clear();
+        keysDirty = true;
+    }
+
+    /**
+     * Получить вершины оболочки (против часовой стрелки)
+     *
+     * @return новый список вершин
+     */
+    public List<Vector2d> getVertices() {
+        List<Vector2d> res = new ArrayList<>(xs.size());
+        for (int i = 0; i < xs.size(); i++)
+            res.add(new Vector2d(xs.get(i), ys.get(i)));
+        return res;
+    }
+
+    /**
+     * Получить координату X вершины
+     *
+     * @param i номер вершины
+     * @return координата X
+     */
+    public double getX(int i) {
+        return xs.get(i);
+    }
+
+    /**
+     * Получить координату Y вершины
+     *
+     * @param i номер вершины
+     * @return координата Y
+     */
+    public double getY(int i) {
+        return ys.get(i);
+    }
+
+    /**
+     * Скопировать координаты X вершин
+     *
+     * @return массив координат X
+     */
+    public double[] copyXs() {
+        return xs.toArray();
+    }
+
+    /**
+     * Скопировать координаты Y вершин
+     *
+     * @return массив координат Y
+     */
+    public double[] copyYs() {
+        return ys.toArray();
+    }
+
+    /**
+     * Получить кол-во вершин оболочки
+     *
+     * @return кол-во вершин оболочки
+     */
+    public int size() {
+        return xs.size();
+    }
+
+    /**
+     * Получить объём памяти оболочки вместе с запасными списками и ключами вершин
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(5 * MemoryLayout.REFERENCE + 1) + xs.getBytes() + ys.getBytes() +
+                spareXs.getBytes() + spareYs.getBytes() + vertexKeys.getBytes();
+    }
+}
@@ -0,0 +1,330 @@
+package app;
+
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.ColorAlphaType;
+import io.github.humbleui.skija.ColorType;
+import io.github.humbleui.skija.Image;
+import io.github.humbleui.skija.ImageInfo;
+import misc.CoordinateSystem2d;
+import misc.CoordinateSystem2i;
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static app.Colors.DENSITY_RAMP;
+
+/**
+ * Растр плотности точек размером с окно: в каждом пикселе - кол-во попавших в него точек.
+ * Когда на пиксель приходится по нескольку точек, рисовать каждую бессмысленно:
+ * вместо этого точки раскладываются по растру (параллельно, каждая полоса точек в свой
+ * растр, затем растры складываются), растр раскрашивается по шкале плотности
+ * и выводится одним изображением
+ */
+public class DensityRaster {
+    /**
+     * Минимальное кол-во точек на параллельную полосу
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    /**
+     * Шкала плотности: 256 цветов ARGB, полученных интерполяцией опорных
+     */
+    private static final int[] RAMP = buildRamp();
+    /**
+     * Ширина растра, пикселей
+     */
+    private int width;
+    /**
+     * Высота растра, пикселей
+     */
+    private int height;
+    /**
+     * Растры полос (нулевой - итоговый, остальные после сложения обнулены)
+     */
+    private int[][] partials = new int[1][0];
+    /**
+     * Цвета пикселей RGBA (переиспользуются между кадрами)
+     */
+    private byte[] pixels = new byte[0];
+
+    /**
+     * Подготовить пустой растр
+     *
+     * @param width  ширина, пикселей
+     * @param height высота, пикселей
+     */
+    public void reset(int width, int height) {
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            partials = new int[1][width * height];
+            pixels = new byte[width * height * 4];
+        } else {
+            Arrays.fill(partials[0], 0);
+        }
+    }
+
+    /**
+     * Разложить точки хранилища по растру. Точки вне прямоугольника отбрасываются
+     * до перевода в СК окна
+     *
+     * @param store    хранилище (снимок, потому что читается из нескольких потоков)
+     * @param min      минимальные координаты видимой области в СК задачи
+     * @param max      максимальные координаты видимой области в СК задачи
+     * @param windowCS СК окна
+     * @param ownCS    СК задачи
+     */
+    public void bin(PointStore store, Vector2d min, Vector2d max, CoordinateSystem2i windowCS,
+                    CoordinateSystem2d ownCS) {
+        int n = store.size();
+        int stripes = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                (n + (long) PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD));
+        if (stripes == 1) {
+            binRange(store, partials[0], 0, n, min, max, windowCS, ownCS);
+            return;
+        }
+        if (partials.length < stripes) {
+            int from = partials.length;
+            partials = Arrays.copyOf(partials, stripes);
+            for (int s = from; s < stripes; s++)
+                partials[s] = new int[width * height];
+        }
+        ForkJoinPool.commonPool().invoke(new BinTask(store, min, max, windowCS, ownCS, 0, stripes, stripes));
+        ForkJoinPool.commonPool().invoke(new MergeTask(0, height, stripes));
+    }
+
+    /**
+     * Добавить точку в пиксель
+     *
+     * @param x координата X пикселя относительно растра
+     * @param y координата Y пикселя относительно растра
+     */
+    public void increment(int x, int y) {
+        if (x >= 0 && y >= 0 && x < width && y < height)
+            partials[0][y * width + x]++;
+    }
+
+    /**
+     * Разложить точки ячеек хранилища по растру
+     *
+     * @param store    хранилище
+     * @param raster   растр
+     * @param from     первая ячейка
+     * @param to       ячейка после последней
+     * @param min      минимальные координаты видимой области в СК задачи
+     * @param max      максимальные координаты видимой области в СК задачи
+     * @param windowCS СК окна
+     * @param ownCS    СК задачи
+     */
+    private void binRange(PointStore store, int[] raster, int from, int to, Vector2d min, Vector2d max,
+                          CoordinateSystem2i windowCS, CoordinateSystem2d ownCS) {
+        int x0 = windowCS.getMin().x;
+        int y0 = windowCS.getMin().y;
+        for (int i = from; i < to; i++) {
+            double x = store.getX(i);
+            double y = store.getY(i);
+            if (x < min.x || x > max.x || y < min.y || y > max.y)
+                continue;
+            int px = windowCS.getX(x, ownCS) - x0;
+            int py = windowCS.getY(y, ownCS) - y0;
+            if (px >= 0 && py >= 0 && px < width && py < height)
+                raster[py * width + px]++;
+        }
+    }
+
+    /**
+     * Раскрасить растр и нарисовать его одним изображением. Цвет зависит от корня
+     * из отношения кол-ва точек к максимальному, чтобы редкие пиксели не терялись
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    public void paint(Canvas canvas, CoordinateSystem2i windowCS) {
+        if (width == 0 || height == 0)
+            return;
+        int[] raster = partials[0];
+        int max = 0;
+        for (int c : raster)
+            max = Math.max(max, c);
+        if (max == 0)
+            return;
+        double k = (RAMP.length - 1) / Math.sqrt(max);
+        for (int p = 0; p < raster.length; p++) {
+            int c = raster[p];
+            // пустые пиксели прозрачные, чтобы под растром была видна сетка
+            int color = c == 0 ? 0 : RAMP[(int) (Math.sqrt(c) * k)];
+            pixels[p * 4] = (byte) (color >>> 16);
+            pixels[p * 4 + 1] = (byte) (color >>> 8);
+            pixels[p * 4 + 2] = (byte) color;
+            pixels[p * 4 + 3] = (byte) (color >>> 24);
+        }
+        ImageInfo info = new ImageInfo(width, height, ColorType.RGBA_8888, ColorAlphaType.UNPREMUL);
+        try (Image image = Image.makeRaster(info, pixels, width * 4L)) {
+            canvas.drawImage(image, windowCS.getMin().x, windowCS.getMin().y);
+        }
+    }
+
+    /**
+     * Получить объём памяти растра
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        long bytes = MemoryLayout.object(2 * Integer.BYTES + 2 * MemoryLayout.REFERENCE) +
+                MemoryLayout.of(partials) + MemoryLayout.of(pixels);
+        for (int[] partial : partials)
+            bytes += MemoryLayout.of(partial);
+        return bytes;
+    }
+
+    /**
+     * Построить шкалу плотности интерполяцией опорных цветов по каналам
+     *
+     * @return 256 цветов ARGB
+     */
+    private static int[] buildRamp() {
+        int[] ramp = new int[256];
+        int segments = DENSITY_RAMP.length - 1;
+        for (int i = 0; i < ramp.length; i++) {
+            double t = i * segments / (double) (ramp.length - 1);
+            int s = Math.min(segments - 1, (int) t);
+            double f = t - s;
+            int a = DENSITY_RAMP[s];
+            int b = DENSITY_RAMP[s + 1];
+            int color = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int ca = (a >>> shift) & 0xFF;
+                int cb = (b >>> shift) & 0xFF;
+                color |= ((int) Math.round(ca + (cb - ca) * f) & 0xFF) << shift;
+            }
+            ramp[i] = color;
+        }
+        return ramp;
+    }
+
+    /**
+     * Задача раскладки полос точек, каждая полоса - в свой растр
+     */
+    private class BinTask extends RecursiveAction {
+        /**
+         * Хранилище
+         */
+        private final PointStore store;
+        /**
+         * Минимальные координаты видимой области в СК задачи
+         */
+        private final Vector2d min;
+        /**
+         * Максимальные координаты видимой области в СК задачи
+         */
+        private final Vector2d max;
+        /**
+         * СК окна
+         */
+        private final CoordinateSystem2i windowCS;
+        /**
+         * СК задачи
+         */
+        private final CoordinateSystem2d ownCS;
+        /**
+         * Первая полоса
+         */
+        private final int from;
+        /**
+         * Полоса после последней
+         */
+        private final int to;
+        /**
+         * Всего полос
+         */
+        private final int stripes;
+
+        /**
+         * Конструктор задачи
+         *
+         * @param store    хранилище
+         * @param min      минимальные координаты видимой области в СК задачи
+         * @param max      максимальные координаты видимой области в СК задачи
+         * @param windowCS СК окна
+         * @param ownCS    СК задачи
+         * @param from     первая полоса
+         * @param to       полоса после последней
+         * @param stripes  всего полос
+         */
+        BinTask(PointStore store, Vector2d min, Vector2d max, CoordinateSystem2i windowCS, CoordinateSystem2d ownCS,
+                int from, int to, int stripes) {
+            this.store = store;
+            this.min = min;
+            this.max = max;
+            this.windowCS = windowCS;
+            this.ownCS = ownCS;
+            this.from = from;
+            this.to = to;
+            this.stripes = stripes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BinTask(store, min, max, windowCS, ownCS, from, mid, stripes),
+                        new BinTask(store, min, max, windowCS, ownCS, mid, to, stripes));
+                return;
+            }
+            long n = store.size();
+            binRange(store, partials[from], (int) (n * from / stripes), (int) (n * (from + 1) / stripes),
+                    min, max, windowCS, ownCS);
+        }
+    }
+
+    /**
+     * Задача сложения растров полос в итоговый по строкам
+     */
+    private class MergeTask extends RecursiveAction {
+        /**
+         * Первая строка
+         */
+        private final int from;
+        /**
+         * Строка после последней
+         */
+        private final int to;
+        /**
+         * Кол-во растров полос
+         */
+        private final int stripes;
+
+        /**
+         * Конструктор задачи
+         *
+         * @param from    первая строка
+         * @param to      строка после последней
+         * @param stripes кол-во растров полос
+         */
+        MergeTask(int from, int to, int stripes) {
+            this.from = from;
+            this.to = to;
+            this.stripes = stripes;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) (to - from) * width > PARALLEL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MergeTask(from, mid, stripes), new MergeTask(mid, to, stripes));
+                return;
+            }
+            int[] total = partials[0];
+            for (int s = 1; s < stripes; s++) {
+                int[] partial = partials[s];
+                for (int p = from * width; p < to * width; p++) {
+                    total[p] += partial[p];
+                    // растр полосы сразу готов к следующему кадру
+                    partial[p] = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Хранилище точек в примитивных массивах кучи (17 байт на точку).
+ * Столбцы нарезаны на блоки по {@link #CHUNK_SIZE} точек: снимок делит блоки
+ * с хранилищем, а хранилище копирует блок только при первой записи в ту его часть,
+ * которую видят снимки (копирование при записи).
+ */
+public class HeapPointStore extends PointStore {
+    /**
+     * Двоичный логарифм кол-ва точек в блоке
+     */
+    private static final int CHUNK_BITS = 12;
+    /**
+     * Кол-во точек в блоке
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * Маска индекса внутри блока
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Блоки координат X
+     */
+    private double[][] xs;
+    /**
+     * Блоки координат Y
+     */
+    private double[][] ys;
+    /**
+     * Блоки порядковых номеров множеств
+     */
+    private byte[][] sets;
+    /**
+     * Кол-во выделенных блоков
+     */
+    private int chunkCount;
+    /**
+     * Эпохи блоков: блок принадлежит хранилищу, если его эпоха совпадает с текущей
+     */
+    private int[] epochs;
+    /**
+     * Текущая эпоха (увеличивается при каждом снимке)
+     */
+    private int epoch;
+    /**
+     * Флаг, что массивы блоков разделены со снимком
+     */
+    private boolean spineShared;
+    /**
+     * Кол-во точек, видимых снимкам: запись ниже этой границы требует копирования блока
+     */
+    private int sharedSize;
+
+    /**
+     * Конструктор пустого хранилища
+     */
+    public HeapPointStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Конструктор пустого хранилища заданной ёмкости
+     *
+     * @param capacity ёмкость
+     */
+    public HeapPointStore(int capacity) {
+        reset();
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Конструктор хранилища с точками
+     *
+     * @param points точки
+     */
+    public HeapPointStore(Collection<Point> points) {
+        this(Math.max(INITIAL_CAPACITY, points.size()));
+        for (Point p : points)
+            add(p);
+    }
+
+    /**
+     * Конструктор снимка, разделяющего блоки с хранилищем
+     *
+     * @param source хранилище
+     */
+    private HeapPointStore(HeapPointStore source) {
+        xs = source.xs;
+        ys = source.ys;
+        sets = source.sets;
+        chunkCount = source.chunkCount;
+    }
+
+    /**
+     * Сбросить блоки в пустое состояние
+     */
+    private void reset() {
+        xs = new double[0][];
+        ys = new double[0][];
+        sets = new byte[0][];
+        epochs = new int[0];
+        chunkCount = 0;
+        spineShared = false;
+        sharedSize = 0;
+    }
+
+    /**
+     * Обеспечить ёмкость не меньше заданной
+     *
+     * @param capacity требуемая ёмкость
+     */
+    @Override
+    public void ensureCapacity(int capacity) {
+        checkWritable();
+        int chunks = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+        if (chunks <= chunkCount)
+            return;
+        // массивы блоков растут в полтора раза, уже выделенные блоки не копируются
+        if (chunks > xs.length) {
+            int newLength = Math.max(chunks, xs.length + (xs.length >> 1));
+            xs = Arrays.copyOf(xs, newLength);
+            ys = Arrays.copyOf(ys, newLength);
+            sets = Arrays.copyOf(sets, newLength);
+            epochs = Arrays.copyOf(epochs, newLength);
+            spineShared = false;
+        }
+        // новые блоки лежат за пределами снимков, поэтому их можно вписать и в разделённые массивы
+        for (int c = chunkCount; c < chunks; c++) {
+            xs[c] = new double[CHUNK_SIZE];
+            ys[c] = new double[CHUNK_SIZE];
+            sets[c] = new byte[CHUNK_SIZE];
+            epochs[c] = epoch;
+        }
+        chunkCount = chunks;
+        modCount++;
+    }
+
+    @Override
+    protected void write(int index, double x, double y, byte pointSet) {
+        int c = index >>> CHUNK_BITS;
+        if (index < sharedSize && epochs[c] != epoch)
+            unshare(c);
+        int i = index & CHUNK_MASK;
+        xs[c][i] = x;
+        ys[c][i] = y;
+        sets[c][i] = pointSet;
+    }
+
+    /**
+     * Скопировать блок, который видят снимки, перед записью в него
+     *
+     * @param c номер блока
+     */
+    private void unshare(int c) {
+        if (spineShared) {
+            xs = xs.clone();
+            ys = ys.clone();
+            sets = sets.clone();
+            spineShared = false;
+        }
+        xs[c] = xs[c].clone();
+        ys[c] = ys[c].clone();
+        sets[c] = sets[c].clone();
+        epochs[c] = epoch;
+    }
+
+    @Override
+    protected void shiftLeft(int index) {
+        for (int i = index + 1; i < size; i++)
+            write(i - 1, getX(i), getY(i), getSet(i));
+    }
+
+    @Override
+    protected PointStore share() {
+        HeapPointStore snapshot = new HeapPointStore(this);
+        // после снимка все блоки и массивы блоков считаются разделёнными
+        epoch++;
+        spineShared = true;
+        sharedSize = Math.max(sharedSize, size);
+        return snapshot;
+    }
+
+    @Override
+    public double getX(int index) {
+        return xs[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public double getY(int index) {
+        return ys[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    protected byte getSet(int index) {
+        return sets[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * Очистить хранилище и отпустить блоки (снимки сохраняют свои)
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        reset();
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return MemoryLayout.of(xs) + MemoryLayout.of(ys) + MemoryLayout.of(sets) + MemoryLayout.of(epochs) +
+                chunkCount * (2 * MemoryLayout.array(CHUNK_SIZE, Double.BYTES) +
+                        MemoryLayout.array(CHUNK_SIZE, Byte.BYTES)) +
+                getIdBytes() + getAttributeBytes();
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return 0;
+    }
+}
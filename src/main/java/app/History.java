@@ -0,0 +1,568 @@
+package app;
+
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * История изменений задачи для отмены и повтора.
+ * Каждый шаг хранит только разницу: номера точек и упакованные координаты
+ * (и только тогда, когда без них шаг не вернуть), либо границы СК до и после
+ * масштабирования. Когда суммарный объём шагов превышает бюджет,
+ * самые старые шаги вытесняются.
+ */
+public class History {
+    /**
+     * Бюджет памяти по умолчанию, байт
+     */
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+    /**
+     * Системное свойство, задающее бюджет памяти истории в байтах (-Dgeom.history.budget=...)
+     */
+    public static final String BUDGET_PROPERTY = "geom.history.budget";
+
+    /**
+     * Упакованный набор точек: номера, координаты парами и множества
+     */
+    static class Packed {
+        /**
+         * Номера точек
+         */
+        int[] ids;
+        /**
+         * Координаты парами x, y
+         */
+        double[] coords;
+        /**
+         * Порядковые номера множеств
+         */
+        byte[] sets;
+        /**
+         * Биты атрибутов по порядковому номеру атрибута
+         * (null у атрибутов, столбцов которых не было в хранилище)
+         */
+        long[][] attributes = new long[PointStore.ATTRIBUTES.length][];
+        /**
+         * Кол-во точек
+         */
+        int n;
+
+        /**
+         * Конструктор пустого набора
+         *
+         * @param capacity ожидаемое кол-во точек
+         */
+        Packed(int capacity) {
+            capacity = Math.max(capacity, 1);
+            ids = new int[capacity];
+            coords = new double[capacity * 2];
+            sets = new byte[capacity];
+        }
+
+        /**
+         * Дописать точку хранилища вместе с её атрибутами
+         *
+         * @param store хранилище
+         * @param slot  ячейка точки
+         */
+        void append(PointStore store, int slot) {
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                coords = Arrays.copyOf(coords, n * 4);
+                sets = Arrays.copyOf(sets, n * 2);
+                for (int a = 0; a < attributes.length; a++)
+                    if (attributes[a] != null)
+                        attributes[a] = Arrays.copyOf(attributes[a], n * 2);
+            }
+            ids[n] = store.getId(slot);
+            coords[n * 2] = store.getX(slot);
+            coords[n * 2 + 1] = store.getY(slot);
+            sets[n] = store.getSet(slot);
+            for (Point.Attribute attribute : PointStore.ATTRIBUTES) {
+                if (!store.hasAttribute(attribute))
+                    continue;
+                int a = attribute.ordinal();
+                // у точек, записанных до появления столбца, атрибут по умолчанию
+                if (attributes[a] == null) {
+                    attributes[a] = new long[ids.length];
+                    Arrays.fill(attributes[a], 0, n, attribute.defaultBits);
+                }
+                attributes[a][n] = store.getAttributeBits(slot, attribute);
+            }
+            n++;
+        }
+
+        /**
+         * Записать атрибуты точки набора в хранилище
+         *
+         * @param i     индекс точки в наборе
+         * @param store хранилище
+         * @param slot  ячейка точки в хранилище
+         */
+        void restoreAttributes(int i, PointStore store, int slot) {
+            for (Point.Attribute attribute : PointStore.ATTRIBUTES)
+                if (attributes[attribute.ordinal()] != null)
+                    store.setAttributeBits(slot, attribute, attributes[attribute.ordinal()][i]);
+        }
+
+        /**
+         * Обрезать массивы по кол-ву точек
+         */
+        void trim() {
+            if (n == ids.length)
+                return;
+            ids = Arrays.copyOf(ids, n);
+            coords = Arrays.copyOf(coords, n * 2);
+            sets = Arrays.copyOf(sets, n);
+            for (int a = 0; a < attributes.length; a++)
+                if (attributes[a] != null)
+                    attributes[a] = Arrays.copyOf(attributes[a], n);
+        }
+
+        /**
+         * Получить объём памяти набора
+         *
+         * @return объём, байт
+         */
+        long bytes() {
+            long bytes = MemoryLayout.object(4 * MemoryLayout.REFERENCE + Integer.BYTES) +
+                    MemoryLayout.of(ids) + MemoryLayout.of(coords) + MemoryLayout.of(sets) +
+                    MemoryLayout.of(attributes);
+            for (long[] column : attributes)
+                bytes += MemoryLayout.of(column);
+            return bytes;
+        }
+    }
+
+    /**
+     * Шаг истории
+     */
+    abstract static class Delta {
+        /**
+         * Отменить шаг
+         *
+         * @param task задача
+         */
+        abstract void undo(Task task);
+
+        /**
+         * Повторить шаг
+         *
+         * @param task задача
+         */
+        abstract void redo(Task task);
+
+        /**
+         * Получить объём памяти шага
+         *
+         * @return объём, байт
+         */
+        abstract long bytes();
+
+        /**
+         * Получить описание шага
+         *
+         * @return описание
+         */
+        abstract String getDescription();
+    }
+
+    /**
+     * Шаг добавления или удаления точек
+     */
+    static class PointsDelta extends Delta {
+        /**
+         * Флаг, что шаг добавил точки (иначе удалил)
+         */
+        private final boolean addition;
+        /**
+         * Флаг, что шаг - очистка задачи
+         */
+        private final boolean clear;
+        /**
+         * Номер первой точки, если номера идут подряд
+         */
+        private final int firstId;
+        /**
+         * Кол-во точек
+         */
+        private final int count;
+        /**
+         * Номера точек (null, если номера идут подряд)
+         */
+        private final int[] ids;
+        /**
+         * Точки, которых сейчас нет в задаче (нужны, чтобы их вернуть), или null
+         */
+        private Packed removed;
+
+        /**
+         * Конструктор шага добавления точек с номерами подряд
+         * (координаты не хранятся, пока точки есть в задаче)
+         *
+         * @param firstId номер первой точки
+         * @param count   кол-во точек
+         */
+        PointsDelta(int firstId, int count) {
+            this.addition = true;
+            this.clear = false;
+            this.firstId = firstId;
+            this.count = count;
+            this.ids = null;
+        }
+
+        /**
+         * Конструктор шага удаления точек
+         *
+         * @param removed удалённые точки
+         * @param clear   флаг, что шаг - очистка задачи
+         */
+        PointsDelta(Packed removed, boolean clear) {
+            removed.trim();
+            this.addition = false;
+            this.clear = clear;
+            this.removed = removed;
+            this.count = removed.n;
+            this.firstId = -1;
+            this.ids = removed.ids;
+        }
+
+        /**
+         * Получить номера точек
+         *
+         * @return номера точек
+         */
+        private int[] ids() {
+            if (ids != null)
+                return ids;
+            int[] res = new int[count];
+            for (int i = 0; i < count; i++)
+                res[i] = firstId + i;
+            return res;
+        }
+
+        /**
+         * Убрать точки шага из задачи, запомнив их
+         *
+         * @param task задача
+         */
+        private void remove(Task task) {
+            Packed p = new Packed(count);
+            if (clear)
+                task.clearPoints(p);
+            else
+                task.deletePoints(ids(), p);
+            p.trim();
+            removed = p;
+        }
+
+        /**
+         * Вернуть точки шага в задачу
+         *
+         * @param task задача
+         */
+        private void restore(Task task) {
+            task.restorePoints(removed);
+            removed = null;
+        }
+
+        @Override
+        void undo(Task task) {
+            if (addition)
+                remove(task);
+            else
+                restore(task);
+        }
+
+        @Override
+        void redo(Task task) {
+            if (addition)
+                restore(task);
+            else
+                remove(task);
+        }
+
+        @Override
+        long bytes() {
+            return MemoryLayout.object(2 + 2 * Integer.BYTES + 2 * MemoryLayout.REFERENCE) +
+                    MemoryLayout.of(ids) + (removed == null ? 0 : removed.bytes());
+        }
+
+        @Override
+        String getDescription() {
+            if (clear)
+                return "очистка (" + count + " точек)";
+            return (addition ? "добавление " : "удаление ") + count + " точек";
+        }
+    }
+
+    /**
+     * Шаг переноса точек в другое множество: номера точек,
+     * их множества до переноса и общее множество после
+     */
+    static class SetsDelta extends Delta {
+        /**
+         * Номера точек
+         */
+        private final int[] ids;
+        /**
+         * Множества точек до переноса (порядковые номера)
+         */
+        private final byte[] before;
+        /**
+         * Множество после переноса
+         */
+        private final Point.PointSet after;
+
+        /**
+         * Конструктор шага
+         *
+         * @param ids    номера точек
+         * @param before множества точек до переноса
+         * @param after  множество после переноса
+         */
+        SetsDelta(int[] ids, byte[] before, Point.PointSet after) {
+            this.ids = ids;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        void undo(Task task) {
+            task.setPointSets(ids, before);
+        }
+
+        @Override
+        void redo(Task task) {
+            task.setPointSets(ids, after);
+        }
+
+        @Override
+        long bytes() {
+            return MemoryLayout.object(3 * MemoryLayout.REFERENCE) + MemoryLayout.of(ids) + MemoryLayout.of(before);
+        }
+
+        @Override
+        String getDescription() {
+            return "перенос " + ids.length + " точек в " + Point.getSetName(after);
+        }
+    }
+
+    /**
+     * Шаг изменения СК задачи (масштабирование): границы до и после
+     * (хранятся минимум и размер, чтобы СК восстанавливалась без погрешности)
+     */
+    static class ScaleDelta extends Delta {
+        /**
+         * Минимальные координаты до
+         */
+        private final Vector2d beforeMin;
+        /**
+         * Размер СК до
+         */
+        private final Vector2d beforeSize;
+        /**
+         * Минимальные координаты после
+         */
+        private Vector2d afterMin;
+        /**
+         * Размер СК после
+         */
+        private Vector2d afterSize;
+
+        /**
+         * Конструктор шага
+         *
+         * @param beforeMin  минимальные координаты до
+         * @param beforeSize размер СК до
+         * @param afterMin   минимальные координаты после
+         * @param afterSize  размер СК после
+         */
+        ScaleDelta(Vector2d beforeMin, Vector2d beforeSize, Vector2d afterMin, Vector2d afterSize) {
+            this.beforeMin = beforeMin;
+            this.beforeSize = beforeSize;
+            this.afterMin = afterMin;
+            this.afterSize = afterSize;
+        }
+
+        @Override
+        void undo(Task task) {
+            task.setBounds(beforeMin, beforeSize);
+        }
+
+        @Override
+        void redo(Task task) {
+            task.setBounds(afterMin, afterSize);
+        }
+
+        @Override
+        long bytes() {
+            // сам шаг и четыре вектора
+            return MemoryLayout.object(4 * MemoryLayout.REFERENCE) + 4 * MemoryLayout.object(2 * Double.BYTES);
+        }
+
+        @Override
+        String getDescription() {
+            return "масштабирование";
+        }
+    }
+
+    /**
+     * Бюджет памяти, байт
+     */
+    private final long budget;
+    /**
+     * Шаги для отмены (последний - первый)
+     */
+    private final ArrayDeque<Delta> undo = new ArrayDeque<>();
+    /**
+     * Шаги для повтора (ближайший - первый)
+     */
+    private final ArrayDeque<Delta> redo = new ArrayDeque<>();
+    /**
+     * Суммарный объём шагов, байт
+     */
+    private long bytes;
+
+    /**
+     * Конструктор истории
+     *
+     * @param budget бюджет памяти, байт
+     */
+    public History(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Получить бюджет памяти истории новой задачи
+     *
+     * @return значение системного свойства или бюджет по умолчанию, байт
+     */
+    public static long getConfiguredBudget() {
+        return Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Записать шаг (шаги для повтора при этом теряются)
+     *
+     * @param delta шаг
+     */
+    void push(Delta delta) {
+        for (Delta d : redo)
+            bytes -= d.bytes();
+        redo.clear();
+        undo.push(delta);
+        bytes += delta.bytes();
+        evict();
+    }
+
+    /**
+     * Записать масштабирование: подряд идущие масштабирования сливаются в один шаг
+     *
+     * @param beforeMin  минимальные координаты до
+     * @param beforeSize размер СК до
+     * @param afterMin   минимальные координаты после
+     * @param afterSize  размер СК после
+     */
+    void pushScale(Vector2d beforeMin, Vector2d beforeSize, Vector2d afterMin, Vector2d afterSize) {
+        if (redo.isEmpty() && undo.peek() instanceof ScaleDelta last) {
+            last.afterMin = afterMin;
+            last.afterSize = afterSize;
+            return;
+        }
+        push(new ScaleDelta(beforeMin, beforeSize, afterMin, afterSize));
+    }
+
+    /**
+     * Отменить последний шаг
+     *
+     * @param task задача
+     * @return описание отменённого шага или null, если отменять нечего
+     */
+    public String undo(Task task) {
+        return move(undo, redo, task, true);
+    }
+
+    /**
+     * Повторить отменённый шаг
+     *
+     * @param task задача
+     * @return описание повторённого шага или null, если повторять нечего
+     */
+    public String redo(Task task) {
+        return move(redo, undo, task, false);
+    }
+
+    /**
+     * Выполнить шаг и переложить его в другой стек
+     *
+     * @param from стек, из которого берётся шаг
+     * @param to   стек, в который кладётся шаг
+     * @param task задача
+     * @param back флаг отмены (иначе повтор)
+     * @return описание шага или null, если стек пустой
+     */
+    private String move(ArrayDeque<Delta> from, ArrayDeque<Delta> to, Task task, boolean back) {
+        Delta delta = from.poll();
+        if (delta == null)
+            return null;
+        // объём шага меняется: он начинает или перестаёт хранить точки
+        bytes -= delta.bytes();
+        if (back)
+            delta.undo(task);
+        else
+            delta.redo(task);
+        bytes += delta.bytes();
+        to.push(delta);
+        evict();
+        return delta.getDescription();
+    }
+
+    /**
+     * Вытеснить самые старые шаги, пока объём превышает бюджет
+     */
+    private void evict() {
+        while (bytes > budget && !undo.isEmpty())
+            bytes -= undo.pollLast().bytes();
+        while (bytes > budget && !redo.isEmpty())
+            bytes -= redo.pollLast().bytes();
+    }
+
+    /**
+     * Очистить историю
+     */
+    public void clear() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Получить кол-во шагов для отмены
+     *
+     * @return кол-во шагов
+     */
+    public int getUndoSize() {
+        return undo.size();
+    }
+
+    /**
+     * Получить кол-во шагов для повтора
+     *
+     * @return кол-во шагов
+     */
+    public int getRedoSize() {
+        return redo.size();
+    }
+
+    /**
+     * Получить суммарный объём шагов
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,562 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.util.Arrays;
+
+/**
+ * KD-дерево над точками задачи для поиска ближайших точек (попадание курсором).
+ * Узлы хранятся в параллельных массивах, ось деления чередуется по глубине
+ * (чётная - X, нечётная - Y). При вставке точка становится новым листом,
+ * а слишком глубокая ветка перестраивается частично: сбалансированным делается
+ * только самое нижнее разбалансированное поддерево (как в scapegoat-дереве),
+ * поэтому вставка в среднем стоит O(log n), а глубина остаётся логарифмической.
+ * Удалённые точки помечаются в своих узлах, а узлы остаются разделителями
+ * до следующей перестройки. Вставка и поиск используют общие рабочие буферы,
+ * поэтому дерево рассчитано на один поток (поток окна).
+ */
+public class KdTree {
+    /**
+     * Допустимая доля точек поддерева в одном потомке
+     */
+    private static final double ALPHA = 0.7;
+    /**
+     * Начальная ёмкость массивов узлов
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Хранилище точек
+     */
+    private final PointStore store;
+    /**
+     * Индексы точек узлов в хранилище (-1 у удалённых)
+     */
+    private int[] points = new int[INITIAL_CAPACITY];
+    /**
+     * Координаты деления узлов по оси уровня
+     */
+    private double[] splits = new double[INITIAL_CAPACITY];
+    /**
+     * Левые потомки узлов (-1, если нет)
+     */
+    private int[] left = new int[INITIAL_CAPACITY];
+    /**
+     * Правые потомки узлов (-1, если нет)
+     */
+    private int[] right = new int[INITIAL_CAPACITY];
+    /**
+     * Кол-во живых точек в поддеревьях узлов
+     */
+    private int[] sizes = new int[INITIAL_CAPACITY];
+    /**
+     * Кол-во занятых ячеек массивов узлов (включая брошенные при перестройке и удалённые)
+     */
+    private int nodeCount;
+    /**
+     * Корень (-1, если дерево пустое)
+     */
+    private int root = -1;
+    /**
+     * Путь от корня к месту вставки (рабочий буфер, растёт с глубиной дерева)
+     */
+    private int[] path = new int[64];
+    /**
+     * Куча найденных точек (рабочий буфер поиска)
+     */
+    private final Heap heap = new Heap();
+
+    /**
+     * Конструктор пустого дерева
+     *
+     * @param store хранилище точек
+     */
+    public KdTree(PointStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Построить сбалансированное дерево по всем точкам хранилища
+     *
+     * @param store хранилище точек
+     * @return дерево
+     */
+    public static KdTree build(PointStore store) {
+        KdTree tree = new KdTree(store);
+        tree.rebuild();
+        return tree;
+    }
+
+    /**
+     * Перестроить дерево по всем точкам хранилища
+     */
+    public void rebuild() {
+        int n = store.size();
+        int[] arr = new int[n];
+        for (int i = 0; i < n; i++)
+            arr[i] = i;
+        nodeCount = 0;
+        ensureCapacity(n);
+        root = build(arr, 0, n, 0);
+    }
+
+    /**
+     * Построить сбалансированное поддерево по диапазону индексов точек
+     *
+     * @param arr   массив индексов точек
+     * @param from  начало диапазона
+     * @param to    конец диапазона (не включительно)
+     * @param depth глубина корня поддерева
+     * @return корень поддерева или -1, если диапазон пустой
+     */
+    private int build(int[] arr, int from, int to, int depth) {
+        if (from >= to)
+            return -1;
+        // медиана по оси уровня становится корнем поддерева
+        int mid = (from + to) >>> 1;
+        BallTree.select(store, (depth & 1) == 0, arr, from, to - 1, mid);
+        int node = nodeCount++;
+        points[node] = arr[mid];
+        splits[node] = BallTree.key(store, (depth & 1) == 0, arr[mid]);
+        sizes[node] = to - from;
+        left[node] = build(arr, from, mid, depth + 1);
+        right[node] = build(arr, mid + 1, to, depth + 1);
+        return node;
+    }
+
+    /**
+     * Обеспечить место ещё под заданное кол-во узлов
+     *
+     * @param extra кол-во новых узлов
+     */
+    private void ensureCapacity(int extra) {
+        int capacity = nodeCount + extra;
+        if (capacity <= points.length)
+            return;
+        int newCapacity = Math.max(capacity, points.length + (points.length >> 1));
+        points = Arrays.copyOf(points, newCapacity);
+        splits = Arrays.copyOf(splits, newCapacity);
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        sizes = Arrays.copyOf(sizes, newCapacity);
+    }
+
+    /**
+     * Добавить в дерево точку хранилища. Дерево не перестраивается целиком:
+     * точки пакета уже лежат в хранилище, и перестройка посреди пакета добавила бы
+     * оставшиеся точки дважды, поэтому после пакета вызывается {@link #compact()}
+     *
+     * @param index индекс точки в хранилище
+     */
+    public void insert(int index) {
+        ensureCapacity(1);
+        int leaf = nodeCount++;
+        double x = store.getX(index);
+        double y = store.getY(index);
+        points[leaf] = index;
+        left[leaf] = right[leaf] = -1;
+        sizes[leaf] = 1;
+        if (root == -1) {
+            splits[leaf] = x;
+            root = leaf;
+            return;
+        }
+        // спускаемся к месту вставки, запоминая путь
+        int depth = 0;
+        int node = root;
+        while (true) {
+            if (depth == path.length)
+                path = Arrays.copyOf(path, depth * 2);
+            path[depth] = node;
+            sizes[node]++;
+            boolean goLeft = ((depth & 1) == 0 ? x : y) < splits[node];
+            int next = goLeft ? left[node] : right[node];
+            depth++;
+            if (next == -1) {
+                splits[leaf] = (depth & 1) == 0 ? x : y;
+                if (goLeft)
+                    left[node] = leaf;
+                else
+                    right[node] = leaf;
+                break;
+            }
+            node = next;
+        }
+        // если лист оказался глубже допустимого, ищем на пути разбалансированный узел
+        if (depth > Math.log(size()) / Math.log(1 / ALPHA) + 1) {
+            for (int d = depth - 1; d >= 0; d--) {
+                int n = path[d];
+                int ls = left[n] == -1 ? 0 : sizes[left[n]];
+                int rs = right[n] == -1 ? 0 : sizes[right[n]];
+                if (Math.max(ls, rs) > ALPHA * sizes[n]) {
+                    int rebuilt = rebuildSubtree(n, d);
+                    if (d == 0)
+                        root = rebuilt;
+                    else if (left[path[d - 1]] == n)
+                        left[path[d - 1]] = rebuilt;
+                    else
+                        right[path[d - 1]] = rebuilt;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Перестроить поддерево сбалансированным
+     *
+     * @param node  корень поддерева
+     * @param depth глубина корня
+     * @return новый корень поддерева
+     */
+    private int rebuildSubtree(int node, int depth) {
+        int[] arr = new int[sizes[node]];
+        collect(node, arr, 0);
+        ensureCapacity(arr.length);
+        return build(arr, 0, arr.length, depth);
+    }
+
+    /**
+     * Собрать индексы точек поддерева
+     *
+     * @param node узел
+     * @param arr  массив для индексов
+     * @param pos  позиция записи
+     * @return следующая позиция записи
+     */
+    private int collect(int node, int[] arr, int pos) {
+        if (node == -1)
+            return pos;
+        if (points[node] >= 0)
+            arr[pos++] = points[node];
+        pos = collect(left[node], arr, pos);
+        return collect(right[node], arr, pos);
+    }
+
+    /**
+     * Перестроить дерево целиком, если брошенных и удалённых узлов стало больше, чем живых
+     *
+     * @return флаг, было ли дерево перестроено
+     */
+    public boolean compact() {
+        if (nodeCount <= 2 * size() + INITIAL_CAPACITY)
+            return false;
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Удалить из дерева точку хранилища (вызывается до изменения хранилища)
+     *
+     * @param index индекс точки в хранилище
+     * @return флаг, была ли точка найдена
+     */
+    public boolean remove(int index) {
+        return replace(root, 0, index, -1, store.getX(index), store.getY(index));
+    }
+
+    /**
+     * Заменить индекс точки (точка переехала в другую ячейку хранилища;
+     * вызывается, пока координаты по старому индексу ещё доступны)
+     *
+     * @param from старый индекс
+     * @param to   новый индекс
+     * @return флаг, была ли точка найдена
+     */
+    public boolean relabel(int from, int to) {
+        return replace(root, 0, from, to, store.getX(from), store.getY(from));
+    }
+
+    /**
+     * Найти узел точки в поддереве и заменить её индекс
+     *
+     * @param node  узел
+     * @param depth глубина узла
+     * @param from  искомый индекс
+     * @param to    новый индекс (-1 - удалить)
+     * @param x     координата X точки
+     * @param y     координата Y точки
+     * @return флаг, была ли точка найдена
+     */
+    private boolean replace(int node, int depth, int from, int to, double x, double y) {
+        if (node == -1)
+            return false;
+        boolean found;
+        if (points[node] == from) {
+            points[node] = to;
+            found = true;
+        } else {
+            // точки, равные разделителю, при построении могли попасть в любую сторону
+            double key = (depth & 1) == 0 ? x : y;
+            found = (key <= splits[node] && replace(left[node], depth + 1, from, to, x, y)) ||
+                    (key >= splits[node] && replace(right[node], depth + 1, from, to, x, y));
+        }
+        if (found && to == -1)
+            sizes[node]--;
+        return found;
+    }
+
+    /**
+     * Очистить дерево
+     */
+    public void clear() {
+        root = -1;
+        nodeCount = 0;
+    }
+
+    /**
+     * Получить кол-во точек в дереве
+     *
+     * @return кол-во точек в дереве
+     */
+    public int size() {
+        return root == -1 ? 0 : sizes[root];
+    }
+
+    /**
+     * Получить объём памяти дерева по раскладке {@link MemoryLayout}
+     * (узлы лежат в параллельных массивах, поэтому считается их ёмкость)
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(8 * MemoryLayout.REFERENCE + 2 * Integer.BYTES) +
+                MemoryLayout.of(points) + MemoryLayout.of(splits) + MemoryLayout.of(left) +
+                MemoryLayout.of(right) + MemoryLayout.of(sizes) + MemoryLayout.of(path) +
+                MemoryLayout.object(2 * MemoryLayout.REFERENCE + 2 * Integer.BYTES + Double.BYTES) +
+                MemoryLayout.of(heap.items) + MemoryLayout.of(heap.dists);
+    }
+
+    /**
+     * Получить глубину дерева
+     *
+     * @return глубина (0 у пустого дерева)
+     */
+    public int depth() {
+        return depth(root);
+    }
+
+    /**
+     * Получить глубину поддерева
+     *
+     * @param node узел
+     * @return глубина
+     */
+    private int depth(int node) {
+        return node == -1 ? 0 : 1 + Math.max(depth(left[node]), depth(right[node]));
+    }
+
+    /**
+     * Найти ближайшую точку
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @return индекс ближайшей точки или -1, если дерево пустое
+     */
+    public int nearest(double x, double y) {
+        return nearest(x, y, Double.MAX_VALUE);
+    }
+
+    /**
+     * Найти ближайшую точку не дальше заданного расстояния
+     *
+     * @param x       координата X
+     * @param y       координата Y
+     * @param maxDist максимальное расстояние
+     * @return индекс ближайшей точки или -1, если такой нет
+     */
+    public int nearest(double x, double y, double maxDist) {
+        // единственная точка кучи и есть ответ, сортировать и копировать нечего
+        search(x, y, 1, maxDist);
+        return heap.size == 0 ? -1 : heap.items[0];
+    }
+
+    /**
+     * Найти k ближайших точек
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @param k кол-во точек
+     * @return индексы точек от ближайшей к дальней (меньше k, если точек меньше)
+     */
+    public int[] nearest(double x, double y, int k) {
+        return nearest(x, y, k, Double.MAX_VALUE);
+    }
+
+    /**
+     * Найти k ближайших точек не дальше заданного расстояния
+     *
+     * @param x       координата X
+     * @param y       координата Y
+     * @param k       кол-во точек
+     * @param maxDist максимальное расстояние
+     * @return индексы точек от ближайшей к дальней
+     */
+    public int[] nearest(double x, double y, int k, double maxDist) {
+        search(x, y, k, maxDist);
+        return heap.sorted();
+    }
+
+    /**
+     * Найти k ближайших точек не дальше заданного расстояния в кучу {@link #heap}
+     *
+     * @param x       координата X
+     * @param y       координата Y
+     * @param k       кол-во точек
+     * @param maxDist максимальное расстояние
+     */
+    private void search(double x, double y, int k, double maxDist) {
+        heap.reset(k, maxDist == Double.MAX_VALUE ? Double.MAX_VALUE : maxDist * maxDist);
+        if (k > 0)
+            nearest(root, 0, x, y, heap);
+    }
+
+    /**
+     * Найти ближайшие точки в поддереве
+     *
+     * @param node  узел
+     * @param depth глубина узла
+     * @param x     координата X
+     * @param y     координата Y
+     * @param heap  найденные точки
+     */
+    private void nearest(int node, int depth, double x, double y, Heap heap) {
+        if (node == -1)
+            return;
+        int idx = points[node];
+        if (idx >= 0) {
+            double dx = x - store.getX(idx);
+            double dy = y - store.getY(idx);
+            heap.offer(idx, dx * dx + dy * dy);
+        }
+        // сначала спускаемся на сторону искомой точки
+        double diff = ((depth & 1) == 0 ? x : y) - splits[node];
+        int near = diff < 0 ? left[node] : right[node];
+        int far = diff < 0 ? right[node] : left[node];
+        nearest(near, depth + 1, x, y, heap);
+        // другую сторону смотрим, только если плоскость деления ближе худшей найденной точки
+        if (diff * diff <= heap.bound())
+            nearest(far, depth + 1, x, y, heap);
+    }
+
+    /**
+     * Ограниченная куча найденных точек: на вершине самая дальняя.
+     * Массивы кучи переиспользуются между поисками и растут только при большем k
+     */
+    private static class Heap {
+        /**
+         * Индексы точек
+         */
+        private int[] items = new int[1];
+        /**
+         * Квадраты расстояний
+         */
+        private double[] dists = new double[1];
+        /**
+         * Максимальное кол-во точек
+         */
+        private int capacity;
+        /**
+         * Квадрат максимального расстояния
+         */
+        private double limit;
+        /**
+         * Кол-во точек в куче
+         */
+        private int size;
+
+        /**
+         * Подготовить пустую кучу к новому поиску
+         *
+         * @param k     максимальное кол-во точек
+         * @param limit квадрат максимального расстояния
+         */
+        void reset(int k, double limit) {
+            capacity = Math.max(k, 0);
+            if (capacity > items.length) {
+                items = new int[capacity];
+                dists = new double[capacity];
+            }
+            this.limit = limit;
+            size = 0;
+        }
+
+        /**
+         * Текущая граница отсечения (квадрат расстояния)
+         *
+         * @return граница
+         */
+        double bound() {
+            return size < capacity ? limit : dists[0];
+        }
+
+        /**
+         * Предложить точку
+         *
+         * @param idx  индекс точки
+         * @param dist квадрат расстояния
+         */
+        void offer(int idx, double dist) {
+            if (dist > bound() || (size == capacity && dist == dists[0]))
+                return;
+            int i;
+            if (size < capacity) {
+                // просеиваем вверх
+                i = size++;
+                while (i > 0 && dists[(i - 1) / 2] < dist) {
+                    items[i] = items[(i - 1) / 2];
+                    dists[i] = dists[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+            } else {
+                // заменяем вершину и просеиваем вниз
+                i = 0;
+                while (true) {
+                    int c = 2 * i + 1;
+                    if (c >= size)
+                        break;
+                    if (c + 1 < size && dists[c + 1] > dists[c])
+                        c++;
+                    if (dists[c] <= dist)
+                        break;
+                    items[i] = items[c];
+                    dists[i] = dists[c];
+                    i = c;
+                }
+            }
+            items[i] = idx;
+            dists[i] = dist;
+        }
+
+        /**
+         * Получить точки от ближайшей к дальней (куча после этого разрушается)
+         *
+         * @return индексы точек
+         */
+        int[] sorted() {
+            // пирамидальная сортировка на месте: максимум уходит в конец
+            for (int end = size - 1; end > 0; end--) {
+                int idx = items[end];
+                double dist = dists[end];
+                items[end] = items[0];
+                dists[end] = dists[0];
+                int i = 0;
+                while (true) {
+                    int c = 2 * i + 1;
+                    if (c >= end)
+                        break;
+                    if (c + 1 < end && dists[c + 1] > dists[c])
+                        c++;
+                    if (dists[c] <= dist)
+                        break;
+                    items[i] = items[c];
+                    dists[i] = dists[c];
+                    i = c;
+                }
+                items[i] = idx;
+                dists[i] = dist;
+            }
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
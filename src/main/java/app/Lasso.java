@@ -0,0 +1,152 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Лассо - замкнутый многоугольник произвольной формы в СК задачи.
+ * Принадлежность точки проверяется правилом чётности пересечений,
+ * а для узлов пространственного индекса есть быстрая проверка, пересекает ли
+ * прямоугольник границу лассо: узел, который границу не пересекает,
+ * целиком внутри или целиком снаружи, и его точки можно не проверять по одной
+ */
+public class Lasso {
+    /**
+     * Координаты X вершин
+     */
+    private final double[] xs;
+    /**
+     * Координаты Y вершин
+     */
+    private final double[] ys;
+    /**
+     * Габарит вершин
+     */
+    private final double minX, minY, maxX, maxY;
+
+    /**
+     * Конструктор лассо
+     *
+     * @param xs координаты X вершин
+     * @param ys координаты Y вершин
+     * @param n  кол-во вершин (не меньше трёх)
+     */
+    public Lasso(double[] xs, double[] ys, int n) {
+        if (n < 3)
+            throw new IllegalArgumentException("у лассо должно быть хотя бы три вершины, а не " + n);
+        this.xs = Arrays.copyOf(xs, n);
+        this.ys = Arrays.copyOf(ys, n);
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            x0 = Math.min(x0, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            x1 = Math.max(x1, xs[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+    }
+
+    /**
+     * Проверить, лежит ли точка внутри лассо (правило чётности)
+     *
+     * @param x координата X
+     * @param y координата Y
+     * @return флаг, лежит ли точка внутри
+     */
+    public boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY)
+            return false;
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            // ребро пересекает горизонтальный луч из точки вправо
+            if ((ys[i] > y) != (ys[j] > y) &&
+                    x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i])
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * Проверить, пересекает ли граница лассо прямоугольник
+     *
+     * @param x0 минимальная координата X прямоугольника
+     * @param y0 минимальная координата Y прямоугольника
+     * @param x1 максимальная координата X прямоугольника
+     * @param y1 максимальная координата Y прямоугольника
+     * @return флаг, пересекает ли хотя бы одно ребро прямоугольник
+     */
+    public boolean crosses(double x0, double y0, double x1, double y1) {
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++)
+            if (segmentHitsBox(xs[j], ys[j], xs[i], ys[i], x0, y0, x1, y1))
+                return true;
+        return false;
+    }
+
+    /**
+     * Проверить, пересекает ли отрезок прямоугольник (теорема о разделяющей оси:
+     * оси X и Y и нормаль отрезка)
+     *
+     * @param ax координата X начала отрезка
+     * @param ay координата Y начала отрезка
+     * @param bx координата X конца отрезка
+     * @param by координата Y конца отрезка
+     * @param x0 минимальная координата X прямоугольника
+     * @param y0 минимальная координата Y прямоугольника
+     * @param x1 максимальная координата X прямоугольника
+     * @param y1 максимальная координата Y прямоугольника
+     * @return флаг, есть ли у отрезка общая точка с прямоугольником
+     */
+    private static boolean segmentHitsBox(double ax, double ay, double bx, double by,
+                                          double x0, double y0, double x1, double y1) {
+        // габариты не пересекаются
+        if (Math.max(ax, bx) < x0 || Math.min(ax, bx) > x1 || Math.max(ay, by) < y0 || Math.min(ay, by) > y1)
+            return false;
+        // все углы прямоугольника лежат строго по одну сторону от прямой отрезка
+        double dx = bx - ax;
+        double dy = by - ay;
+        double c0 = dx * (y0 - ay) - dy * (x0 - ax);
+        double c1 = dx * (y0 - ay) - dy * (x1 - ax);
+        double c2 = dx * (y1 - ay) - dy * (x0 - ax);
+        double c3 = dx * (y1 - ay) - dy * (x1 - ax);
+        return !(c0 > 0 && c1 > 0 && c2 > 0 && c3 > 0) && !(c0 < 0 && c1 < 0 && c2 < 0 && c3 < 0);
+    }
+
+    /**
+     * Получить минимальную координату X вершин
+     *
+     * @return минимальная координата X
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Получить минимальную координату Y вершин
+     *
+     * @return минимальная координата Y
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Получить максимальную координату X вершин
+     *
+     * @return максимальная координата X
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Получить максимальную координату Y вершин
+     *
+     * @return максимальная координата Y
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,178 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Отчёт о памяти задачи по разделам (хранилище точек, индексы, кэши, история, буферы отрисовки).
+ * Объёмы считаются по известной раскладке структур ({@link MemoryLayout}), а не по
+ * разнице занятой кучи, поэтому отчёт воспроизводим и годится для подбора размера кучи
+ * и для поиска регрессий при появлении новых структур
+ */
+public class MemoryReport {
+    /**
+     * Раздел отчёта
+     */
+    public static final class Entry {
+        /**
+         * Название раздела
+         */
+        private final String name;
+        /**
+         * Объём в куче, байт
+         */
+        private final long heapBytes;
+        /**
+         * Объём вне кучи, байт
+         */
+        private final long offHeapBytes;
+
+        /**
+         * Конструктор раздела
+         *
+         * @param name         название
+         * @param heapBytes    объём в куче, байт
+         * @param offHeapBytes объём вне кучи, байт
+         */
+        private Entry(String name, long heapBytes, long offHeapBytes) {
+            this.name = name;
+            this.heapBytes = heapBytes;
+            this.offHeapBytes = offHeapBytes;
+        }
+
+        /**
+         * Получить название раздела
+         *
+         * @return название
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Получить объём в куче
+         *
+         * @return объём, байт
+         */
+        public long getHeapBytes() {
+            return heapBytes;
+        }
+
+        /**
+         * Получить объём вне кучи
+         *
+         * @return объём, байт
+         */
+        public long getOffHeapBytes() {
+            return offHeapBytes;
+        }
+    }
+
+    /**
+     * Кол-во точек задачи
+     */
+    private final int pointCount;
+    /**
+     * Разделы отчёта
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Конструктор пустого отчёта
+     *
+     * @param pointCount кол-во точек задачи
+     */
+    MemoryReport(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    /**
+     * Добавить раздел
+     *
+     * @param name         название
+     * @param heapBytes    объём в куче, байт
+     * @param offHeapBytes объём вне кучи, байт
+     */
+    void add(String name, long heapBytes, long offHeapBytes) {
+        entries.add(new Entry(name, heapBytes, offHeapBytes));
+    }
+
+    /**
+     * Получить разделы отчёта
+     *
+     * @return неизменяемый список разделов
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Получить суммарный объём в куче
+     *
+     * @return объём, байт
+     */
+    public long getHeapBytes() {
+        long bytes = 0;
+        for (Entry e : entries)
+            bytes += e.heapBytes;
+        return bytes;
+    }
+
+    /**
+     * Получить суммарный объём вне кучи
+     *
+     * @return объём, байт
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (Entry e : entries)
+            bytes += e.offHeapBytes;
+        return bytes;
+    }
+
+    /**
+     * Получить текст отчёта для вывода на экран (объёмы в мегабайтах)
+     *
+     * @return текст отчёта
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder("Память задачи (" + pointCount + " точек)\n");
+        for (Entry e : entries) {
+            sb.append(e.name).append(": ").append(MemoryLayout.toMegabytes(e.heapBytes)).append(" МБ");
+            if (e.offHeapBytes > 0)
+                sb.append(" + вне кучи ").append(MemoryLayout.toMegabytes(e.offHeapBytes)).append(" МБ");
+            sb.append('\n');
+        }
+        sb.append("Итого: куча ").append(MemoryLayout.toMegabytes(getHeapBytes()))
+                .append(" МБ, вне кучи ").append(MemoryLayout.toMegabytes(getOffHeapBytes())).append(" МБ");
+        return sb.toString();
+    }
+
+    /**
+     * Выгрузить отчёт в файл: по строке на раздел, поля через табуляцию,
+     * объёмы в байтах (удобно сравнивать отчёты разных версий)
+     *
+     * @param path путь к файлу
+     * @throws IOException ошибка записи
+     */
+    public void export(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("# точек: " + pointCount);
+            out.println("# раскладка: заголовок объекта " + MemoryLayout.OBJECT_HEADER +
+                    " Б, заголовок массива " + MemoryLayout.ARRAY_HEADER +
+                    " Б, ссылка " + MemoryLayout.REFERENCE + " Б, выравнивание " + MemoryLayout.ALIGNMENT + " Б");
+            out.println("раздел\tкуча, байт\tвне кучи, байт");
+            for (Entry e : entries)
+                out.println(e.name + "\t" + e.heapBytes + "\t" + e.offHeapBytes);
+            out.println("итого\t" + getHeapBytes() + "\t" + getOffHeapBytes());
+        }
+    }
+}
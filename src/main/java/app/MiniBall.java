@@ -0,0 +1,313 @@
+package app;
+
+/**
+ * Поиск шара наименьшего радиуса, содержащего все точки множества,
+ * в пространстве произвольной размерности d (алгоритм Miniball Гертнера:
+ * move-to-front с выбором опорной точки - pivoting).
+ * Точки задаются строками double[] одинаковой длины. Для плоскости
+ * есть специализированный быстрый вариант {@link CircleSolver}.
+ */
+public class MiniBall {
+    /**
+     * Относительная погрешность: точка, выходящая за шар меньше чем на
+     * EPSILON * r^2, считается лежащей внутри, а точка, почти аффинно
+     * зависимая от базиса, в базис не добавляется
+     */
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Точки
+     */
+    private final double[][] rows;
+    /**
+     * Размерность пространства
+     */
+    private final int d;
+    /**
+     * Следующий элемент списка точек (индекс rows.length - ограничитель)
+     */
+    private final int[] next;
+    /**
+     * Предыдущий элемент списка точек
+     */
+    private final int[] prev;
+    /**
+     * Ограничитель списка
+     */
+    private final int end;
+    /**
+     * Конец опорного множества в списке
+     */
+    private int supportEnd;
+
+    /**
+     * Кол-во точек в базисе
+     */
+    private int m;
+    /**
+     * Первая точка базиса
+     */
+    private final double[] q0;
+    /**
+     * Вспомогательные величины базиса
+     */
+    private final double[] z;
+    /**
+     * Вспомогательные величины базиса
+     */
+    private final double[] f;
+    /**
+     * Ортогонализованные векторы базиса
+     */
+    private final double[][] v;
+    /**
+     * Коэффициенты ортогонализации
+     */
+    private final double[][] a;
+    /**
+     * Центры шаров, проходящих через первые i точек базиса
+     */
+    private final double[][] c;
+    /**
+     * Квадраты радиусов этих шаров
+     */
+    private final double[] sqrR;
+    /**
+     * Текущий центр
+     */
+    private double[] currentC;
+    /**
+     * Текущий квадрат радиуса
+     */
+    private double currentSqrR;
+    /**
+     * Кол-во точек, на которые опирается найденный шар
+     */
+    private int supportSize;
+
+    /**
+     * Построить минимальный шар
+     *
+     * @param rows точки, каждая строка - координаты одной точки
+     */
+    public MiniBall(double[][] rows) {
+        this.rows = rows;
+        this.d = rows.length == 0 ? 0 : rows[0].length;
+        int n = rows.length;
+        // двусвязный список индексов точек с ограничителем end = n
+        end = n;
+        next = new int[n + 1];
+        prev = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            next[i] = (i + 1) % (n + 1);
+            prev[i] = (i + n) % (n + 1);
+        }
+        q0 = new double[d];
+        z = new double[d + 1];
+        f = new double[d + 1];
+        v = new double[d + 1][d];
+        a = new double[d + 1][d + 1];
+        c = new double[d + 1][d];
+        sqrR = new double[d + 1];
+        // пустой шар
+        currentC = c[0];
+        currentSqrR = -1;
+        if (n > 0)
+            pivotMb();
+    }
+
+    /**
+     * Получить центр шара
+     *
+     * @return центр шара
+     */
+    public double[] getCentre() {
+        return currentC.clone();
+    }
+
+    /**
+     * Получить квадрат радиуса шара
+     *
+     * @return квадрат радиуса или -1, если точек нет
+     */
+    public double getSquaredRadius() {
+        return currentSqrR;
+    }
+
+    /**
+     * Получить радиус шара
+     *
+     * @return радиус
+     */
+    public double getRadius() {
+        return Math.sqrt(Math.max(0, currentSqrR));
+    }
+
+    /**
+     * Получить размерность пространства
+     *
+     * @return размерность пространства
+     */
+    public int getDimension() {
+        return d;
+    }
+
+    /**
+     * Получить кол-во точек, на которые опирается шар
+     *
+     * @return кол-во опорных точек
+     */
+    public int getSupportSize() {
+        return supportSize;
+    }
+
+    /**
+     * Насколько точка выходит за текущий шар
+     *
+     * @param row индекс точки
+     * @return положительное значение, если точка снаружи
+     */
+    private double excess(int row) {
+        double[] p = rows[row];
+        double e = -currentSqrR;
+        for (int k = 0; k < d; k++) {
+            double t = p[k] - currentC[k];
+            e += t * t;
+        }
+        return e;
+    }
+
+    /**
+     * Добавить точку в базис
+     *
+     * @param row индекс точки
+     * @return false, если точка аффинно зависима от базиса
+     */
+    private boolean push(int row) {
+        double[] p = rows[row];
+        if (m == 0) {
+            System.arraycopy(p, 0, q0, 0, d);
+            System.arraycopy(p, 0, c[0], 0, d);
+            sqrR[0] = 0;
+        } else {
+            double[] vm = v[m];
+            // v_m = p - q0
+            for (int j = 0; j < d; j++)
+                vm[j] = p[j] - q0[j];
+            // коэффициенты проекций на предыдущие векторы
+            for (int i = 1; i < m; i++) {
+                double s = 0;
+                for (int j = 0; j < d; j++)
+                    s += v[i][j] * vm[j];
+                a[m][i] = s * (2 / z[i]);
+            }
+            // ортогонализуем v_m
+            for (int i = 1; i < m; i++)
+                for (int j = 0; j < d; j++)
+                    vm[j] -= a[m][i] * v[i][j];
+            double zm = 0;
+            for (int j = 0; j < d; j++)
+                zm += vm[j] * vm[j];
+            zm *= 2;
+            // вырожденный случай
+            if (zm < EPSILON * currentSqrR)
+                return false;
+            z[m] = zm;
+            // новый центр и радиус
+            double e = -sqrR[m - 1];
+            for (int j = 0; j < d; j++) {
+                double t = p[j] - c[m - 1][j];
+                e += t * t;
+            }
+            f[m] = e / zm;
+            for (int j = 0; j < d; j++)
+                c[m][j] = c[m - 1][j] + f[m] * vm[j];
+            sqrR[m] = sqrR[m - 1] + e * f[m] / 2;
+        }
+        currentC = c[m];
+        currentSqrR = sqrR[m];
+        m++;
+        supportSize = m;
+        return true;
+    }
+
+    /**
+     * Убрать последнюю точку из базиса
+     * (текущий шар при этом сохраняется)
+     */
+    private void pop() {
+        m--;
+    }
+
+    /**
+     * Переместить точку в начало списка
+     *
+     * @param j индекс точки
+     */
+    private void moveToFront(int j) {
+        if (supportEnd == j)
+            supportEnd = next[j];
+        // вынимаем из списка
+        next[prev[j]] = next[j];
+        prev[next[j]] = prev[j];
+        // вставляем после ограничителя
+        int first = next[end];
+        next[end] = j;
+        prev[j] = end;
+        next[j] = first;
+        prev[first] = j;
+    }
+
+    /**
+     * Рекурсивный move-to-front по точкам списка до i
+     *
+     * @param i граница просмотра (не включительно)
+     */
+    private void mtfMb(int i) {
+        supportEnd = next[end];
+        if (m == d + 1)
+            return;
+        for (int k = next[end]; k != i; ) {
+            int j = k;
+            k = next[k];
+            if (excess(j) > EPSILON * currentSqrR && push(j)) {
+                mtfMb(j);
+                pop();
+                moveToFront(j);
+            }
+        }
+    }
+
+    /**
+     * Основной цикл: пока есть точки вне шара, берём самую удалённую
+     * в качестве опорной и перестраиваем шар
+     */
+    private void pivotMb() {
+        int t = next[next[end]];
+        mtfMb(t);
+        int pivot;
+        double oldSqrR = -1;
+        do {
+            // ищем точку, сильнее всех выходящую за шар
+            double maxE = EPSILON * currentSqrR;
+            pivot = -1;
+            for (int k = t; k != end; k = next[k]) {
+                double e = excess(k);
+                if (e > maxE) {
+                    maxE = e;
+                    pivot = k;
+                }
+            }
+            if (pivot >= 0) {
+                t = supportEnd;
+                if (t == pivot)
+                    t = next[t];
+                oldSqrR = currentSqrR;
+                push(pivot);
+                mtfMb(supportEnd);
+                pop();
+                moveToFront(pivot);
+            }
+        } while (pivot >= 0 && currentSqrR > oldSqrR);
+    }
+}
@@ -0,0 +1,226 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Хранилище точек вне кучи: столбцы лежат в прямых буферах, нарезанных
+ * на блоки по {@link #CHUNK_SIZE} точек, как в {@link HeapPointStore}.
+ * Все три столбца блока хранятся в одном буфере, поэтому сборщик мусора видит
+ * один объект на блок, а рост хранилища не копирует уже записанные блоки.
+ * Снимки делят блоки с хранилищем: блок копируется при первой записи в видимую
+ * снимкам часть, и копия занимает всего {@link #CHUNK_BYTES} байт прямой памяти.
+ */
+public class OffHeapPointStore extends PointStore {
+    /**
+     * Двоичный логарифм кол-ва точек в блоке
+     */
+    private static final int CHUNK_BITS = 12;
+    /**
+     * Кол-во точек в блоке
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * Маска индекса внутри блока
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * Смещение столбца координат Y в буфере блока
+     */
+    private static final int Y_OFFSET = CHUNK_SIZE * Double.BYTES;
+    /**
+     * Смещение столбца множеств в буфере блока
+     */
+    private static final int SET_OFFSET = 2 * CHUNK_SIZE * Double.BYTES;
+    /**
+     * Размер буфера блока, байт
+     */
+    public static final int CHUNK_BYTES = SET_OFFSET + CHUNK_SIZE;
+
+    /**
+     * Блоки: координаты X, координаты Y и порядковые номера множеств подряд
+     */
+    private ByteBuffer[] chunks;
+    /**
+     * Кол-во выделенных блоков
+     */
+    private int chunkCount;
+    /**
+     * Эпохи блоков: блок принадлежит хранилищу, если его эпоха совпадает с текущей
+     */
+    private int[] epochs;
+    /**
+     * Текущая эпоха (увеличивается при каждом снимке)
+     */
+    private int epoch;
+    /**
+     * Флаг, что массив блоков разделён со снимком
+     */
+    private boolean spineShared;
+    /**
+     * Кол-во точек, видимых снимкам: запись ниже этой границы требует копирования блока
+     */
+    private int sharedSize;
+
+    /**
+     * Конструктор пустого хранилища
+     */
+    public OffHeapPointStore() {
+        reset();
+    }
+
+    /**
+     * Конструктор хранилища с точками
+     *
+     * @param points точки
+     */
+    public OffHeapPointStore(Collection<Point> points) {
+        reset();
+        ensureCapacity(points.size());
+        for (Point p : points)
+            add(p);
+    }
+
+    /**
+     * Конструктор снимка, разделяющего блоки с хранилищем
+     *
+     * @param source хранилище
+     */
+    private OffHeapPointStore(OffHeapPointStore source) {
+        chunks = source.chunks;
+        chunkCount = source.chunkCount;
+    }
+
+    /**
+     * Сбросить блоки в пустое состояние
+     */
+    private void reset() {
+        chunks = new ByteBuffer[0];
+        epochs = new int[0];
+        chunkCount = 0;
+        spineShared = false;
+        sharedSize = 0;
+    }
+
+    /**
+     * Выделить прямой буфер под блок
+     *
+     * @return буфер
+     */
+    private static ByteBuffer allocateChunk() {
+        return ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Обеспечить ёмкость не меньше заданной
+     *
+     * @param capacity требуемая ёмкость
+     */
+    @Override
+    public void ensureCapacity(int capacity) {
+        checkWritable();
+        int count = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+        if (count <= chunkCount)
+            return;
+        // массив блоков растёт в полтора раза, уже выделенные блоки не копируются
+        if (count > chunks.length) {
+            int newLength = Math.max(count, chunks.length + (chunks.length >> 1));
+            chunks = Arrays.copyOf(chunks, newLength);
+            epochs = Arrays.copyOf(epochs, newLength);
+            spineShared = false;
+        }
+        // новые блоки лежат за пределами снимков, поэтому их можно вписать и в разделённый массив
+        for (int c = chunkCount; c < count; c++) {
+            chunks[c] = allocateChunk();
+            epochs[c] = epoch;
+        }
+        chunkCount = count;
+        modCount++;
+    }
+
+    @Override
+    protected void write(int index, double x, double y, byte pointSet) {
+        int c = index >>> CHUNK_BITS;
+        if (index < sharedSize && epochs[c] != epoch)
+            unshare(c);
+        int i = index & CHUNK_MASK;
+        ByteBuffer chunk = chunks[c];
+        chunk.putDouble(i * Double.BYTES, x);
+        chunk.putDouble(Y_OFFSET + i * Double.BYTES, y);
+        chunk.put(SET_OFFSET + i, pointSet);
+    }
+
+    /**
+     * Скопировать блок, который видят снимки, перед записью в него
+     *
+     * @param c номер блока
+     */
+    private void unshare(int c) {
+        if (spineShared) {
+            chunks = chunks.clone();
+            spineShared = false;
+        }
+        ByteBuffer copy = allocateChunk();
+        copy.put(0, chunks[c], 0, CHUNK_BYTES);
+        chunks[c] = copy;
+        epochs[c] = epoch;
+    }
+
+    @Override
+    protected PointStore share() {
+        OffHeapPointStore snapshot = new OffHeapPointStore(this);
+        // после снимка все блоки и массив блоков считаются разделёнными
+        epoch++;
+        spineShared = true;
+        sharedSize = Math.max(sharedSize, size);
+        return snapshot;
+    }
+
+    @Override
+    protected void shiftLeft(int index) {
+        for (int i = index + 1; i < size; i++)
+            write(i - 1, getX(i), getY(i), getSet(i));
+    }
+
+    @Override
+    public double getX(int index) {
+        return chunks[index >>> CHUNK_BITS].getDouble((index & CHUNK_MASK) * Double.BYTES);
+    }
+
+    @Override
+    public double getY(int index) {
+        return chunks[index >>> CHUNK_BITS].getDouble(Y_OFFSET + (index & CHUNK_MASK) * Double.BYTES);
+    }
+
+    @Override
+    protected byte getSet(int index) {
+        return chunks[index >>> CHUNK_BITS].get(SET_OFFSET + (index & CHUNK_MASK));
+    }
+
+    /**
+     * Очистить хранилище и освободить блоки
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        // прямые буферы освобождаются, когда сборщик мусора соберёт их объекты
+        // (блоки, которые видят снимки, живут, пока живут снимки)
+        reset();
+    }
+
+    @Override
+    public long getHeapBytes() {
+        // в куче только массив ссылок на блоки, таблицы номеров и столбцы атрибутов
+        // (объекты-обёртки прямых буферов не учитываются)
+        return MemoryLayout.of(chunks) + MemoryLayout.of(epochs) + getIdBytes() + getAttributeBytes();
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return (long) chunkCount * CHUNK_BYTES;
+    }
+}
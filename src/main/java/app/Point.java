@@ -21,7 +21,55 @@ public class Point {
          * Первое
          */
         FIRST_SET,
+        /**
+         * Второе
+         */
+        SECOND_SET
+    }
+
+    /**
+     * Необязательные атрибуты точек. Они хранятся не в объекте точки,
+     * а в отдельных столбцах хранилища, которые создаются при первом использовании
+     */
+    public enum Attribute {
+        /**
+         * Отметка времени (long)
+         */
+        TIMESTAMP("timestamp", Long.BYTES, 0),
+        /**
+         * Вес (float)
+         */
+        WEIGHT("weight", Float.BYTES, Float.floatToRawIntBits(1f)),
+        /**
+         * Номер источника (int)
+         */
+        SOURCE("source", Integer.BYTES, 0);
+
+        /**
+         * Имя поля в JSON
+         */
+        public final String field;
+        /**
+         * Размер значения, байт
+         */
+        public final int bytes;
+        /**
+         * Биты значения по умолчанию (у точек, которым атрибут не задавали)
+         */
+        public final long defaultBits;
 
+        /**
+         * Конструктор атрибута
+         *
+         * @param field       имя поля в JSON
+         * @param bytes       размер значения, байт
+         * @param defaultBits биты значения по умолчанию
+         */
+        Attribute(String field, int bytes, long defaultBits) {
+            this.field = field;
+            this.bytes = bytes;
+            this.defaultBits = defaultBits;
+        }
     }
 
     /**
@@ -53,8 +101,19 @@ public class Point {
      */
     @JsonIgnore
     public int getColor() {
+        return getColor(pointSet);
+    }
+
+    /**
+     * Получить цвет точек множества
+     *
+     * @param pointSet множество
+     * @return цвет точек
+     */
+    public static int getColor(PointSet pointSet) {
         return switch (pointSet) {
             case FIRST_SET -> Misc.getColor(0xCC, 0x00, 0xFF, 0xF0);
+            case SECOND_SET -> Misc.getColor(0xCC, 0xFF, 0x60, 0x60);
         };
     }
 
@@ -85,9 +144,19 @@ public class Point {
      */
     @JsonIgnore
     public String getSetName() {
+        return getSetName(pointSet);
+    }
+
+    /**
+     * Получить название множества
+     *
+     * @param pointSet множество
+     * @return название множества
+     */
+    public static String getSetName(PointSet pointSet) {
         return switch (pointSet) {
             case FIRST_SET -> "Первое множество";
-
+            case SECOND_SET -> "Второе множество";
         };
     }
 
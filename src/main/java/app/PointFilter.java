@@ -0,0 +1,758 @@
+package app;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Фильтр точек, заданный выражением, например {@code x > 0 && y < 3 && dist(0, 0) < 5}.
+ * Выражение разбирается один раз и собирается в цепочку MethodHandle над столбцами
+ * хранилища: каждая операция - это готовый метод, а не узел дерева, который надо
+ * интерпретировать, поэтому JIT компилирует цепочку в обычный машинный код.
+ * Проверка всех точек идёт параллельно и даёт битовую карту {@link Selection}.
+ * <p>
+ * Переменные: {@code x}, {@code y}, {@code id} и атрибуты точек
+ * {@code timestamp}, {@code weight}, {@code source}.
+ * Функции: {@code dist(cx, cy)}, {@code abs}, {@code sqrt}, {@code min}, {@code max}.
+ * Операции (по убыванию приоритета): унарные {@code - !}, {@code * /}, {@code + -},
+ * сравнения {@code < <= > >= == !=}, {@code &&}, {@code ||}
+ */
+public class PointFilter {
+    /**
+     * Минимальное кол-во точек на параллельный блок (кратно 64, чтобы блоки не делили слова карты)
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    /**
+     * Тип числового выражения: (хранилище, ячейка) -> double
+     */
+    private static final MethodType NUMBER = MethodType.methodType(double.class, PointStore.class, int.class);
+    /**
+     * Тип логического выражения: (хранилище, ячейка) -> boolean
+     */
+    private static final MethodType BOOLEAN = MethodType.methodType(boolean.class, PointStore.class, int.class);
+    /**
+     * Доступ к методам-операциям
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Исходный текст выражения
+     */
+    private final String expression;
+    /**
+     * Собранное выражение типа {@link #BOOLEAN}
+     */
+    private final MethodHandle predicate;
+
+    /**
+     * Конструктор фильтра
+     *
+     * @param expression исходный текст
+     * @param predicate  собранное выражение
+     */
+    private PointFilter(String expression, MethodHandle predicate) {
+        this.expression = expression;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Разобрать и собрать выражение
+     *
+     * @param expression текст выражения
+     * @return фильтр
+     * @throws IllegalArgumentException ошибка в выражении
+     */
+    public static PointFilter compile(String expression) {
+        Parser parser = new Parser(expression);
+        MethodHandle h = parser.parseOr();
+        if (parser.peek() != null)
+            throw parser.error("лишний текст «" + parser.peek() + "»");
+        if (h.type().returnType() != boolean.class)
+            throw new IllegalArgumentException("выражение должно быть условием, а не числом");
+        return new PointFilter(expression, h);
+    }
+
+    /**
+     * Проверить точку
+     *
+     * @param store хранилище
+     * @param index ячейка
+     * @return флаг, проходит ли точка фильтр
+     */
+    public boolean test(PointStore store, int index) {
+        try {
+            return (boolean) predicate.invokeExact(store, index);
+        } catch (Throwable t) {
+            throw new IllegalStateException("ошибка вычисления фильтра " + expression, t);
+        }
+    }
+
+    /**
+     * Проверить все точки хранилища (параллельно). Хранилище читается из нескольких потоков,
+     * поэтому передавать нужно снимок
+     *
+     * @param store снимок хранилища
+     * @return выделение точек, прошедших фильтр
+     */
+    public Selection select(PointStore store) {
+        Selection selection = new Selection(store.size(), store.getVersion());
+        if (store.size() > 0)
+            ForkJoinPool.commonPool().invoke(new ScanTask(store, selection, 0, store.size()));
+        return selection;
+    }
+
+    /**
+     * Получить исходный текст выражения
+     *
+     * @return текст выражения
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Задача проверки блока ячеек
+     */
+    private class ScanTask extends RecursiveAction {
+        /**
+         * Хранилище
+         */
+        private final PointStore store;
+        /**
+         * Заполняемое выделение
+         */
+        private final Selection selection;
+        /**
+         * Начало блока (кратно 64)
+         */
+        private final int from;
+        /**
+         * Конец блока (не включительно)
+         */
+        private final int to;
+
+        /**
+         * Конструктор задачи
+         *
+         * @param store     хранилище
+         * @param selection заполняемое выделение
+         * @param from      начало блока (кратно 64)
+         * @param to        конец блока (не включительно)
+         */
+        ScanTask(PointStore store, Selection selection, int from, int to) {
+            this.store = store;
+            this.selection = selection;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int mid = (from + (to - from) / 2) & -Long.SIZE;
+                invokeAll(new ScanTask(store, selection, from, mid), new ScanTask(store, selection, mid, to));
+                return;
+            }
+            // собираем слово целиком и записываем его один раз
+            for (int w = from; w < to; w += Long.SIZE) {
+                long word = 0;
+                int end = Math.min(to, w + Long.SIZE);
+                for (int i = w; i < end; i++)
+                    if (test(store, i))
+                        word |= 1L << i;
+                selection.setWord(w >>> 6, word);
+            }
+        }
+    }
+
+    /**
+     * Разбор выражения рекурсивным спуском: каждое правило сразу возвращает
+     * собранный MethodHandle типа {@link #NUMBER} или {@link #BOOLEAN}
+     */
+    private static class Parser {
+        /**
+         * Операции из двух символов
+         */
+        private static final List<String> TWO_CHAR_OPERATORS = List.of("&&", "||", "<=", ">=", "==", "!=");
+        /**
+         * Исходный текст
+         */
+        private final String text;
+        /**
+         * Лексемы
+         */
+        private final List<String> tokens = new ArrayList<>();
+        /**
+         * Позиции лексем в тексте
+         */
+        private final List<Integer> positions = new ArrayList<>();
+        /**
+         * Индекс текущей лексемы
+         */
+        private int pos;
+
+        /**
+         * Конструктор разбора: текст сразу разбивается на лексемы
+         *
+         * @param text текст выражения
+         */
+        Parser(String text) {
+            this.text = text;
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (Character.isDigit(c) || c == '.') {
+                    // число, в том числе с порядком: 1.5e-3
+                    while (i < text.length() && isNumberPart(text, i))
+                        i++;
+                } else if (Character.isLetter(c) || c == '_') {
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'))
+                        i++;
+                } else if (i + 1 < text.length() && TWO_CHAR_OPERATORS.contains(text.substring(i, i + 2))) {
+                    i += 2;
+                } else if ("+-*/()<>!,".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("недопустимый символ «" + c + "» в позиции " + (i + 1));
+                }
+                tokens.add(text.substring(start, i));
+                positions.add(start);
+            }
+        }
+
+        /**
+         * Проверить, продолжает ли символ число (цифры, точка, порядок со знаком)
+         *
+         * @param text текст
+         * @param i    позиция символа (не первого в числе)
+         * @return флаг, продолжает ли символ число
+         */
+        private static boolean isNumberPart(String text, int i) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '.')
+                return true;
+            char prev = text.charAt(i - 1);
+            return (c == '-' || c == '+') && (prev == 'e' || prev == 'E');
+        }
+
+        /**
+         * Получить текущую лексему
+         *
+         * @return лексема или null в конце текста
+         */
+        String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+
+        /**
+         * Пропустить лексему, если она совпадает с заданной
+         *
+         * @param token лексема
+         * @return флаг, что лексема совпала
+         */
+        boolean accept(String token) {
+            if (token.equals(peek())) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Пропустить обязательную лексему
+         *
+         * @param token лексема
+         */
+        void expect(String token) {
+            if (!accept(token))
+                throw error("ожидалось «" + token + "»");
+        }
+
+        /**
+         * Создать исключение с позицией текущей лексемы
+         *
+         * @param message сообщение
+         * @return исключение
+         */
+        IllegalArgumentException error(String message) {
+            return error(message, pos);
+        }
+
+        /**
+         * Создать исключение с позицией заданной лексемы
+         *
+         * @param message сообщение
+         * @param token   индекс лексемы
+         * @return исключение
+         */
+        IllegalArgumentException error(String message, int token) {
+            int at = token < positions.size() ? positions.get(token) + 1 : text.length() + 1;
+            return new IllegalArgumentException(message + " в позиции " + at);
+        }
+
+        /**
+         * Проверить, что операнд числовой
+         *
+         * @param h  выражение операнда
+         * @param at индекс лексемы операции, к которой относится операнд
+         * @return то же выражение
+         */
+        MethodHandle number(MethodHandle h, int at) {
+            if (h.type().returnType() != double.class)
+                throw error("ожидалось число, а не условие", at);
+            return h;
+        }
+
+        /**
+         * Проверить, что операнд логический
+         *
+         * @param h  выражение операнда
+         * @param at индекс лексемы операции, к которой относится операнд
+         * @return то же выражение
+         */
+        MethodHandle condition(MethodHandle h, int at) {
+            if (h.type().returnType() != boolean.class)
+                throw error("ожидалось условие, а не число", at);
+            return h;
+        }
+
+        /**
+         * or := and ('||' and)*
+         *
+         * @return выражение
+         */
+        MethodHandle parseOr() {
+            MethodHandle h = parseAnd();
+            for (int at = pos; accept("||"); at = pos) {
+                MethodHandle lhs = condition(h, at);
+                // правая часть вычисляется, только если левая ложна
+                h = MethodHandles.guardWithTest(lhs, constant(true), condition(parseAnd(), at));
+            }
+            return h;
+        }
+
+        /**
+         * and := not ('&&' not)*
+         *
+         * @return выражение
+         */
+        MethodHandle parseAnd() {
+            MethodHandle h = parseNot();
+            for (int at = pos; accept("&&"); at = pos) {
+                MethodHandle lhs = condition(h, at);
+                // правая часть вычисляется, только если левая истинна
+                h = MethodHandles.guardWithTest(lhs, condition(parseNot(), at), constant(false));
+            }
+            return h;
+        }
+
+        /**
+         * not := '!' not | comparison
+         *
+         * @return выражение
+         */
+        MethodHandle parseNot() {
+            int at = pos;
+            if (accept("!"))
+                return MethodHandles.filterReturnValue(condition(parseNot(), at),
+                        op("not", boolean.class, boolean.class));
+            return parseComparison();
+        }
+
+        /**
+         * comparison := sum (('<' | '<=' | '>' | '>=' | '==' | '!=') sum)?
+         *
+         * @return выражение
+         */
+        MethodHandle parseComparison() {
+            MethodHandle h = parseSum();
+            String name = switch (String.valueOf(peek())) {
+                case "<" -> "lt";
+                case "<=" -> "le";
+                case ">" -> "gt";
+                case ">=" -> "ge";
+                case "==" -> "eq";
+                case "!=" -> "ne";
+                default -> null;
+            };
+            if (name == null)
+                return h;
+            int at = pos++;
+            return combine(op(name, boolean.class, double.class, double.class), number(h, at), number(parseSum(), at));
+        }
+
+        /**
+         * sum := product (('+' | '-') product)*
+         *
+         * @return выражение
+         */
+        MethodHandle parseSum() {
+            MethodHandle h = parseProduct();
+            for (int at = pos; ; at = pos) {
+                if (accept("+"))
+                    h = combine(op("add", double.class, double.class, double.class), number(h, at),
+                            number(parseProduct(), at));
+                else if (accept("-"))
+                    h = combine(op("sub", double.class, double.class, double.class), number(h, at),
+                            number(parseProduct(), at));
+                else
+                    return h;
+            }
+        }
+
+        /**
+         * product := unary (('*' | '/') unary)*
+         *
+         * @return выражение
+         */
+        MethodHandle parseProduct() {
+            MethodHandle h = parseUnary();
+            for (int at = pos; ; at = pos) {
+                if (accept("*"))
+                    h = combine(op("mul", double.class, double.class, double.class), number(h, at),
+                            number(parseUnary(), at));
+                else if (accept("/"))
+                    h = combine(op("div", double.class, double.class, double.class), number(h, at),
+                            number(parseUnary(), at));
+                else
+                    return h;
+            }
+        }
+
+        /**
+         * unary := '-' unary | primary
+         *
+         * @return выражение
+         */
+        MethodHandle parseUnary() {
+            int at = pos;
+            if (accept("-"))
+                return MethodHandles.filterReturnValue(number(parseUnary(), at), op("neg", double.class, double.class));
+            return parsePrimary();
+        }
+
+        /**
+         * primary := число | переменная | функция '(' аргументы ')' | '(' or ')'
+         *
+         * @return выражение
+         */
+        MethodHandle parsePrimary() {
+            String token = peek();
+            if (token == null)
+                throw error("неожиданный конец выражения");
+            if (accept("(")) {
+                MethodHandle h = parseOr();
+                expect(")");
+                return h;
+            }
+            if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.') {
+                double value;
+                try {
+                    value = Double.parseDouble(token);
+                } catch (NumberFormatException e) {
+                    throw error("неверное число «" + token + "»");
+                }
+                pos++;
+                return MethodHandles.dropArguments(MethodHandles.constant(double.class, value), 0,
+                        PointStore.class, int.class);
+            }
+            if (!Character.isLetter(token.charAt(0)) && token.charAt(0) != '_')
+                throw error("неожиданная лексема «" + token + "»");
+            if (pos + 1 < tokens.size() && "(".equals(tokens.get(pos + 1))) {
+                pos++;
+                return parseCall(token);
+            }
+            // ошибка неизвестной переменной указывает на её имя
+            MethodHandle h = variable(token);
+            pos++;
+            return h;
+        }
+
+        /**
+         * Разобрать вызов функции
+         *
+         * @param name имя функции
+         * @return выражение
+         */
+        MethodHandle parseCall(String name) {
+            // ошибки вызова указывают на имя функции
+            int at = pos - 1;
+            expect("(");
+            List<MethodHandle> args = new ArrayList<>();
+            if (!accept(")")) {
+                do {
+                    args.add(number(parseOr(), at));
+                } while (accept(","));
+                expect(")");
+            }
+            return switch (name) {
+                case "dist" -> {
+                    checkArity(name, args, 2, at);
+                    // расстояние от точки до (cx, cy)
+                    MethodHandle dist = op("dist", double.class,
+                            double.class, double.class, double.class, double.class);
+                    yield combine(dist, variable("x"), variable("y"), args.get(0), args.get(1));
+                }
+                case "abs", "sqrt" -> {
+                    checkArity(name, args, 1, at);
+                    yield MethodHandles.filterReturnValue(args.get(0), op(name, double.class, double.class));
+                }
+                case "min", "max" -> {
+                    checkArity(name, args, 2, at);
+                    yield combine(op(name, double.class, double.class, double.class), args.get(0), args.get(1));
+                }
+                default -> throw error("неизвестная функция «" + name + "»", at);
+            };
+        }
+
+        /**
+         * Проверить кол-во аргументов функции
+         *
+         * @param name     имя функции
+         * @param args     аргументы
+         * @param expected ожидаемое кол-во
+         * @param at       индекс лексемы имени функции
+         */
+        void checkArity(String name, List<MethodHandle> args, int expected, int at) {
+            if (args.size() != expected)
+                throw error("функция " + name + " принимает " + expected + " аргумент(а), передано " + args.size(), at);
+        }
+
+        /**
+         * Получить выражение-переменную
+         *
+         * @param name имя переменной
+         * @return выражение типа {@link #NUMBER}
+         */
+        MethodHandle variable(String name) {
+            try {
+                MethodHandle h = switch (name) {
+                    case "x" -> LOOKUP.findVirtual(PointStore.class, "getX",
+                            MethodType.methodType(double.class, int.class));
+                    case "y" -> LOOKUP.findVirtual(PointStore.class, "getY",
+                            MethodType.methodType(double.class, int.class));
+                    case "id" -> LOOKUP.findVirtual(PointStore.class, "getId",
+                            MethodType.methodType(int.class, int.class));
+                    case "timestamp" -> LOOKUP.findVirtual(PointStore.class, "getTimestamp",
+                            MethodType.methodType(long.class, int.class));
+                    case "weight" -> LOOKUP.findVirtual(PointStore.class, "getWeight",
+                            MethodType.methodType(float.class, int.class));
+                    case "source" -> LOOKUP.findVirtual(PointStore.class, "getSourceId",
+                            MethodType.methodType(int.class, int.class));
+                    default -> throw error("неизвестная переменная «" + name + "»");
+                };
+                // int, long и float расширяются до double
+                return h.asType(NUMBER);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Получить постоянное логическое выражение
+     *
+     * @param value значение
+     * @return выражение типа {@link #BOOLEAN}
+     */
+    private static MethodHandle constant(boolean value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0,
+                PointStore.class, int.class);
+    }
+
+    /**
+     * Найти метод-операцию этого класса
+     *
+     * @param name   имя метода
+     * @param rtype  тип результата
+     * @param ptypes типы аргументов
+     * @return метод
+     */
+    private static MethodHandle op(String name, Class<?> rtype, Class<?>... ptypes) {
+        try {
+            // функции, совпадающие с функциями Math, берём оттуда
+            Class<?> owner = switch (name) {
+                case "abs", "sqrt", "min", "max" -> Math.class;
+                default -> PointFilter.class;
+            };
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(rtype, ptypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Подставить выражения в аргументы операции: результат принимает
+     * (хранилище, ячейку) и передаёт их каждому аргументу
+     *
+     * @param op   операция над значениями аргументов
+     * @param args выражения-аргументы типа {@link #NUMBER}
+     * @return выражение
+     */
+    private static MethodHandle combine(MethodHandle op, MethodHandle... args) {
+        MethodHandle h = op;
+        // после i подстановок перед очередным аргументом стоят i пар (хранилище, ячейка)
+        for (int i = 0; i < args.length; i++)
+            h = MethodHandles.collectArguments(h, 2 * i, args[i]);
+        // все пары (хранилище, ячейка) сводим к одной
+        int[] reorder = new int[2 * args.length];
+        for (int i = 0; i < reorder.length; i++)
+            reorder[i] = i & 1;
+        MethodType type = MethodType.methodType(op.type().returnType(), PointStore.class, int.class);
+        return MethodHandles.permuteArguments(h, type, reorder);
+    }
+
+    /**
+     * Логическое отрицание
+     *
+     * @param a условие
+     * @return отрицание
+     */
+    private static boolean not(boolean a) {
+        return !a;
+    }
+
+    /**
+     * Сравнение a < b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean lt(double a, double b) {
+        return a < b;
+    }
+
+    /**
+     * Сравнение a <= b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean le(double a, double b) {
+        return a <= b;
+    }
+
+    /**
+     * Сравнение a > b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean gt(double a, double b) {
+        return a > b;
+    }
+
+    /**
+     * Сравнение a >= b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean ge(double a, double b) {
+        return a >= b;
+    }
+
+    /**
+     * Сравнение a == b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean eq(double a, double b) {
+        return a == b;
+    }
+
+    /**
+     * Сравнение a != b
+     *
+     * @param a левая часть
+     * @param b правая часть
+     * @return результат сравнения
+     */
+    private static boolean ne(double a, double b) {
+        return a != b;
+    }
+
+    /**
+     * Сумма
+     *
+     * @param a первое слагаемое
+     * @param b второе слагаемое
+     * @return сумма
+     */
+    private static double add(double a, double b) {
+        return a + b;
+    }
+
+    /**
+     * Разность
+     *
+     * @param a уменьшаемое
+     * @param b вычитаемое
+     * @return разность
+     */
+    private static double sub(double a, double b) {
+        return a - b;
+    }
+
+    /**
+     * Произведение
+     *
+     * @param a первый множитель
+     * @param b второй множитель
+     * @return произведение
+     */
+    private static double mul(double a, double b) {
+        return a * b;
+    }
+
+    /**
+     * Частное
+     *
+     * @param a делимое
+     * @param b делитель
+     * @return частное
+     */
+    private static double div(double a, double b) {
+        return a / b;
+    }
+
+    /**
+     * Смена знака
+     *
+     * @param a число
+     * @return число с противоположным знаком
+     */
+    private static double neg(double a) {
+        return -a;
+    }
+
+    /**
+     * Расстояние от точки до центра
+     *
+     * @param x  координата X точки
+     * @param y  координата Y точки
+     * @param cx координата X центра
+     * @param cy координата Y центра
+     * @return расстояние
+     */
+    private static double dist(double x, double y, double cx, double cy) {
+        double dx = x - cx;
+        double dy = y - cy;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,287 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.util.Arrays;
+
+/**
+ * Журнал точек только для дописывания, рассчитанный на непрерывный поток точек.
+ * Точки пишутся в открытый хвостовой сегмент фиксированного размера; заполненный
+ * сегмент запечатывается и больше не меняется, а под хвост выделяется новый,
+ * поэтому уже записанные точки никогда не копируются (в отличие от роста ArrayList).
+ * <p>
+ * Писатель должен быть один. Запечатанные сегменты публикуются через volatile-ссылку
+ * на неизменяемый массив, поэтому отрисовка и решатель читают их из других потоков
+ * без блокировок, пока хвост продолжает принимать точки. Ненужные читателю сегменты
+ * отбрасываются {@link #trim(long)}, иначе журнал растёт вместе с потоком.
+ */
+public class PointLog {
+    /**
+     * Двоичный логарифм кол-ва точек в сегменте
+     */
+    private static final int SEGMENT_BITS = 16;
+    /**
+     * Кол-во точек в сегменте
+     */
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /**
+     * Запечатанный (неизменяемый) сегмент журнала
+     */
+    public static final class Segment {
+        /**
+         * Номер первой точки сегмента в журнале
+         */
+        private final long offset;
+        /**
+         * Координаты X
+         */
+        private final double[] xs;
+        /**
+         * Координаты Y
+         */
+        private final double[] ys;
+        /**
+         * Порядковые номера множеств
+         */
+        private final byte[] sets;
+        /**
+         * Кол-во точек
+         */
+        private final int size;
+
+        /**
+         * Конструктор сегмента
+         *
+         * @param offset номер первой точки в журнале
+         * @param xs     координаты X
+         * @param ys     координаты Y
+         * @param sets   порядковые номера множеств
+         * @param size   кол-во точек
+         */
+        private Segment(long offset, double[] xs, double[] ys, byte[] sets, int size) {
+            this.offset = offset;
+            this.xs = xs;
+            this.ys = ys;
+            this.sets = sets;
+            this.size = size;
+        }
+
+        /**
+         * Получить номер первой точки сегмента в журнале
+         *
+         * @return номер первой точки
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Получить кол-во точек
+         *
+         * @return кол-во точек
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Получить координату X точки
+         *
+         * @param index индекс точки в сегменте
+         * @return координата X
+         */
+        public double getX(int index) {
+            return xs[index];
+        }
+
+        /**
+         * Получить координату Y точки
+         *
+         * @param index индекс точки в сегменте
+         * @return координата Y
+         */
+        public double getY(int index) {
+            return ys[index];
+        }
+
+        /**
+         * Получить порядковый номер множества точки
+         *
+         * @param index индекс точки в сегменте
+         * @return порядковый номер множества
+         */
+        byte getSet(int index) {
+            return sets[index];
+        }
+
+        /**
+         * Получить множество точки
+         *
+         * @param index индекс точки в сегменте
+         * @return множество
+         */
+        public Point.PointSet getSetType(int index) {
+            return PointStore.SETS[sets[index]];
+        }
+    }
+
+    /**
+     * Запечатанные сегменты (массив не меняется, при запечатывании публикуется новый)
+     */
+    private volatile Segment[] sealed = new Segment[0];
+    /**
+     * Кол-во точек, запечатанных за всё время, включая отброшенные сегменты
+     * (может на мгновение отставать от массива сегментов)
+     */
+    private volatile long sealedSize;
+    /**
+     * Координаты X хвоста
+     */
+    private double[] tailXs;
+    /**
+     * Координаты Y хвоста
+     */
+    private double[] tailYs;
+    /**
+     * Порядковые номера множеств хвоста
+     */
+    private byte[] tailSets;
+    /**
+     * Кол-во точек в хвосте
+     */
+    private int tailSize;
+
+    /**
+     * Конструктор пустого журнала
+     */
+    public PointLog() {
+        openTail();
+    }
+
+    /**
+     * Выделить новый пустой хвост
+     */
+    private void openTail() {
+        tailXs = new double[SEGMENT_SIZE];
+        tailYs = new double[SEGMENT_SIZE];
+        tailSets = new byte[SEGMENT_SIZE];
+        tailSize = 0;
+    }
+
+    /**
+     * Дописать точку (только из потока писателя)
+     *
+     * @param x        координата X
+     * @param y        координата Y
+     * @param pointSet множество
+     */
+    public void append(double x, double y, Point.PointSet pointSet) {
+        tailXs[tailSize] = x;
+        tailYs[tailSize] = y;
+        tailSets[tailSize] = (byte) pointSet.ordinal();
+        if (++tailSize == SEGMENT_SIZE)
+            seal();
+    }
+
+    /**
+     * Дописать точки пакетом (только из потока писателя)
+     *
+     * @param xs       координаты X
+     * @param ys       координаты Y
+     * @param n        кол-во точек
+     * @param pointSet множество
+     */
+    public void append(double[] xs, double[] ys, int n, Point.PointSet pointSet) {
+        byte set = (byte) pointSet.ordinal();
+        int from = 0;
+        while (from < n) {
+            // копируем столько, сколько помещается в хвост
+            int cnt = Math.min(n - from, SEGMENT_SIZE - tailSize);
+            System.arraycopy(xs, from, tailXs, tailSize, cnt);
+            System.arraycopy(ys, from, tailYs, tailSize, cnt);
+            Arrays.fill(tailSets, tailSize, tailSize + cnt, set);
+            tailSize += cnt;
+            from += cnt;
+            if (tailSize == SEGMENT_SIZE)
+                seal();
+        }
+    }
+
+    /**
+     * Запечатать хвост, даже если он заполнен не полностью, чтобы читатели
+     * увидели его точки (только из потока писателя)
+     */
+    public void seal() {
+        if (tailSize == 0)
+            return;
+        Segment segment = new Segment(sealedSize, tailXs, tailYs, tailSets, tailSize);
+        // массив сегментов меняют и писатель, и отбрасывающий сегменты читатель
+        synchronized (this) {
+            Segment[] old = sealed;
+            Segment[] res = Arrays.copyOf(old, old.length + 1);
+            res[old.length] = segment;
+            sealed = res;
+        }
+        sealedSize += tailSize;
+        openTail();
+    }
+
+    /**
+     * Отбросить запечатанные сегменты, все точки которых имеют номера меньше заданного
+     * (из любого потока). Читатели, уже получившие массив сегментов, дочитывают его,
+     * а память сегментов освобождается вместе с последним таким массивом
+     *
+     * @param position номер первой точки журнала, которая ещё нужна
+     */
+    public synchronized void trim(long position) {
+        Segment[] old = sealed;
+        int cnt = 0;
+        while (cnt < old.length && old[cnt].offset + old[cnt].size <= position)
+            cnt++;
+        if (cnt > 0)
+            sealed = Arrays.copyOfRange(old, cnt, old.length);
+    }
+
+    /**
+     * Получить запечатанные сегменты. Массив и сегменты неизменяемы,
+     * поэтому их можно читать из любого потока
+     *
+     * @return запечатанные сегменты в порядке записи
+     */
+    public Segment[] getSealed() {
+        return sealed;
+    }
+
+    /**
+     * Получить кол-во точек, запечатанных за всё время (номер следующей запечатанной точки)
+     *
+     * @return кол-во точек
+     */
+    public long getSealedSize() {
+        return sealedSize;
+    }
+
+    /**
+     * Получить кол-во точек в открытом хвосте (только из потока писателя)
+     *
+     * @return кол-во точек
+     */
+    public int getTailSize() {
+        return tailSize;
+    }
+
+    /**
+     * Получить объём памяти журнала
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        // каждый сегмент (и хвост) - два массива double и массив byte полного размера
+        long arrays = 2 * MemoryLayout.array(SEGMENT_SIZE, Double.BYTES) + MemoryLayout.array(SEGMENT_SIZE, Byte.BYTES);
+        long segment = MemoryLayout.object(Long.BYTES + 3 * MemoryLayout.REFERENCE + Integer.BYTES);
+        Segment[] segments = sealed;
+        return MemoryLayout.object(4 * MemoryLayout.REFERENCE + Long.BYTES + Integer.BYTES) +
+                MemoryLayout.of(segments) + segments.length * (segment + arrays) + arrays;
+    }
+}
@@ -0,0 +1,886 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Хранилище точек по столбцам: координаты и множества лежат отдельно,
+ * без объектов Point и Vector2d на каждую точку.
+ * Для совместимости хранилище является списком точек: объекты Point
+ * создаются только при обращении через get().
+ * В JSON записывается так же, как список точек.
+ * <p>
+ * У каждой точки есть постоянный номер (id), не меняющийся при удалении других точек,
+ * и текущая ячейка (индекс). Удаление {@link #swapRemove(int)} переносит последнюю точку
+ * на место удалённой за O(1). Пока точки не удалялись, номер совпадает с ячейкой
+ * и таблицы номеров не создаются.
+ * <p>
+ * {@link #snapshot()} за O(1) возвращает неизменяемый снимок текущей версии:
+ * снимок делит данные с хранилищем, а хранилище копирует блоки при записи,
+ * поэтому снимок можно читать из другого потока без блокировок.
+ * <p>
+ * Необязательные атрибуты точек ({@link Point.Attribute}) лежат в отдельных
+ * столбцах {@link AttributeColumn}; столбец создаётся при первой записи атрибута,
+ * так что задачи без атрибутов не тратят на них память.
+ * <p>
+ * Реализации: {@link HeapPointStore} (массивы в куче) и
+ * {@link OffHeapPointStore} (прямые буферы вне кучи).
+ */
+@JsonSerialize(using = PointStore.Serializer.class)
+@JsonDeserialize(using = PointStore.Deserializer.class)
+public abstract class PointStore extends AbstractList<Point> implements RandomAccess {
+    /**
+     * Системное свойство, включающее хранение точек вне кучи
+     */
+    public static final String OFF_HEAP_PROPERTY = "geom.offheap";
+    /**
+     * Начальная ёмкость
+     */
+    protected static final int INITIAL_CAPACITY = 16;
+    /**
+     * Множества точек по порядковому номеру
+     */
+    protected static final Point.PointSet[] SETS = Point.PointSet.values();
+    /**
+     * Атрибуты точек по порядковому номеру
+     */
+    static final Point.Attribute[] ATTRIBUTES = Point.Attribute.values();
+
+    /**
+     * Кол-во точек
+     */
+    protected int size;
+    /**
+     * Номера точек по ячейкам (null, пока номер совпадает с ячейкой)
+     */
+    private int[] slotIds;
+    /**
+     * Ячейки точек по номерам (-1 у удалённых, null, пока номер совпадает с ячейкой)
+     */
+    private int[] idSlots;
+    /**
+     * Следующий свободный номер
+     */
+    private int nextId;
+    /**
+     * Флаг, что таблицы номеров разделены со снимком
+     */
+    private boolean idsShared;
+    /**
+     * Флаг снимка (только для чтения)
+     */
+    private boolean frozen;
+    /**
+     * Версия: у хранилища - кол-во сделанных снимков, у снимка - его номер
+     */
+    private long version;
+    /**
+     * Столбцы атрибутов по порядковому номеру атрибута (null, пока атрибут не задавали)
+     */
+    private AttributeColumn[] columns;
+
+    /**
+     * Создать пустое хранилище: вне кучи, если задано свойство {@link #OFF_HEAP_PROPERTY},
+     * иначе в куче
+     *
+     * @return хранилище
+     */
+    public static PointStore create() {
+        return Boolean.getBoolean(OFF_HEAP_PROPERTY) ? new OffHeapPointStore() : new HeapPointStore();
+    }
+
+    /**
+     * Создать хранилище с точками
+     *
+     * @param points точки
+     * @return хранилище
+     */
+    public static PointStore create(Collection<Point> points) {
+        PointStore store = create();
+        store.ensureCapacity(points.size());
+        for (Point p : points)
+            store.add(p);
+        return store;
+    }
+
+    /**
+     * Обеспечить ёмкость не меньше заданной
+     *
+     * @param capacity требуемая ёмкость
+     */
+    public abstract void ensureCapacity(int capacity);
+
+    /**
+     * Записать точку в ячейку
+     *
+     * @param index    индекс
+     * @param x        координата X
+     * @param y        координата Y
+     * @param pointSet порядковый номер множества
+     */
+    protected abstract void write(int index, double x, double y, byte pointSet);
+
+    /**
+     * Сдвинуть точки с индексами больше заданного на одну позицию влево
+     *
+     * @param index индекс удаляемой точки
+     */
+    protected abstract void shiftLeft(int index);
+
+    /**
+     * Создать объект с теми же данными, разделив их с текущим хранилищем
+     * (после этого хранилище копирует данные при записи)
+     *
+     * @return объект с разделёнными данными
+     */
+    protected abstract PointStore share();
+
+    /**
+     * Получить координату X точки
+     *
+     * @param index индекс
+     * @return координата X
+     */
+    public abstract double getX(int index);
+
+    /**
+     * Получить координату Y точки
+     *
+     * @param index индекс
+     * @return координата Y
+     */
+    public abstract double getY(int index);
+
+    /**
+     * Получить порядковый номер множества точки
+     *
+     * @param index индекс
+     * @return порядковый номер множества
+     */
+    protected abstract byte getSet(int index);
+
+    /**
+     * Получить объём памяти под точки в куче
+     *
+     * @return объём, байт
+     */
+    public abstract long getHeapBytes();
+
+    /**
+     * Получить объём памяти под точки вне кучи
+     *
+     * @return объём, байт
+     */
+    public abstract long getOffHeapBytes();
+
+    /**
+     * Добавить точку
+     *
+     * @param x        координата X
+     * @param y        координата Y
+     * @param pointSet множество
+     * @return индекс добавленной точки
+     */
+    public int add(double x, double y, Point.PointSet pointSet) {
+        checkWritable();
+        ensureCapacity(size + 1);
+        write(size, x, y, (byte) pointSet.ordinal());
+        if (slotIds != null) {
+            if (size == slotIds.length)
+                slotIds = Arrays.copyOf(slotIds, size * 2);
+            if (nextId == idSlots.length)
+                idSlots = Arrays.copyOf(idSlots, nextId * 2);
+            slotIds[size] = nextId;
+            idSlots[nextId] = size;
+        }
+        resetAttributes(size);
+        nextId++;
+        modCount++;
+        return size++;
+    }
+
+    /**
+     * Вернуть удалённую точку под её прежним номером (точка встаёт в конец)
+     *
+     * @param x        координата X
+     * @param y        координата Y
+     * @param pointSet множество
+     * @param id       номер точки
+     * @return индекс возвращённой точки
+     */
+    public int restore(double x, double y, Point.PointSet pointSet, int id) {
+        checkWritable();
+        if (id < 0 || getSlot(id) >= 0)
+            throw new IllegalArgumentException("Точка с номером " + id + " уже есть в хранилище");
+        materializeIds();
+        ensureCapacity(size + 1);
+        write(size, x, y, (byte) pointSet.ordinal());
+        if (size == slotIds.length)
+            slotIds = Arrays.copyOf(slotIds, size * 2);
+        if (id >= idSlots.length)
+            idSlots = Arrays.copyOf(idSlots, Math.max(id + 1, idSlots.length * 2));
+        // номера между прежним концом и возвращённым пока свободны
+        if (id >= nextId) {
+            Arrays.fill(idSlots, nextId, id, -1);
+            nextId = id + 1;
+        }
+        slotIds[size] = id;
+        idSlots[id] = size;
+        resetAttributes(size);
+        modCount++;
+        return size++;
+    }
+
+    /**
+     * Добавить точку
+     *
+     * @param point точка
+     * @return флаг, изменился ли список
+     */
+    @Override
+    public boolean add(Point point) {
+        add(point.pos.x, point.pos.y, point.pointSet);
+        return true;
+    }
+
+    /**
+     * Получить точку (создаётся новый объект)
+     *
+     * @param index индекс
+     * @return точка
+     */
+    @Override
+    public Point get(int index) {
+        checkIndex(index);
+        return new Point(new Vector2d(getX(index), getY(index)), getSetType(index));
+    }
+
+    /**
+     * Заменить точку
+     *
+     * @param index индекс
+     * @param point новая точка
+     * @return старая точка
+     */
+    @Override
+    public Point set(int index, Point point) {
+        checkWritable();
+        Point old = get(index);
+        write(index, point.pos.x, point.pos.y, (byte) point.pointSet.ordinal());
+        return old;
+    }
+
+    /**
+     * Перенести точку в другое множество
+     *
+     * @param index    индекс
+     * @param pointSet новое множество
+     */
+    public void setSetType(int index, Point.PointSet pointSet) {
+        checkWritable();
+        checkIndex(index);
+        write(index, getX(index), getY(index), (byte) pointSet.ordinal());
+    }
+
+    /**
+     * Удалить точку со сдвигом последующих
+     *
+     * @param index индекс
+     * @return удалённая точка
+     */
+    @Override
+    public Point remove(int index) {
+        checkWritable();
+        Point old = get(index);
+        materializeIds();
+        idSlots[slotIds[index]] = -1;
+        shiftLeft(index);
+        if (columns != null)
+            for (AttributeColumn column : columns)
+                if (column != null)
+                    for (int i = index; i < size - 1; i++)
+                        column.setBits(i, column.getBits(i + 1));
+        // у сдвинутых точек меняются ячейки
+        for (int i = index; i < size - 1; i++) {
+            slotIds[i] = slotIds[i + 1];
+            idSlots[slotIds[i]] = i;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Удалить точку за O(1), перенеся на её место последнюю
+     *
+     * @param index ячейка удаляемой точки
+     * @return прежняя ячейка перенесённой точки (совпадает с index, если удалялась последняя)
+     */
+    public int swapRemove(int index) {
+        checkWritable();
+        checkIndex(index);
+        materializeIds();
+        int last = size - 1;
+        idSlots[slotIds[index]] = -1;
+        if (index != last) {
+            write(index, getX(last), getY(last), getSet(last));
+            if (columns != null)
+                for (AttributeColumn column : columns)
+                    if (column != null)
+                        column.setBits(index, column.getBits(last));
+            slotIds[index] = slotIds[last];
+            idSlots[slotIds[index]] = index;
+        }
+        size--;
+        modCount++;
+        return last;
+    }
+
+    /**
+     * Переставить точки: в ячейку i переходит точка из ячейки order[i].
+     * Номера точек сохраняются, меняются только их ячейки
+     *
+     * @param order новый порядок ячеек (перестановка 0..size-1)
+     */
+    public void reorder(int[] order) {
+        reorder(order, true);
+    }
+
+    /**
+     * Переставить точки: в ячейку i переходит точка из ячейки order[i].
+     * Если номера ещё совпадают с ячейками и сохранять их не нужно (например, сразу
+     * после загрузки, когда на номера никто не ссылается), таблицы номеров не создаются
+     * и точки получают номера своих новых ячеек
+     *
+     * @param order   новый порядок ячеек (перестановка 0..size-1)
+     * @param keepIds флаг, нужно ли сохранить номера точек
+     */
+    public void reorder(int[] order, boolean keepIds) {
+        checkWritable();
+        if (order.length != size)
+            throw new IllegalArgumentException("Порядок из " + order.length + " ячеек, а точек " + size);
+        // собираем столбцы в новом порядке, затем записываем их обратно по порядку
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        byte[] sets = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            xs[i] = getX(from);
+            ys[i] = getY(from);
+            sets[i] = getSet(from);
+        }
+        for (int i = 0; i < size; i++)
+            write(i, xs[i], ys[i], sets[i]);
+        if (columns != null) {
+            long[] bits = new long[size];
+            for (AttributeColumn column : columns) {
+                if (column == null)
+                    continue;
+                for (int i = 0; i < size; i++)
+                    bits[i] = column.getBits(order[i]);
+                for (int i = 0; i < size; i++)
+                    column.setBits(i, bits[i]);
+            }
+        }
+        // таблиц номеров нет: номера по-прежнему совпадают с ячейками
+        if (!keepIds && slotIds == null) {
+            modCount++;
+            return;
+        }
+        materializeIds();
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++)
+            ids[i] = slotIds[order[i]];
+        System.arraycopy(ids, 0, slotIds, 0, size);
+        for (int i = 0; i < size; i++)
+            idSlots[ids[i]] = i;
+        modCount++;
+    }
+
+    /**
+     * Создать таблицы номеров, если номера ещё совпадали с ячейками
+     */
+    private void materializeIds() {
+        // таблицы, которые видит снимок, копируем перед изменением
+        if (idsShared) {
+            slotIds = slotIds.clone();
+            idSlots = idSlots.clone();
+            idsShared = false;
+        }
+        if (slotIds != null)
+            return;
+        slotIds = new int[Math.max(INITIAL_CAPACITY, size)];
+        idSlots = new int[Math.max(INITIAL_CAPACITY, nextId)];
+        for (int i = 0; i < size; i++)
+            slotIds[i] = idSlots[i] = i;
+    }
+
+    /**
+     * Получить номер точки
+     *
+     * @param index ячейка
+     * @return номер
+     */
+    public int getId(int index) {
+        return slotIds == null ? index : slotIds[index];
+    }
+
+    /**
+     * Получить ячейку точки по номеру
+     *
+     * @param id номер
+     * @return ячейка или -1, если точки с таким номером нет
+     */
+    public int getSlot(int id) {
+        if (id < 0 || id >= nextId)
+            return -1;
+        return idSlots == null ? id : idSlots[id];
+    }
+
+    /**
+     * Записать значения по умолчанию во все созданные столбцы атрибутов
+     *
+     * @param index ячейка новой точки
+     */
+    private void resetAttributes(int index) {
+        if (columns == null)
+            return;
+        for (AttributeColumn column : columns) {
+            if (column == null)
+                continue;
+            column.ensureCapacity(index + 1);
+            column.setBits(index, column.attribute.defaultBits);
+        }
+    }
+
+    /**
+     * Получить столбец атрибута, создав его при первом обращении
+     * (у уже добавленных точек атрибут получает значение по умолчанию)
+     *
+     * @param attribute атрибут
+     * @return столбец
+     */
+    private AttributeColumn column(Point.Attribute attribute) {
+        if (columns == null)
+            columns = new AttributeColumn[ATTRIBUTES.length];
+        AttributeColumn column = columns[attribute.ordinal()];
+        if (column == null) {
+            column = AttributeColumn.create(attribute);
+            column.ensureCapacity(Math.max(INITIAL_CAPACITY, size));
+            if (attribute.defaultBits != 0)
+                for (int i = 0; i < size; i++)
+                    column.setBits(i, attribute.defaultBits);
+            columns[attribute.ordinal()] = column;
+        }
+        return column;
+    }
+
+    /**
+     * Проверить, задавался ли атрибут (создан ли его столбец)
+     *
+     * @param attribute атрибут
+     * @return флаг, есть ли столбец атрибута
+     */
+    public boolean hasAttribute(Point.Attribute attribute) {
+        return columns != null && columns[attribute.ordinal()] != null;
+    }
+
+    /**
+     * Получить биты значения атрибута точки
+     *
+     * @param index     индекс
+     * @param attribute атрибут
+     * @return биты значения (значение по умолчанию, если столбца нет)
+     */
+    long getAttributeBits(int index, Point.Attribute attribute) {
+        if (!hasAttribute(attribute))
+            return attribute.defaultBits;
+        return columns[attribute.ordinal()].getBits(index);
+    }
+
+    /**
+     * Записать биты значения атрибута точки
+     *
+     * @param index     индекс
+     * @param attribute атрибут
+     * @param bits      биты значения
+     */
+    void setAttributeBits(int index, Point.Attribute attribute, long bits) {
+        checkWritable();
+        checkIndex(index);
+        column(attribute).setBits(index, bits);
+    }
+
+    /**
+     * Получить отметку времени точки
+     *
+     * @param index индекс
+     * @return отметка времени (0, если не задавалась)
+     */
+    public long getTimestamp(int index) {
+        return getAttributeBits(index, Point.Attribute.TIMESTAMP);
+    }
+
+    /**
+     * Задать отметку времени точки
+     *
+     * @param index     индекс
+     * @param timestamp отметка времени
+     */
+    public void setTimestamp(int index, long timestamp) {
+        setAttributeBits(index, Point.Attribute.TIMESTAMP, timestamp);
+    }
+
+    /**
+     * Получить вес точки
+     *
+     * @param index индекс
+     * @return вес (1, если не задавался)
+     */
+    public float getWeight(int index) {
+        return Float.intBitsToFloat((int) getAttributeBits(index, Point.Attribute.WEIGHT));
+    }
+
+    /**
+     * Задать вес точки
+     *
+     * @param index  индекс
+     * @param weight вес
+     */
+    public void setWeight(int index, float weight) {
+        setAttributeBits(index, Point.Attribute.WEIGHT, Float.floatToRawIntBits(weight));
+    }
+
+    /**
+     * Получить номер источника точки
+     *
+     * @param index индекс
+     * @return номер источника (0, если не задавался)
+     */
+    public int getSourceId(int index) {
+        return (int) getAttributeBits(index, Point.Attribute.SOURCE);
+    }
+
+    /**
+     * Задать номер источника точки
+     *
+     * @param index    индекс
+     * @param sourceId номер источника
+     */
+    public void setSourceId(int index, int sourceId) {
+        setAttributeBits(index, Point.Attribute.SOURCE, sourceId);
+    }
+
+    /**
+     * Получить объём памяти под столбцы атрибутов (они всегда в куче)
+     *
+     * @return объём, байт
+     */
+    protected long getAttributeBytes() {
+        long bytes = 0;
+        if (columns != null)
+            for (AttributeColumn column : columns)
+                if (column != null)
+                    bytes += column.getBytes();
+        return bytes;
+    }
+
+    /**
+     * Получить объём памяти под таблицы номеров (они всегда в куче)
+     *
+     * @return объём, байт
+     */
+    protected long getIdBytes() {
+        return MemoryLayout.of(slotIds) + MemoryLayout.of(idSlots);
+    }
+
+    /**
+     * Очистить хранилище
+     */
+    @Override
+    public void clear() {
+        checkWritable();
+        size = 0;
+        nextId = 0;
+        slotIds = null;
+        idSlots = null;
+        idsShared = false;
+        columns = null;
+        modCount++;
+    }
+
+    /**
+     * Сделать неизменяемый снимок текущей версии за O(1)
+     *
+     * @return снимок (сам объект, если это уже снимок)
+     */
+    public PointStore snapshot() {
+        if (frozen)
+            return this;
+        PointStore snapshot = share();
+        snapshot.size = size;
+        snapshot.nextId = nextId;
+        // дописывание в таблицы номеров идёт за пределами снимка, а удаление их копирует
+        snapshot.slotIds = slotIds;
+        snapshot.idSlots = idSlots;
+        idsShared = slotIds != null;
+        if (columns != null) {
+            snapshot.columns = new AttributeColumn[columns.length];
+            for (int a = 0; a < columns.length; a++)
+                if (columns[a] != null)
+                    snapshot.columns[a] = columns[a].share(size);
+        }
+        snapshot.frozen = true;
+        snapshot.version = ++version;
+        return snapshot;
+    }
+
+    /**
+     * Проверить, является ли объект снимком
+     *
+     * @return флаг, является ли объект снимком
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    /**
+     * Получить версию
+     *
+     * @return у хранилища - кол-во сделанных снимков, у снимка - его номер
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Проверить, что хранилище можно изменять
+     */
+    protected void checkWritable() {
+        if (frozen)
+            throw new UnsupportedOperationException("снимок хранилища точек только для чтения");
+    }
+
+    /**
+     * Получить кол-во точек
+     *
+     * @return кол-во точек
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверить индекс
+     *
+     * @param index индекс
+     */
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("индекс " + index + ", размер " + size);
+    }
+
+    /**
+     * Получить множество точки
+     *
+     * @param index индекс
+     * @return множество
+     */
+    public Point.PointSet getSetType(int index) {
+        return SETS[getSet(index)];
+    }
+
+    /**
+     * Получить отчёт о занимаемой памяти (в куче и вне кучи отдельно)
+     *
+     * @return строка отчёта
+     */
+    public String getFootprint() {
+        return size + " точек: куча " + String.format("%.2f", getHeapBytes() / 1048576.0).replace(",", ".") +
+                " МБ, вне кучи " + String.format("%.2f", getOffHeapBytes() / 1048576.0).replace(",", ".") + " МБ";
+    }
+
+    /**
+     * Записать точки в двоичном виде по столбцам: кол-во точек, маска атрибутов,
+     * все X, все Y, все множества, затем столбцы заданных атрибутов.
+     * Номера точек не записываются (как и в JSON)
+     *
+     * @param out поток
+     * @throws IOException ошибка записи
+     */
+    public void writeBinary(DataOutputStream out) throws IOException {
+        int mask = 0;
+        for (Point.Attribute attribute : ATTRIBUTES)
+            if (hasAttribute(attribute))
+                mask |= 1 << attribute.ordinal();
+        out.writeInt(size);
+        out.writeByte(mask);
+        for (int i = 0; i < size; i++)
+            out.writeDouble(getX(i));
+        for (int i = 0; i < size; i++)
+            out.writeDouble(getY(i));
+        for (int i = 0; i < size; i++)
+            out.writeByte(getSet(i));
+        for (Point.Attribute attribute : ATTRIBUTES) {
+            if (!hasAttribute(attribute))
+                continue;
+            for (int i = 0; i < size; i++) {
+                long bits = getAttributeBits(i, attribute);
+                switch (attribute.bytes) {
+                    case Long.BYTES -> out.writeLong(bits);
+                    default -> out.writeInt((int) bits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Прочитать точки, записанные {@link #writeBinary(DataOutputStream)}
+     *
+     * @param in поток
+     * @return хранилище
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static PointStore readBinary(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        int mask = in.readUnsignedByte();
+        if (n < 0 || mask >>> ATTRIBUTES.length != 0)
+            throw new IOException("повреждён заголовок точек: " + n + " точек, маска атрибутов " + mask);
+        double[] xs = new double[n];
+        for (int i = 0; i < n; i++)
+            xs[i] = in.readDouble();
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++)
+            ys[i] = in.readDouble();
+        PointStore store = create();
+        store.ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            int set = in.readUnsignedByte();
+            if (set >= SETS.length)
+                throw new IOException("неизвестное множество " + set + " у точки " + i);
+            store.add(xs[i], ys[i], SETS[set]);
+        }
+        for (Point.Attribute attribute : ATTRIBUTES) {
+            if ((mask & (1 << attribute.ordinal())) == 0)
+                continue;
+            AttributeColumn column = store.column(attribute);
+            for (int i = 0; i < n; i++)
+                column.setBits(i, attribute.bytes == Long.BYTES ? in.readLong() : in.readInt());
+        }
+        return store;
+    }
+
+    /**
+     * Запись хранилища в JSON в виде списка точек
+     */
+    public static class Serializer extends StdSerializer<PointStore> {
+        /**
+         * Конструктор
+         */
+        public Serializer() {
+            super(PointStore.class);
+        }
+
+        @Override
+        public void serialize(PointStore store, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < store.size; i++) {
+                gen.writeStartObject();
+                gen.writeObjectFieldStart("pos");
+                gen.writeNumberField("x", store.getX(i));
+                gen.writeNumberField("y", store.getY(i));
+                gen.writeEndObject();
+                gen.writeStringField("setType", store.getSetType(i).name());
+                // атрибуты пишем, только если их столбцы созданы
+                if (store.hasAttribute(Point.Attribute.TIMESTAMP))
+                    gen.writeNumberField(Point.Attribute.TIMESTAMP.field, store.getTimestamp(i));
+                if (store.hasAttribute(Point.Attribute.WEIGHT))
+                    gen.writeNumberField(Point.Attribute.WEIGHT.field, store.getWeight(i));
+                if (store.hasAttribute(Point.Attribute.SOURCE))
+                    gen.writeNumberField(Point.Attribute.SOURCE.field, store.getSourceId(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * Чтение хранилища из JSON-списка точек без создания объектов Point
+     */
+    public static class Deserializer extends StdDeserializer<PointStore> {
+        /**
+         * Конструктор
+         */
+        public Deserializer() {
+            super(PointStore.class);
+        }
+
+        @Override
+        public PointStore deserialize(JsonParser parser, DeserializationContext ctx) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY)
+                return (PointStore) ctx.handleUnexpectedToken(PointStore.class, parser);
+            PointStore store = PointStore.create();
+            // биты атрибутов текущей точки
+            long[] bits = new long[ATTRIBUTES.length];
+            // перебираем точки
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                double x = 0, y = 0;
+                Point.PointSet pointSet = Point.PointSet.FIRST_SET;
+                int mask = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("pos".equals(field)) {
+                        // читаем координаты
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String coord = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("x".equals(coord))
+                                x = parser.getDoubleValue();
+                            else if ("y".equals(coord))
+                                y = parser.getDoubleValue();
+                            else
+                                parser.skipChildren();
+                        }
+                    } else if ("setType".equals(field)) {
+                        pointSet = Point.PointSet.valueOf(parser.getText());
+                    } else if (Point.Attribute.TIMESTAMP.field.equals(field)) {
+                        bits[Point.Attribute.TIMESTAMP.ordinal()] = parser.getLongValue();
+                        mask |= 1 << Point.Attribute.TIMESTAMP.ordinal();
+                    } else if (Point.Attribute.WEIGHT.field.equals(field)) {
+                        bits[Point.Attribute.WEIGHT.ordinal()] = Float.floatToRawIntBits(parser.getFloatValue());
+                        mask |= 1 << Point.Attribute.WEIGHT.ordinal();
+                    } else if (Point.Attribute.SOURCE.field.equals(field)) {
+                        bits[Point.Attribute.SOURCE.ordinal()] = parser.getIntValue();
+                        mask |= 1 << Point.Attribute.SOURCE.ordinal();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                int index = store.add(x, y, pointSet);
+                for (Point.Attribute attribute : ATTRIBUTES)
+                    if ((mask & (1 << attribute.ordinal())) != 0)
+                        store.setAttributeBits(index, attribute, bits[attribute.ordinal()]);
+            }
+            return store;
+        }
+    }
+}
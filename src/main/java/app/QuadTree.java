@@ -0,0 +1,856 @@
+package app;
+
+import misc.IntArrayList;
+import misc.MemoryLayout;
+import misc.Vector2d;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Квадродерево областей над точками задачи. Каждый узел покрывает квадрат
+ * плоскости и хранит кол-во точек поддерева и их габаритный прямоугольник,
+ * поэтому запросы по прямоугольнику и подсчёт плотности не перебирают все точки.
+ * Листья хранят индексы точек в хранилище {@link PointStore}.
+ */
+public class QuadTree {
+    /**
+     * Максимальное кол-во точек в листе (кроме листов максимальной глубины)
+     */
+    public static final int LEAF_SIZE = 32;
+    /**
+     * Максимальная глубина (совпадающие точки дальше не делятся)
+     */
+    public static final int MAX_DEPTH = 24;
+    /**
+     * Размер поддерева, начиная с которого построение распараллеливается
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Узел дерева
+     */
+    public static class Node {
+        /**
+         * Минимальная X-координата квадрата узла
+         */
+        private final double x0;
+        /**
+         * Минимальная Y-координата квадрата узла
+         */
+        private final double y0;
+        /**
+         * Сторона квадрата узла
+         */
+        private final double side;
+        /**
+         * Глубина узла (растёт, когда корень расширяется)
+         */
+        private int depth;
+        /**
+         * Потомки по четвертям (null у листа): 0 - левая нижняя, 1 - правая нижняя,
+         * 2 - левая верхняя, 3 - правая верхняя
+         */
+        private Node[] children;
+        /**
+         * Индексы точек листа
+         */
+        private int[] items;
+        /**
+         * Кол-во точек в поддереве
+         */
+        private int count;
+        /**
+         * Габарит точек поддерева (у пустого узла минимум больше максимума)
+         */
+        private double minX, minY, maxX, maxY;
+
+        /**
+         * Конструктор узла
+         *
+         * @param x0    минимальная X-координата квадрата
+         * @param y0    минимальная Y-координата квадрата
+         * @param side  сторона квадрата
+         * @param depth глубина
+         */
+        private Node(double x0, double y0, double side, int depth) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.side = side;
+            this.depth = depth;
+            resetBounds();
+        }
+
+        /**
+         * Сбросить габарит в пустой
+         */
+        private void resetBounds() {
+            minX = minY = Double.MAX_VALUE;
+            maxX = maxY = -Double.MAX_VALUE;
+        }
+
+        /**
+         * Расширить габарит точкой
+         *
+         * @param x координата X
+         * @param y координата Y
+         */
+        private void extend(double x, double y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        /**
+         * Расширить габарит габаритом потомка
+         *
+         * @param child потомок
+         */
+        private void extend(Node child) {
+            if (child.count == 0)
+                return;
+            minX = Math.min(minX, child.minX);
+            minY = Math.min(minY, child.minY);
+            maxX = Math.max(maxX, child.maxX);
+            maxY = Math.max(maxY, child.maxY);
+        }
+
+        /**
+         * Номер четверти, в которую попадает точка
+         *
+         * @param x координата X
+         * @param y координата Y
+         * @return номер четверти
+         */
+        private int quadrant(double x, double y) {
+            // сравниваем с границами самих потомков, чтобы не расходиться с ними из-за округления
+            return (x >= children[1].x0 ? 1 : 0) | (y >= children[2].y0 ? 2 : 0);
+        }
+
+        /**
+         * Проверить, является ли узел листом
+         *
+         * @return флаг, является ли узел листом
+         */
+        public boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * Получить потомка
+         *
+         * @param quadrant номер четверти
+         * @return потомок
+         */
+        public Node getChild(int quadrant) {
+            return children[quadrant];
+        }
+
+        /**
+         * Получить кол-во точек в поддереве
+         *
+         * @return кол-во точек
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Получить глубину узла
+         *
+         * @return глубина
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Получить сторону квадрата узла
+         *
+         * @return сторона квадрата
+         */
+        public double getSide() {
+            return side;
+        }
+
+        /**
+         * Получить минимальные координаты габарита точек
+         *
+         * @return минимальные координаты
+         */
+        public Vector2d getMin() {
+            return new Vector2d(minX, minY);
+        }
+
+        /**
+         * Получить максимальные координаты габарита точек
+         *
+         * @return максимальные координаты
+         */
+        public Vector2d getMax() {
+            return new Vector2d(maxX, maxY);
+        }
+
+        /**
+         * Проверить, пересекает ли габарит точек прямоугольник
+         *
+         * @param min минимальные координаты прямоугольника
+         * @param max максимальные координаты прямоугольника
+         * @return флаг пересечения
+         */
+        private boolean intersects(Vector2d min, Vector2d max) {
+            return count > 0 && minX <= max.x && maxX >= min.x && minY <= max.y && maxY >= min.y;
+        }
+
+        /**
+         * Проверить, лежит ли габарит точек внутри прямоугольника
+         *
+         * @param min минимальные координаты прямоугольника
+         * @param max максимальные координаты прямоугольника
+         * @return флаг вложенности
+         */
+        private boolean inside(Vector2d min, Vector2d max) {
+            return minX >= min.x && maxX <= max.x && minY >= min.y && maxY <= max.y;
+        }
+    }
+
+    /**
+     * Обработчик ячейки плотности
+     */
+    @FunctionalInterface
+    public interface CellConsumer {
+        /**
+         * Обработать узел как одну ячейку
+         *
+         * @param node узел
+         */
+        void accept(Node node);
+    }
+
+    /**
+     * Хранилище точек
+     */
+    private final PointStore store;
+    /**
+     * Корень дерева
+     */
+    private Node root;
+
+    /**
+     * Конструктор пустого дерева
+     *
+     * @param store хранилище точек
+     */
+    public QuadTree(PointStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Построить дерево по всем точкам хранилища
+     * (большие поддеревья строятся параллельно)
+     *
+     * @param store хранилище точек
+     * @return дерево
+     */
+    public static QuadTree build(PointStore store) {
+        QuadTree tree = new QuadTree(store);
+        tree.rebuild();
+        return tree;
+    }
+
+    /**
+     * Перестроить дерево по всем точкам хранилища
+     */
+    public void rebuild() {
+        root = null;
+        int n = store.size();
+        if (n == 0)
+            return;
+        // корневой квадрат накрывает габарит всех точек
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        int[] arr = new int[n];
+        for (int i = 0; i < n; i++) {
+            arr[i] = i;
+            minX = Math.min(minX, store.getX(i));
+            minY = Math.min(minY, store.getY(i));
+            maxX = Math.max(maxX, store.getX(i));
+            maxY = Math.max(maxY, store.getY(i));
+        }
+        root = new Node(minX, minY, rootSide(maxX - minX, maxY - minY), 0);
+        ForkJoinPool.commonPool().invoke(new BuildTask(store, root, arr, 0, n));
+    }
+
+    /**
+     * Сторона корневого квадрата по размерам габарита
+     * (с запасом, чтобы максимальные точки попали внутрь полуоткрытого квадрата)
+     *
+     * @param width  ширина габарита
+     * @param height высота габарита
+     * @return сторона квадрата
+     */
+    private static double rootSide(double width, double height) {
+        double side = Math.max(width, height);
+        return side > 0 ? side * (1 + 1e-9) + Double.MIN_NORMAL : 1;
+    }
+
+    /**
+     * Задача построения поддерева
+     */
+    private static class BuildTask extends RecursiveTask<Void> {
+        /**
+         * Хранилище точек
+         */
+        private final PointStore store;
+        /**
+         * Заполняемый узел
+         */
+        private final Node node;
+        /**
+         * Массив индексов точек
+         */
+        private final int[] arr;
+        /**
+         * Начало диапазона
+         */
+        private final int from;
+        /**
+         * Конец диапазона (не включительно)
+         */
+        private final int to;
+
+        /**
+         * Конструктор задачи
+         *
+         * @param store хранилище точек
+         * @param node  заполняемый узел
+         * @param arr   массив индексов точек
+         * @param from  начало диапазона
+         * @param to    конец диапазона (не включительно)
+         */
+        BuildTask(PointStore store, Node node, int[] arr, int from, int to) {
+            this.store = store;
+            this.node = node;
+            this.arr = arr;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Void compute() {
+            node.count = to - from;
+            // маленький диапазон превращаем в лист
+            if (to - from <= LEAF_SIZE || node.depth >= MAX_DEPTH) {
+                node.items = Arrays.copyOfRange(arr, from, Math.max(to, from + LEAF_SIZE + 1));
+                for (int i = from; i < to; i++)
+                    node.extend(store.getX(arr[i]), store.getY(arr[i]));
+                return null;
+            }
+            // раскладываем индексы по четвертям: сначала по X, затем каждую половину по Y
+            double half = node.side / 2;
+            int midX = partition(store, arr, from, to, true, node.x0 + half);
+            int midY0 = partition(store, arr, from, midX, false, node.y0 + half);
+            int midY1 = partition(store, arr, midX, to, false, node.y0 + half);
+            int[] bounds = {from, midY0, midX, midY1, to};
+            // порядок диапазонов: левая нижняя, левая верхняя, правая нижняя, правая верхняя
+            int[] quadrants = {0, 2, 1, 3};
+            node.children = new Node[4];
+            BuildTask[] tasks = new BuildTask[4];
+            for (int i = 0; i < 4; i++) {
+                int q = quadrants[i];
+                Node child = new Node(node.x0 + ((q & 1) != 0 ? half : 0), node.y0 + ((q & 2) != 0 ? half : 0),
+                        half, node.depth + 1);
+                node.children[q] = child;
+                tasks[i] = new BuildTask(store, child, arr, bounds[i], bounds[i + 1]);
+            }
+            if (to - from >= PARALLEL_THRESHOLD) {
+                invokeAll(tasks);
+            } else {
+                for (BuildTask task : tasks)
+                    task.compute();
+            }
+            for (Node child : node.children)
+                node.extend(child);
+            return null;
+        }
+    }
+
+    /**
+     * Разделить диапазон индексов: сначала точки с координатой меньше порога
+     *
+     * @param store     хранилище точек
+     * @param arr       массив индексов точек
+     * @param from      начало диапазона
+     * @param to        конец диапазона (не включительно)
+     * @param byX       флаг, сравнивать ли X (иначе Y)
+     * @param threshold порог
+     * @return индекс первой точки с координатой не меньше порога
+     */
+    private static int partition(PointStore store, int[] arr, int from, int to, boolean byX, double threshold) {
+        int i = from;
+        for (int j = from; j < to; j++) {
+            double v = byX ? store.getX(arr[j]) : store.getY(arr[j]);
+            if (v < threshold) {
+                int t = arr[i];
+                arr[i] = arr[j];
+                arr[j] = t;
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Добавить в дерево точку хранилища
+     *
+     * @param index индекс точки в хранилище
+     */
+    public void insert(int index) {
+        double x = store.getX(index);
+        double y = store.getY(index);
+        if (root == null)
+            root = new Node(x, y, 1, 0);
+        // пока точка вне корневого квадрата, удваиваем его в её сторону
+        while (x < root.x0 || y < root.y0 || x >= root.x0 + root.side || y >= root.y0 + root.side)
+            grow(x, y);
+        Node node = root;
+        while (!node.isLeaf()) {
+            node.count++;
+            node.extend(x, y);
+            node = node.children[node.quadrant(x, y)];
+        }
+        if (node.items == null)
+            node.items = new int[LEAF_SIZE + 1];
+        else if (node.count == node.items.length)
+            node.items = Arrays.copyOf(node.items, node.count * 2);
+        node.items[node.count++] = index;
+        node.extend(x, y);
+        // переполненный лист делим на четверти
+        if (node.count > LEAF_SIZE && node.depth < MAX_DEPTH)
+            split(node);
+    }
+
+    /**
+     * Удвоить корневой квадрат в сторону точки
+     *
+     * @param x координата X точки
+     * @param y координата Y точки
+     */
+    private void grow(double x, double y) {
+        Node old = root;
+        boolean left = x < old.x0;
+        boolean down = y < old.y0;
+        Node top = new Node(left ? old.x0 - old.side : old.x0, down ? old.y0 - old.side : old.y0, old.side * 2, 0);
+        top.children = new Node[4];
+        // старый корень становится четвертью нового
+        int q = (left ? 1 : 0) | (down ? 2 : 0);
+        // границы потомков берём от старого корня, чтобы его точки остались в своей четверти
+        double[] xs = {top.x0, left ? old.x0 : old.x0 + old.side};
+        double[] ys = {top.y0, down ? old.y0 : old.y0 + old.side};
+        for (int i = 0; i < 4; i++)
+            top.children[i] = i == q ? old : new Node(xs[i & 1], ys[i >> 1], old.side, 1);
+        top.count = old.count;
+        top.extend(old);
+        shiftDepth(old);
+        root = top;
+    }
+
+    /**
+     * Увеличить глубину узлов поддерева на единицу
+     *
+     * @param node узел
+     */
+    private static void shiftDepth(Node node) {
+        node.depth++;
+        if (!node.isLeaf())
+            for (Node child : node.children)
+                shiftDepth(child);
+    }
+
+    /**
+     * Разделить лист на четыре потомка
+     *
+     * @param node лист
+     */
+    private void split(Node node) {
+        double half = node.side / 2;
+        node.children = new Node[4];
+        for (int q = 0; q < 4; q++)
+            node.children[q] = new Node(node.x0 + ((q & 1) != 0 ? half : 0), node.y0 + ((q & 2) != 0 ? half : 0),
+                    half, node.depth + 1);
+        int[] items = node.items;
+        int cnt = node.count;
+        node.items = null;
+        for (int i = 0; i < cnt; i++) {
+            double x = store.getX(items[i]);
+            double y = store.getY(items[i]);
+            Node child = node.children[node.quadrant(x, y)];
+            if (child.items == null)
+                child.items = new int[LEAF_SIZE + 1];
+            else if (child.count == child.items.length)
+                child.items = Arrays.copyOf(child.items, child.count * 2);
+            child.items[child.count++] = items[i];
+            child.extend(x, y);
+        }
+        // если все точки попали в одну четверть, делим её дальше
+        for (Node child : node.children)
+            if (child.count > LEAF_SIZE && child.depth < MAX_DEPTH)
+                split(child);
+    }
+
+    /**
+     * Удалить из дерева точку хранилища (вызывается до изменения хранилища)
+     *
+     * @param index индекс точки в хранилище
+     * @return флаг, была ли точка найдена
+     */
+    public boolean remove(int index) {
+        return root != null && remove(root, index, store.getX(index), store.getY(index));
+    }
+
+    /**
+     * Удалить точку из поддерева
+     *
+     * @param node  узел
+     * @param index индекс точки
+     * @param x     координата X точки
+     * @param y     координата Y точки
+     * @return флаг, была ли точка найдена
+     */
+    private boolean remove(Node node, int index, double x, double y) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++) {
+                if (node.items[i] == index) {
+                    node.items[i] = node.items[--node.count];
+                    // пересчитываем габарит листа по оставшимся точкам
+                    node.resetBounds();
+                    for (int j = 0; j < node.count; j++)
+                        node.extend(store.getX(node.items[j]), store.getY(node.items[j]));
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!remove(node.children[node.quadrant(x, y)], index, x, y))
+            return false;
+        node.count--;
+        // если точек осталось мало, сливаем потомков обратно в лист
+        if (node.count <= LEAF_SIZE) {
+            int[] items = new int[LEAF_SIZE + 1];
+            int[] cnt = {0};
+            forEach(node, idx -> items[cnt[0]++] = idx);
+            node.children = null;
+            node.items = items;
+        }
+        node.resetBounds();
+        if (node.isLeaf()) {
+            for (int j = 0; j < node.count; j++)
+                node.extend(store.getX(node.items[j]), store.getY(node.items[j]));
+        } else {
+            for (Node child : node.children)
+                node.extend(child);
+        }
+        return true;
+    }
+
+    /**
+     * Заменить индекс точки (точка переехала в другую ячейку хранилища;
+     * вызывается, пока координаты по старому индексу ещё доступны)
+     *
+     * @param from старый индекс
+     * @param to   новый индекс
+     * @return флаг, была ли точка найдена
+     */
+    public boolean relabel(int from, int to) {
+        if (root == null)
+            return false;
+        double x = store.getX(from);
+        double y = store.getY(from);
+        Node node = root;
+        while (!node.isLeaf())
+            node = node.children[node.quadrant(x, y)];
+        for (int i = 0; i < node.count; i++) {
+            if (node.items[i] == from) {
+                node.items[i] = to;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Очистить дерево
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Получить кол-во точек в дереве
+     *
+     * @return кол-во точек в дереве
+     */
+    public int size() {
+        return root == null ? 0 : root.count;
+    }
+
+    /**
+     * Получить объём памяти дерева по раскладке {@link MemoryLayout}:
+     * узлы (7 double, 2 int, 2 ссылки), массивы потомков и массивы индексов листьев
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        long nodeBytes = MemoryLayout.object(7L * Double.BYTES + 2 * Integer.BYTES + 2 * MemoryLayout.REFERENCE);
+        long bytes = MemoryLayout.object(2 * MemoryLayout.REFERENCE);
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        if (root != null)
+            stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            bytes += nodeBytes + MemoryLayout.of(node.items) + MemoryLayout.of(node.children);
+            if (node.children != null)
+                for (Node child : node.children)
+                    if (child != null)
+                        stack.push(child);
+        }
+        return bytes;
+    }
+
+    /**
+     * Получить корень дерева
+     *
+     * @return корень дерева или null, если дерево пустое
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Перебрать точки, попавшие в прямоугольник
+     * (поддеревья, габарит которых лежит внутри прямоугольника, перебираются без проверок)
+     *
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param consumer обработчик индекса точки
+     */
+    public void query(Vector2d min, Vector2d max, IntConsumer consumer) {
+        if (root != null)
+            query(root, min, max, consumer);
+    }
+
+    /**
+     * Перебрать точки поддерева, попавшие в прямоугольник
+     *
+     * @param node     узел
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param consumer обработчик индекса точки
+     */
+    private void query(Node node, Vector2d min, Vector2d max, IntConsumer consumer) {
+        if (!node.intersects(min, max))
+            return;
+        if (node.inside(min, max)) {
+            forEach(node, consumer);
+        } else if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++) {
+                int idx = node.items[i];
+                double x = store.getX(idx), y = store.getY(idx);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    consumer.accept(idx);
+            }
+        } else {
+            for (Node child : node.children)
+                query(child, min, max, consumer);
+        }
+    }
+
+    /**
+     * Дописать в список точки, попавшие в прямоугольник. В отличие от перебора
+     * с обработчиком, вызывающему не нужно создавать объект обработчика,
+     * а список переиспользуется между вызовами
+     *
+     * @param min минимальные координаты прямоугольника
+     * @param max максимальные координаты прямоугольника
+     * @param out список для индексов точек
+     */
+    public void query(Vector2d min, Vector2d max, IntArrayList out) {
+        if (root != null)
+            query(root, min, max, out);
+    }
+
+    /**
+     * Дописать в список точки поддерева, попавшие в прямоугольник
+     *
+     * @param node узел
+     * @param min  минимальные координаты прямоугольника
+     * @param max  максимальные координаты прямоугольника
+     * @param out  список для индексов точек
+     */
+    private void query(Node node, Vector2d min, Vector2d max, IntArrayList out) {
+        if (!node.intersects(min, max))
+            return;
+        if (node.inside(min, max)) {
+            collect(node, out);
+        } else if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++) {
+                int idx = node.items[i];
+                double x = store.getX(idx), y = store.getY(idx);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    out.add(idx);
+            }
+        } else {
+            for (Node child : node.children)
+                query(child, min, max, out);
+        }
+    }
+
+    /**
+     * Перебрать точки, попавшие внутрь лассо. Узлы, габарит которых не задевает
+     * границу лассо, целиком внутри или целиком снаружи, поэтому по одной
+     * проверяются только точки листьев на границе
+     *
+     * @param lasso    лассо
+     * @param consumer обработчик индекса точки
+     */
+    public void query(Lasso lasso, IntConsumer consumer) {
+        if (root != null)
+            query(root, lasso, consumer);
+    }
+
+    /**
+     * Перебрать точки поддерева, попавшие внутрь лассо
+     *
+     * @param node     узел
+     * @param lasso    лассо
+     * @param consumer обработчик индекса точки
+     */
+    private void query(Node node, Lasso lasso, IntConsumer consumer) {
+        if (node.count == 0 || node.maxX < lasso.getMinX() || node.minX > lasso.getMaxX() ||
+                node.maxY < lasso.getMinY() || node.minY > lasso.getMaxY())
+            return;
+        if (!lasso.crosses(node.minX, node.minY, node.maxX, node.maxY)) {
+            // достаточно проверить один угол габарита
+            if (lasso.contains(node.minX, node.minY))
+                forEach(node, consumer);
+        } else if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++) {
+                int idx = node.items[i];
+                if (lasso.contains(store.getX(idx), store.getY(idx)))
+                    consumer.accept(idx);
+            }
+        } else {
+            for (Node child : node.children)
+                query(child, lasso, consumer);
+        }
+    }
+
+    /**
+     * Посчитать точки, попавшие в прямоугольник
+     * (для поддеревьев внутри прямоугольника используется сохранённое кол-во)
+     *
+     * @param min минимальные координаты прямоугольника
+     * @param max максимальные координаты прямоугольника
+     * @return кол-во точек
+     */
+    public int count(Vector2d min, Vector2d max) {
+        return root == null ? 0 : count(root, min, max);
+    }
+
+    /**
+     * Посчитать точки поддерева, попавшие в прямоугольник
+     *
+     * @param node узел
+     * @param min  минимальные координаты прямоугольника
+     * @param max  максимальные координаты прямоугольника
+     * @return кол-во точек
+     */
+    private int count(Node node, Vector2d min, Vector2d max) {
+        if (!node.intersects(min, max))
+            return 0;
+        if (node.inside(min, max))
+            return node.count;
+        int res = 0;
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++) {
+                double x = store.getX(node.items[i]), y = store.getY(node.items[i]);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    res++;
+            }
+        } else {
+            for (Node child : node.children)
+                res += count(child, min, max);
+        }
+        return res;
+    }
+
+    /**
+     * Перебрать ячейки плотности: непустые узлы, пересекающие прямоугольник,
+     * у которых сторона квадрата не больше заданной (или листья)
+     *
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param cellSide максимальная сторона ячейки
+     * @param consumer обработчик ячейки
+     */
+    public void cells(Vector2d min, Vector2d max, double cellSide, CellConsumer consumer) {
+        if (root != null)
+            cells(root, min, max, cellSide, consumer);
+    }
+
+    /**
+     * Перебрать ячейки плотности поддерева
+     *
+     * @param node     узел
+     * @param min      минимальные координаты прямоугольника
+     * @param max      максимальные координаты прямоугольника
+     * @param cellSide максимальная сторона ячейки
+     * @param consumer обработчик ячейки
+     */
+    private static void cells(Node node, Vector2d min, Vector2d max, double cellSide, CellConsumer consumer) {
+        if (!node.intersects(min, max))
+            return;
+        if (node.isLeaf() || node.side <= cellSide) {
+            consumer.accept(node);
+            return;
+        }
+        for (Node child : node.children)
+            cells(child, min, max, cellSide, consumer);
+    }
+
+    /**
+     * Дописать в список все точки поддерева
+     *
+     * @param node узел
+     * @param out  список для индексов точек
+     */
+    private static void collect(Node node, IntArrayList out) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++)
+                out.add(node.items[i]);
+        } else {
+            for (Node child : node.children)
+                collect(child, out);
+        }
+    }
+
+    /**
+     * Перебрать все точки поддерева
+     *
+     * @param node     узел
+     * @param consumer обработчик индекса точки
+     */
+    private static void forEach(Node node, IntConsumer consumer) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.count; i++)
+                consumer.accept(node.items[i]);
+        } else {
+            for (Node child : node.children)
+                forEach(child, consumer);
+        }
+    }
+}
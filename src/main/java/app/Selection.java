@@ -0,0 +1,183 @@
+package app;
+
+import misc.MemoryLayout;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Выделение точек: битовая карта по ячейкам одной версии хранилища
+ * (один бит на точку). Ячейки меняются при удалении и перестановке точек,
+ * поэтому выделение помнит версию снимка, по которому составлено,
+ * и применяется только к ней
+ */
+public class Selection {
+    /**
+     * Слова битовой карты (бит i - ячейка i)
+     */
+    private final long[] words;
+    /**
+     * Кол-во ячеек
+     */
+    private final int size;
+    /**
+     * Версия снимка, по которому составлено выделение
+     */
+    private final long version;
+
+    /**
+     * Конструктор пустого выделения
+     *
+     * @param size    кол-во ячеек
+     * @param version версия снимка
+     */
+    Selection(int size, long version) {
+        this.size = size;
+        this.version = version;
+        this.words = new long[(size + Long.SIZE - 1) >>> 6];
+    }
+
+    /**
+     * Конструктор выделения с готовой битовой картой
+     *
+     * @param words   слова битовой карты
+     * @param size    кол-во ячеек
+     * @param version версия снимка
+     */
+    private Selection(long[] words, int size, long version) {
+        this.words = words;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * Перенести выделение на другую версию с теми же ячейками (например, после
+     * смены множества точек, которая их не переставляет). Битовая карта общая
+     *
+     * @param version версия снимка
+     * @return выделение новой версии
+     */
+    Selection withVersion(long version) {
+        return new Selection(words, size, version);
+    }
+
+    /**
+     * Выделить ячейку
+     *
+     * @param slot ячейка
+     */
+    void set(int slot) {
+        words[slot >>> 6] |= 1L << slot;
+    }
+
+    /**
+     * Записать слово битовой карты (ячейки 64 * index .. 64 * index + 63)
+     *
+     * @param index индекс слова
+     * @param word  слово
+     */
+    void setWord(int index, long word) {
+        words[index] = word;
+    }
+
+    /**
+     * Проверить, выделена ли ячейка
+     *
+     * @param slot ячейка
+     * @return флаг, выделена ли ячейка
+     */
+    public boolean get(int slot) {
+        return slot < size && (words[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Получить кол-во выделенных точек
+     *
+     * @return кол-во выделенных точек
+     */
+    public int cardinality() {
+        int cnt = 0;
+        for (long word : words)
+            cnt += Long.bitCount(word);
+        return cnt;
+    }
+
+    /**
+     * Проверить, пусто ли выделение
+     *
+     * @return флаг, пусто ли выделение
+     */
+    public boolean isEmpty() {
+        for (long word : words)
+            if (word != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Получить первую выделенную ячейку
+     *
+     * @return ячейка или -1, если выделение пусто
+     */
+    public int first() {
+        for (int w = 0; w < words.length; w++)
+            if (words[w] != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(words[w]);
+        return -1;
+    }
+
+    /**
+     * Перебрать выделенные ячейки по возрастанию
+     *
+     * @param consumer обработчик ячейки
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            // перебираем только установленные биты
+            while (word != 0) {
+                consumer.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Получить постоянные номера выделенных точек
+     *
+     * @param store хранилище той же версии
+     * @return номера точек
+     */
+    public int[] toIds(PointStore store) {
+        int[] ids = new int[cardinality()];
+        int[] cnt = {0};
+        forEach(slot -> ids[cnt[0]++] = store.getId(slot));
+        return ids;
+    }
+
+    /**
+     * Получить кол-во ячеек
+     *
+     * @return кол-во ячеек
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Получить версию снимка, по которому составлено выделение
+     *
+     * @return версия снимка
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Получить объём памяти выделения
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(MemoryLayout.REFERENCE + Integer.BYTES + Long.BYTES) + MemoryLayout.of(words);
+    }
+}
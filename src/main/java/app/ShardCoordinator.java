@@ -0,0 +1,267 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Координатор распределённого решения: потоково читает файл задачи,
+ * раздаёт точки порциями локальным рабочим процессам {@link ShardWorker},
+ * собирает выпуклые оболочки шардов, объединяет их и решает задачу точно.
+ * Сам координатор точки целиком в памяти не держит.
+ */
+public class ShardCoordinator {
+    /**
+     * Кол-во точек в одной порции
+     */
+    public static final int CHUNK_SIZE = 4096;
+    /**
+     * Время ожидания подключения рабочих, мс
+     */
+    private static final int ACCEPT_TIMEOUT = 30000;
+
+    /**
+     * Результат обработки одного шарда
+     */
+    public static class ShardResult {
+        /**
+         * Номер шарда
+         */
+        public final int shard;
+        /**
+         * Кол-во точек шарда
+         */
+        public final long points;
+        /**
+         * Время обработки, нс
+         */
+        public final long nanos;
+        /**
+         * Кол-во вершин оболочки шарда
+         */
+        public final int hullSize;
+
+        /**
+         * Конструктор результата
+         *
+         * @param shard    номер шарда
+         * @param points   кол-во точек шарда
+         * @param nanos    время обработки, нс
+         * @param hullSize кол-во вершин оболочки шарда
+         */
+        public ShardResult(int shard, long points, long nanos, int hullSize) {
+            this.shard = shard;
+            this.points = points;
+            this.nanos = nanos;
+            this.hullSize = hullSize;
+        }
+
+        /**
+         * Получить пропускную способность
+         *
+         * @return точек в секунду
+         */
+        public double getThroughput() {
+            return nanos == 0 ? 0 : points * 1e9 / nanos;
+        }
+
+        /**
+         * Строковое представление объекта
+         *
+         * @return строковое представление объекта
+         */
+        @Override
+        public String toString() {
+            return "шард " + shard + ": " + points + " точек за " +
+                    String.format("%.1f", nanos / 1e6).replace(",", ".") + " мс (" +
+                    String.format("%.2f", getThroughput() / 1e6).replace(",", ".") + " млн точек/с), оболочка " +
+                    hullSize + " вершин";
+        }
+    }
+
+    /**
+     * Результат распределённого решения
+     */
+    public static class Result {
+        /**
+         * Найденная окружность (null, если точек нет)
+         */
+        public final Circle circle;
+        /**
+         * Результаты шардов
+         */
+        public final List<ShardResult> shards;
+
+        /**
+         * Конструктор результата
+         *
+         * @param circle найденная окружность
+         * @param shards результаты шардов
+         */
+        public Result(Circle circle, List<ShardResult> shards) {
+            this.circle = circle;
+            this.shards = shards;
+        }
+    }
+
+    /**
+     * Решить задачу из файла с помощью локальных рабочих процессов
+     *
+     * @param file    файл задачи в формате JSON
+     * @param workers кол-во рабочих процессов
+     * @return результат решения
+     * @throws IOException ошибка чтения файла или обмена с рабочими
+     */
+    public static Result solve(File file, int workers) throws IOException {
+        if (workers < 1)
+            throw new IllegalArgumentException("кол-во рабочих должно быть положительным");
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(ACCEPT_TIMEOUT);
+            // запускаем рабочие процессы с тем же classpath
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int i = 0; i < workers; i++) {
+                processes.add(new ProcessBuilder(
+                        java, "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName(),
+                        server.getInetAddress().getHostAddress(), Integer.toString(server.getLocalPort())
+                ).redirectOutput(ProcessBuilder.Redirect.DISCARD).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            // ждём их подключения
+            for (int i = 0; i < workers; i++)
+                sockets.add(server.accept());
+
+            List<DataOutputStream> outs = new ArrayList<>();
+            for (Socket s : sockets)
+                outs.add(new DataOutputStream(new BufferedOutputStream(s.getOutputStream())));
+            // раздаём точки порциями по кругу
+            stream(file, outs);
+            for (DataOutputStream out : outs) {
+                out.writeInt(0);
+                out.flush();
+            }
+
+            // собираем оболочки шардов в общую оболочку
+            ConvexHull hull = new ConvexHull();
+            List<ShardResult> shards = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(sockets.get(i).getInputStream()));
+                int h = in.readInt();
+                for (int j = 0; j < h; j++)
+                    hull.insert(in.readDouble(), in.readDouble());
+                shards.add(new ShardResult(i, in.readLong(), in.readLong(), h));
+            }
+            return new Result(CircleSolver.solve(hull.copyXs(), hull.copyYs(), hull.size()), shards);
+        } finally {
+            for (Socket s : sockets)
+                s.close();
+            for (Process p : processes) {
+                try {
+                    if (!p.waitFor(5, TimeUnit.SECONDS))
+                        p.destroyForcibly();
+                } catch (InterruptedException e) {
+                    p.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Потоково прочитать точки из файла задачи и разослать их порциями
+     *
+     * @param file файл задачи
+     * @param outs потоки рабочих
+     * @throws IOException ошибка чтения или записи
+     */
+    private static void stream(File file, List<DataOutputStream> outs) throws IOException {
+        double[] chunk = new double[CHUNK_SIZE * 2];
+        int cnt = 0;
+        int target = 0;
+        try (JsonParser parser = new JsonFactory().createParser(file)) {
+            // ищем массив точек
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "points".equals(parser.getCurrentName()))
+                    break;
+            }
+            if (token == null || parser.nextToken() != JsonToken.START_ARRAY)
+                throw new IOException("в файле " + file + " нет массива точек");
+            // перебираем точки
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                double x = Double.NaN, y = Double.NaN;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("pos".equals(field)) {
+                        // читаем координаты
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String coord = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("x".equals(coord))
+                                x = parser.getDoubleValue();
+                            else if ("y".equals(coord))
+                                y = parser.getDoubleValue();
+                            else
+                                parser.skipChildren();
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                chunk[cnt * 2] = x;
+                chunk[cnt * 2 + 1] = y;
+                // порция заполнена - отправляем следующему рабочему
+                if (++cnt == CHUNK_SIZE) {
+                    send(outs.get(target), chunk, cnt);
+                    target = (target + 1) % outs.size();
+                    cnt = 0;
+                }
+            }
+        }
+        if (cnt > 0)
+            send(outs.get(target), chunk, cnt);
+    }
+
+    /**
+     * Отправить порцию точек
+     *
+     * @param out   поток рабочего
+     * @param chunk координаты точек
+     * @param cnt   кол-во точек
+     * @throws IOException ошибка записи
+     */
+    private static void send(DataOutputStream out, double[] chunk, int cnt) throws IOException {
+        out.writeInt(cnt);
+        for (int i = 0; i < cnt * 2; i++)
+            out.writeDouble(chunk[i]);
+    }
+
+    /**
+     * Точка входа: решить задачу из файла
+     *
+     * @param args путь к файлу и кол-во рабочих процессов
+     * @throws IOException ошибка чтения файла или обмена с рабочими
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("использование: ShardCoordinator <файл> [кол-во рабочих]");
+            System.exit(1);
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        Result result = solve(new File(args[0]), workers);
+        for (ShardResult shard : result.shards)
+            System.out.println(shard);
+        System.out.println("окружность: " + result.circle);
+        System.out.println("общее время: " + (System.nanoTime() - start) / 1000000 + " мс");
+    }
+}
@@ -0,0 +1,65 @@
+package app;
+
+import java.io.*;
+import java.net.Socket;
+
+/**
+ * Рабочий процесс распределённого решения: получает по сокету свою часть
+ * точек (шард) и возвращает выпуклую оболочку шарда.
+ * <p>
+ * Протокол (DataInput/DataOutput, big-endian):
+ * координатор -> рабочий: кадры {int n; n раз double x, double y}, кадр с n = 0 - конец шарда;
+ * рабочий -> координатор: int h; h раз double x, double y; long кол-во точек; long время обработки, нс.
+ */
+public class ShardWorker {
+
+    /**
+     * Обработать шард, полученный из потока, и записать ответ
+     *
+     * @param in  входной поток
+     * @param out выходной поток
+     * @throws IOException ошибка ввода-вывода
+     */
+    public static void process(DataInputStream in, DataOutputStream out) throws IOException {
+        ConvexHull hull = new ConvexHull();
+        long points = 0;
+        // время считаем с прихода первой порции, а не с подключения
+        int n = in.readInt();
+        long start = System.nanoTime();
+        while (n > 0) {
+            for (int i = 0; i < n; i++)
+                hull.insert(in.readDouble(), in.readDouble());
+            points += n;
+            n = in.readInt();
+        }
+        long nanos = System.nanoTime() - start;
+        // отправляем оболочку шарда и статистику
+        out.writeInt(hull.size());
+        for (int i = 0; i < hull.size(); i++) {
+            out.writeDouble(hull.getX(i));
+            out.writeDouble(hull.getY(i));
+        }
+        out.writeLong(points);
+        out.writeLong(nanos);
+        out.flush();
+    }
+
+    /**
+     * Точка входа рабочего процесса
+     *
+     * @param args адрес и порт координатора
+     * @throws IOException ошибка ввода-вывода
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("использование: ShardWorker <хост> <порт>");
+            System.exit(1);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            process(
+                    new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))
+            );
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package app;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика работы решателя
+ * (решения учитываются из разных потоков, поэтому счётчики потокобезопасные;
+ * внутренние вызовы решателя из индексов в статистику не попадают)
+ */
+public class SolverStats {
+    /**
+     * Кол-во решений в double
+     */
+    private static final LongAdder doubleSolves = new LongAdder();
+    /**
+     * Кол-во точек, обработанных в double
+     */
+    private static final LongAdder doublePoints = new LongAdder();
+    /**
+     * Суммарное время решений в double, нс
+     */
+    private static final LongAdder doubleNanos = new LongAdder();
+    /**
+     * Кол-во решений в float с уточнением в double
+     */
+    private static final LongAdder floatSolves = new LongAdder();
+    /**
+     * Кол-во точек, обработанных в float
+     */
+    private static final LongAdder floatPoints = new LongAdder();
+    /**
+     * Суммарное время решений в float, нс
+     */
+    private static final LongAdder floatNanos = new LongAdder();
+    /**
+     * Кол-во отказов от float: координаты не помещаются во float
+     */
+    private static final LongAdder rangeFallbacks = new LongAdder();
+    /**
+     * Кол-во отказов от float: окружность не прошла проверку в double
+     */
+    private static final LongAdder verifyFallbacks = new LongAdder();
+
+    /**
+     * Учесть решение в double
+     *
+     * @param n     кол-во точек
+     * @param nanos время, нс
+     */
+    static void addDoubleSolve(int n, long nanos) {
+        doubleSolves.increment();
+        doublePoints.add(n);
+        doubleNanos.add(nanos);
+    }
+
+    /**
+     * Учесть решение в float
+     *
+     * @param n     кол-во точек
+     * @param nanos время, нс
+     */
+    static void addFloatSolve(int n, long nanos) {
+        floatSolves.increment();
+        floatPoints.add(n);
+        floatNanos.add(nanos);
+    }
+
+    /**
+     * Учесть отказ от float из-за диапазона координат
+     */
+    static void addRangeFallback() {
+        rangeFallbacks.increment();
+    }
+
+    /**
+     * Учесть отказ от float из-за непройденной проверки
+     */
+    static void addVerifyFallback() {
+        verifyFallbacks.increment();
+    }
+
+    /**
+     * Получить кол-во отказов от float из-за непройденной проверки
+     *
+     * @return кол-во отказов
+     */
+    public static long getVerifyFallbacks() {
+        return verifyFallbacks.sum();
+    }
+
+    /**
+     * Получить кол-во решений в float
+     *
+     * @return кол-во решений
+     */
+    public static long getFloatSolves() {
+        return floatSolves.sum();
+    }
+
+    /**
+     * Среднее время обработки одной точки
+     *
+     * @param nanos  суммарное время
+     * @param points суммарное кол-во точек
+     * @return время на точку, нс
+     */
+    private static double perPoint(LongAdder nanos, LongAdder points) {
+        long p = points.sum();
+        return p == 0 ? 0 : (double) nanos.sum() / p;
+    }
+
+    /**
+     * Сбросить статистику
+     */
+    public static void reset() {
+        doubleSolves.reset();
+        doublePoints.reset();
+        doubleNanos.reset();
+        floatSolves.reset();
+        floatPoints.reset();
+        floatNanos.reset();
+        rangeFallbacks.reset();
+        verifyFallbacks.reset();
+    }
+
+    /**
+     * Строковое представление вещественного числа
+     *
+     * @param v число
+     * @return строка с одним знаком после точки
+     */
+    private static String format(double v) {
+        return String.format("%.1f", v).replace(",", ".");
+    }
+
+    /**
+     * Получить отчёт
+     *
+     * @return многострочный отчёт
+     */
+    public static String getReport() {
+        double d = perPoint(doubleNanos, doublePoints);
+        double f = perPoint(floatNanos, floatPoints);
+        String res = "double: " + doubleSolves.sum() + " решений, " + format(d) + " нс/точку\n" +
+                "float: " + floatSolves.sum() + " решений, " + format(f) + " нс/точку";
+        if (d > 0 && f > 0)
+            res += ", ускорение x" + format(d / f);
+        return res + "\nотказы от float: диапазон " + rangeFallbacks.sum() + ", проверка " + verifyFallbacks.sum();
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private SolverStats() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+}
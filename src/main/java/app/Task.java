@@ -4,16 +4,24 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.github.humbleui.jwm.MouseButton;
 import io.github.humbleui.skija.*;
 import lombok.Getter;
 import misc.CoordinateSystem2d;
 import misc.CoordinateSystem2i;
+import misc.IntArrayList;
+import misc.IntIntMap;
+import misc.MemoryLayout;
 import misc.Vector2d;
 import misc.Vector2i;
 import panels.PanelLog;
 
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static app.Colors.*;
@@ -38,10 +46,127 @@ public class Task {
     @Getter
     private final CoordinateSystem2d ownCS;
     /**
-     * Список точек
+     * Точки задачи (хранятся по столбцам)
      */
     @Getter
-    private final ArrayList<Point> points;
+    private final PointStore points;
+    /**
+     * Последний опубликованный снимок точек: его читают отрисовка и фоновые задачи,
+     * а каждое изменение точек публикует новый
+     */
+    @JsonIgnore
+    private volatile PointStore snapshot;
+    /**
+     * Квадродерево над точками задачи
+     */
+    @JsonIgnore
+    private final QuadTree quadTree;
+    /**
+     * KD-дерево для поиска ближайших точек
+     */
+    @JsonIgnore
+    private final KdTree kdTree;
+    /**
+     * Выпуклая оболочка точек задачи
+     */
+    @JsonIgnore
+    private final ConvexHull hull = new ConvexHull();
+    /**
+     * История изменений для отмены и повтора
+     */
+    @JsonIgnore
+    private final History history = new History(History.getConfiguredBudget());
+    /**
+     * Множества точек по занятым пикселям кадра (переиспользуется между кадрами)
+     */
+    @JsonIgnore
+    private final IntIntMap pixelSets = new IntIntMap(-1);
+    /**
+     * Индексы видимых точек кадра (переиспользуется между кадрами)
+     */
+    @JsonIgnore
+    private final IntArrayList visiblePoints = new IntArrayList();
+    /**
+     * Координаты точек кадра по группам цвета: по буферу на множество и последний
+     * на выделенные точки. После кадра буфер обрезается точно по точкам, поэтому
+     * при неизменном кол-ве точек следующий кадр переиспользует его без выделений
+     */
+    @JsonIgnore
+    private final float[][] pointBuffers = new float[PointStore.SETS.length + 1][0];
+    /**
+     * Кол-во координат, записанных в буфер каждой группы в текущем кадре
+     */
+    @JsonIgnore
+    private final int[] pointFill = new int[PointStore.SETS.length + 1];
+    /**
+     * Перо точек (создаётся при первой отрисовке и переиспользуется)
+     */
+    @JsonIgnore
+    private Paint pointPaint;
+    /**
+     * Растр плотности точек (переиспользуется между кадрами)
+     */
+    @JsonIgnore
+    private final DensityRaster density = new DensityRaster();
+    /**
+     * Флаг, что задача сейчас рисуется растром плотности
+     */
+    @JsonIgnore
+    private boolean densityMode;
+    /**
+     * Рисование окружностей (буферы отрезков переиспользуются между кадрами)
+     */
+    @JsonIgnore
+    private final CircleRenderer circleRenderer = new CircleRenderer();
+    /**
+     * Записанная сетка (null, пока не записана)
+     */
+    @JsonIgnore
+    private Picture gridPicture;
+    /**
+     * Минимальные координаты СК задачи, по которой записана сетка
+     */
+    @JsonIgnore
+    private Vector2d gridMin;
+    /**
+     * Размер СК задачи, по которой записана сетка
+     */
+    @JsonIgnore
+    private Vector2d gridSize;
+    /**
+     * СК окна, по которой записана сетка
+     */
+    @JsonIgnore
+    private CoordinateSystem2i gridWindowCS;
+    /**
+     * Выделение точек (действует, пока не опубликована новая версия точек)
+     */
+    @JsonIgnore
+    private volatile Selection selection;
+    /**
+     * Журнал точек непрерывного потока: пишет один внешний поток,
+     * а задача читает только запечатанные сегменты
+     */
+    @JsonIgnore
+    private final PointLog feed = new PointLog();
+    /**
+     * Номер первой точки журнала, видимой задаче (более ранние скрыты очисткой)
+     */
+    private long feedFrom;
+    /**
+     * Выпуклая оболочка уже учтённых точек журнала
+     */
+    @JsonIgnore
+    private final ConvexHull feedHull = new ConvexHull();
+    /**
+     * Номер точки журнала, до которой точки уже учтены в оболочке
+     * (сегменты отбрасываются из начала журнала, поэтому номер сегмента не годится)
+     */
+    private long feedConsumed;
+    /**
+     * Найденная окружность
+     */
+    private Circle answer;
     /**
      * последняя СК окна
      */
@@ -58,6 +183,34 @@ public class Task {
     private static final int DELIMITER_ORDER = 10;
 
     private static final int POINT_SIZE = 3;
+    /**
+     * Радиус попадания курсором в точку, пикселей
+     */
+    private static final int PICK_RADIUS = 6;
+    /**
+     * Флаг выделенной точки в значении {@link #pixelSets} (младший байт - множество)
+     */
+    private static final int SELECTED_PIXEL = 0x100;
+    /**
+     * Кол-во видимых точек на пиксель, начиная с которого задача рисуется растром плотности
+     */
+    private static final double DENSITY_ENTER = 4;
+    /**
+     * Кол-во видимых точек на пиксель, ниже которого растр плотности снова сменяется точками
+     */
+    private static final double DENSITY_EXIT = 2;
+    /**
+     * Расширение файлов задачи в двоичном формате
+     */
+    public static final String BINARY_EXTENSION = ".bin";
+    /**
+     * Сигнатура двоичного файла задачи ("GEOM")
+     */
+    private static final int BINARY_MAGIC = 0x47454F4D;
+    /**
+     * Версия двоичного формата
+     */
+    private static final int BINARY_VERSION = 1;
 
     /**
      * Задача
@@ -68,10 +221,20 @@ public class Task {
     @JsonCreator
     public Task(
             @JsonProperty("ownCS") CoordinateSystem2d ownCS,
-            @JsonProperty("points") ArrayList<Point> points
+            @JsonProperty("points") @JsonDeserialize(as = PointStore.class) List<Point> points
     ) {
         this.ownCS = ownCS;
-        this.points = points;
+        // при загрузке из файла хранилище уже создано десериализатором
+        this.points = points instanceof PointStore store ? store : PointStore.create(points);
+        // близкие точки кладём рядом в памяти до построения индексов;
+        // на номера только что загруженных точек ещё никто не ссылается, поэтому их не сохраняем
+        if (ZOrder.isEnabledOnLoad() && this.points.size() > 1)
+            this.points.reorder(ZOrder.order(this.points), false);
+        this.quadTree = QuadTree.build(this.points);
+        this.kdTree = KdTree.build(this.points);
+        for (int i = 0; i < this.points.size(); i++)
+            hull.insert(this.points.getX(i), this.points.getY(i));
+        publish();
     }
 
     /**
@@ -79,6 +242,42 @@ public class Task {
      */
     private boolean solved;
 
+    /**
+     * Записать задачу в двоичном виде: сигнатура, версия, СК задачи и точки по столбцам
+     * вместе с заданными атрибутами. Файл получается в несколько раз меньше JSON
+     * и читается без разбора текста
+     *
+     * @param out поток
+     * @throws IOException ошибка записи
+     */
+    public void writeBinary(DataOutputStream out) throws IOException {
+        out.writeInt(BINARY_MAGIC);
+        out.writeInt(BINARY_VERSION);
+        out.writeDouble(ownCS.getMin().x);
+        out.writeDouble(ownCS.getMin().y);
+        out.writeDouble(ownCS.getMax().x);
+        out.writeDouble(ownCS.getMax().y);
+        points.writeBinary(out);
+    }
+
+    /**
+     * Прочитать задачу, записанную {@link #writeBinary(DataOutputStream)}
+     *
+     * @param in поток
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task readBinary(DataInputStream in) throws IOException {
+        if (in.readInt() != BINARY_MAGIC)
+            throw new IOException("файл не является двоичным файлом задачи");
+        int version = in.readInt();
+        if (version != BINARY_VERSION)
+            throw new IOException("неподдерживаемая версия двоичного формата: " + version);
+        Vector2d min = new Vector2d(in.readDouble(), in.readDouble());
+        Vector2d max = new Vector2d(in.readDouble(), in.readDouble());
+        return new Task(new CoordinateSystem2d(min, max), PointStore.readBinary(in));
+    }
+
     /**
      * Рисование задачи
      *
@@ -87,41 +286,68 @@ public class Task {
      */
 
     /**
-     * Рисование сетки
+     * Рисование сетки. Сетка зависит только от СК задачи и СК окна, поэтому
+     * записывается в {@link Picture} и воспроизводится, пока они не изменятся
+     * (масштабирование, отмена масштабирования, изменение размера окна)
      *
      * @param canvas   область рисования
      * @param windowCS СК окна
      */
     public void renderGrid(Canvas canvas, CoordinateSystem2i windowCS) {
-        // сохраняем область рисования
-        canvas.save();
+        // СК задачи при изменении получает новые векторы границ, поэтому их достаточно сравнить по ссылке
+        if (gridPicture == null || gridMin != ownCS.getMin() || gridSize != ownCS.getSize() ||
+                !windowCS.equals(gridWindowCS)) {
+            if (gridPicture != null)
+                gridPicture.close();
+            try (var recorder = new PictureRecorder()) {
+                recordGrid(recorder.beginRecording(windowCS.getRect()), windowCS);
+                gridPicture = recorder.finishRecordingAsPicture();
+            }
+            gridMin = ownCS.getMin();
+            gridSize = ownCS.getSize();
+            gridWindowCS = windowCS;
+        }
+        canvas.drawPicture(gridPicture);
+    }
+
+    /**
+     * Записать штрихи сетки
+     *
+     * @param canvas   область записи
+     * @param windowCS СК окна
+     */
+    private void recordGrid(Canvas canvas, CoordinateSystem2i windowCS) {
         // получаем ширину штриха(т.е. по факту толщину линии)
         float strokeWidth = 0.03f / (float) ownCS.getSimilarity(windowCS).y + 0.5f;
         // создаём перо соответствующей толщины
         try (var paint = new Paint().setMode(PaintMode.STROKE).setStrokeWidth(strokeWidth).setColor(TASK_GRID_COLOR)) {
-            // перебираем все целочисленные отсчёты нашей СК по оси X
-            for (int i = (int) (ownCS.getMin().x); i <= (int) (ownCS.getMax().x); i++) {
-                // находим положение этих штрихов на экране
-                Vector2i windowPos = windowCS.getCoords(i, 0, ownCS);
-                // каждый 10 штрих увеличенного размера
-                float strokeHeight = i % DELIMITER_ORDER == 0 ? 5 : 2;
-                // рисуем вертикальный штрих
-                canvas.drawLine(windowPos.x, windowPos.y, windowPos.x, windowPos.y + strokeHeight, paint);
-                canvas.drawLine(windowPos.x, windowPos.y, windowPos.x, windowPos.y - strokeHeight, paint);
+            // штрихи оси X стоят на прямой y = 0; если она вне окна, не рисуем их вовсе
+            int axisY = windowCS.getY(0, ownCS);
+            if (axisY + 5 >= windowCS.getMin().y && axisY - 5 <= windowCS.getMax().y) {
+                // перебираем все целочисленные отсчёты нашей СК по оси X
+                for (int i = (int) (ownCS.getMin().x); i <= (int) (ownCS.getMax().x); i++) {
+                    // находим положение этих штрихов на экране
+                    int x = windowCS.getX(i, ownCS);
+                    // каждый 10 штрих увеличенного размера
+                    float strokeHeight = i % DELIMITER_ORDER == 0 ? 5 : 2;
+                    // рисуем вертикальный штрих
+                    canvas.drawLine(x, axisY - strokeHeight, x, axisY + strokeHeight, paint);
+                }
             }
-            // перебираем все целочисленные отсчёты нашей СК по оси Y
-            for (int i = (int) (ownCS.getMin().y); i <= (int) (ownCS.getMax().y); i++) {
-                // находим положение этих штрихов на экране
-                Vector2i windowPos = windowCS.getCoords(0, i, ownCS);
-                // каждый 10 штрих увеличенного размера
-                float strokeHeight = i % 10 == 0 ? 5 : 2;
-                // рисуем горизонтальный штрих
-                canvas.drawLine(windowPos.x, windowPos.y, windowPos.x + strokeHeight, windowPos.y, paint);
-                canvas.drawLine(windowPos.x, windowPos.y, windowPos.x - strokeHeight, windowPos.y, paint);
+            // штрихи оси Y стоят на прямой x = 0
+            int axisX = windowCS.getX(0, ownCS);
+            if (axisX + 5 >= windowCS.getMin().x && axisX - 5 <= windowCS.getMax().x) {
+                // перебираем все целочисленные отсчёты нашей СК по оси Y
+                for (int i = (int) (ownCS.getMin().y); i <= (int) (ownCS.getMax().y); i++) {
+                    // находим положение этих штрихов на экране
+                    int y = windowCS.getY(i, ownCS);
+                    // каждый 10 штрих увеличенного размера
+                    float strokeHeight = i % DELIMITER_ORDER == 0 ? 5 : 2;
+                    // рисуем горизонтальный штрих
+                    canvas.drawLine(axisX - strokeHeight, y, axisX + strokeHeight, y, paint);
+                }
             }
         }
-        // восстанавливаем область рисования
-        canvas.restore();
     }
 
     /**
@@ -137,43 +363,6 @@ public class Task {
         return ownCS.getCoords(x, y, windowCS);
     }
 
-    /**
-     * Составление массива отрезков для рисования окружности в координатах окна
-     * У движка есть готовый метод рисования набора отрезков canvas.drawLines(). Этому методу передать массив вещественных чисел float размером в четыре раза большим, чем кол-во линий. В этом массиве все данные идут подряд: сначала x координата первой точки, потом y координата, потом x координата второй точки, потом y координата, следующие четыре элемента точно также описывают второй отрезок и т.д.
-     *
-     * @param centre центр окружности
-     * @param rad    радиус
-     * @return набор точек окружности
-     */
-    public float[] arrCircle(Vector2d centre, double rad) {
-        // радиус вдоль оси x
-        float radX = (float) (rad);
-        // радиус вдоль оси y
-        float radY = (float) (rad);
-        // кол-во отсчётов цикла
-        int loopCnt = 100;
-        // создаём массив координат опорных точек
-        float[] points = new float[loopCnt * 4];
-        // запускаем цикл
-        for (int i = 0; i < loopCnt; i++) {
-            // координаты первой точки в СК окна
-            double tmpXold = centre.x + radX * Math.cos(2 * Math.PI / loopCnt * i);
-            double tmpYold = centre.y + radY * Math.sin(2 * Math.PI / loopCnt * i);
-            Vector2i tmp = lastWindowCS.getCoords(tmpXold, tmpYold, ownCS);
-            // записываем x
-            points[i * 4] = (float) tmp.x;
-            // записываем y
-            points[i * 4 + 1] = lastWindowCS.getMax().y - (float) tmp.y;
-            // координаты второй точки в СК окна
-            tmp = lastWindowCS.getCoords(centre.x + radX * Math.cos(2 * Math.PI / loopCnt * (i + 1)), centre.y + radY * Math.sin(2 * Math.PI / loopCnt * (i + 1)), ownCS);
-            // записываем x
-            points[i * 4 + 2] = (float) tmp.x;
-            // записываем y
-            points[i * 4 + 3] = lastWindowCS.getMax().y - (float) tmp.y;
-        }
-        return points;
-    }
-
     /**
      * Добавить окружность
      *
@@ -227,6 +416,14 @@ public class Task {
             canvas.drawString(realPos.toString(), 0, 0, font, paint);
             // восстанавливаем область рисования
             canvas.restore();
+            // обводим точку под курсором
+            int hovered = pick(pos, windowCS);
+            if (hovered >= 0) {
+                Vector2i windowPos = windowCS.getCoords(points.getX(hovered), points.getY(hovered), ownCS);
+                paint.setMode(PaintMode.STROKE).setStrokeWidth(2).setColor(HOVER_COLOR);
+                canvas.drawRect(Rect.makeXYWH(windowPos.x - POINT_SIZE * 2, windowPos.y - POINT_SIZE * 2,
+                        POINT_SIZE * 4, POINT_SIZE * 4), paint);
+            }
         }
     }
 
@@ -238,21 +435,190 @@ public class Task {
      */
     private void renderTask(Canvas canvas, CoordinateSystem2i windowCS) {
         canvas.save();
-        // создаём перо
-        try (var paint = new Paint()) {
-            for (Point p : points) {
-                paint.setColor(p.getColor());
-                // y-координату разворачиваем, потому что у СК окна ось y направлена вниз,
-                // а в классическом представлении - вверх
-                Vector2i windowPos = windowCS.getCoords(p.pos.x, p.pos.y, ownCS);
-                // рисуем точку
-                canvas.drawRect(Rect.makeXYWH(windowPos.x - POINT_SIZE, windowPos.y - POINT_SIZE, POINT_SIZE * 2, POINT_SIZE * 2), paint);
+        // рисуем опубликованную версию, перебирая её столбцы без создания объектов точек
+        PointStore version = snapshot;
+        // точки, попавшие в один пиксель, дают один и тот же квадрат, поэтому
+        // для каждого пикселя запоминаем только множество последней точки;
+        // точки, квадрат которых целиком вне окна, пропускаем
+        int x0 = windowCS.getMin().x - POINT_SIZE;
+        int y0 = windowCS.getMin().y - POINT_SIZE;
+        int width = windowCS.getSize().x + POINT_SIZE * 2;
+        int height = windowCS.getSize().y + POINT_SIZE * 2;
+        // выделение рисуем, только если оно составлено по этой же версии
+        Selection current = selection;
+        Selection selected = current != null && current.getVersion() == version.getVersion() ? current : null;
+        // видимая область в СК задачи с запасом на размер квадрата точки
+        Vector2d margin = Vector2d.mul(ownCS.getSimilarity(windowCS), POINT_SIZE + 1);
+        Vector2d min = Vector2d.subtract(ownCS.getMin(), margin);
+        Vector2d max = Vector2d.sum(ownCS.getMax(), margin);
+        pixelSets.clear();
+        // видимые точки собираем в переиспользуемый список, а не передаём обработчику:
+        // обработчик захватывал бы локальные переменные и создавался бы в каждом кадре
+        visiblePoints.clear();
+        if (version.getVersion() == points.getVersion()) {
+            // квадродерево построено по тем же ячейкам, что и опубликованная версия,
+            // поэтому невидимые точки отсекаются целыми поддеревьями
+            quadTree.query(min, max, visiblePoints);
+        } else {
+            for (int i = 0; i < version.size(); i++) {
+                double x = version.getX(i);
+                double y = version.getY(i);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    visiblePoints.add(i);
+            }
+        }
+        for (int k = 0; k < visiblePoints.size(); k++) {
+            int i = visiblePoints.get(k);
+            // y-координату разворачиваем, потому что у СК окна ось y направлена вниз,
+            // а в классическом представлении - вверх
+            int px = windowCS.getX(version.getX(i), ownCS) - x0;
+            int py = windowCS.getY(version.getY(i), ownCS) - y0;
+            if (px < 0 || py < 0 || px >= width || py >= height)
+                continue;
+            int set = version.getSet(i);
+            if (selected != null && selected.get(i))
+                set |= SELECTED_PIXEL;
+            pixelSets.put(px * height + py, set);
+        }
+        // затем запечатанные сегменты журнала, хвост которого может сейчас дописываться;
+        // индекса у журнала нет, поэтому невидимые точки отсекаем до перевода в СК окна
+        for (PointLog.Segment segment : feed.getSealed()) {
+            int from = (int) Math.max(0, Math.min(segment.size(), feedFrom - segment.getOffset()));
+            for (int i = from; i < segment.size(); i++) {
+                double x = segment.getX(i);
+                double y = segment.getY(i);
+                if (x < min.x || x > max.x || y < min.y || y > max.y)
+                    continue;
+                int px = windowCS.getX(x, ownCS) - x0;
+                int py = windowCS.getY(y, ownCS) - y0;
+                if (px < 0 || py < 0 || px >= width || py >= height)
+                    continue;
+                pixelSets.put(px * height + py, segment.getSet(i));
             }
-
+        }
+        // раскладываем занятые пиксели по буферам групп цвета; буфер растёт с запасом
+        Arrays.fill(pointFill, 0);
+        for (int slot = pixelSets.next(-1); slot >= 0; slot = pixelSets.next(slot)) {
+            int pixel = pixelSets.keyAt(slot);
+            int g = pointGroup(pixelSets.valueAt(slot));
+            float[] buffer = pointBuffers[g];
+            int fill = pointFill[g];
+            if (fill + 2 > buffer.length)
+                pointBuffers[g] = buffer = Arrays.copyOf(buffer, Math.max(64, buffer.length + buffer.length / 2));
+            buffer[fill] = pixel / height + x0;
+            buffer[fill + 1] = pixel % height + y0;
+            pointFill[g] = fill + 2;
+        }
+        // drawPoints рисует массив целиком, поэтому буфер обрезаем точно по записанным точкам
+        for (int g = 0; g < pointBuffers.length; g++)
+            if (pointFill[g] != pointBuffers[g].length)
+                pointBuffers[g] = Arrays.copyOf(pointBuffers[g], pointFill[g]);
+        // рисуем по одному вызову на группу: квадратный конец штриха даёт тот же квадрат точки
+        if (pointPaint == null)
+            pointPaint = new Paint().setStrokeCap(PaintStrokeCap.SQUARE).setStrokeWidth(POINT_SIZE * 2);
+        for (int g = 0; g < pointBuffers.length; g++) {
+            if (pointFill[g] == 0)
+                continue;
+            pointPaint.setColor(g == PointStore.SETS.length ? SELECTION_COLOR : Point.getColor(PointStore.SETS[g]));
+            canvas.drawPoints(pointBuffers[g], pointPaint);
         }
         canvas.restore();
     }
 
+    /**
+     * Решить, рисовать ли задачу растром плотности. Видимые точки считаются по
+     * квадродереву (целые поддеревья - по сохранённому кол-ву), точки журнала - все.
+     * Порогов два: растр включается при {@link #DENSITY_ENTER} точек на пиксель,
+     * а выключается только при {@link #DENSITY_EXIT}, поэтому режим не мигает,
+     * когда плотность колеблется около порога
+     *
+     * @param windowCS СК окна
+     * @return флаг, рисовать ли растр плотности
+     */
+    private boolean isDense(CoordinateSystem2i windowCS) {
+        PointStore version = snapshot;
+        long visible = version.getVersion() == points.getVersion() ?
+                quadTree.count(ownCS.getMin(), ownCS.getMax()) : version.size();
+        for (PointLog.Segment segment : feed.getSealed())
+            visible += Math.max(0, Math.min(segment.size(), segment.getOffset() + segment.size() - feedFrom));
+        double perPixel = visible / ((double) windowCS.getSize().x * windowCS.getSize().y);
+        if (densityMode ? perPixel < DENSITY_EXIT : perPixel > DENSITY_ENTER)
+            densityMode = !densityMode;
+        return densityMode;
+    }
+
+    /**
+     * Рисование задачи растром плотности
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    private void renderDensity(Canvas canvas, CoordinateSystem2i windowCS) {
+        Vector2d min = ownCS.getMin();
+        Vector2d max = ownCS.getMax();
+        density.reset(windowCS.getSize().x, windowCS.getSize().y);
+        // опубликованная версия неизменяема, поэтому её можно раскладывать в нескольких потоках
+        density.bin(snapshot, min, max, windowCS, ownCS);
+        int x0 = windowCS.getMin().x;
+        int y0 = windowCS.getMin().y;
+        for (PointLog.Segment segment : feed.getSealed()) {
+            int from = (int) Math.max(0, Math.min(segment.size(), feedFrom - segment.getOffset()));
+            for (int i = from; i < segment.size(); i++) {
+                double x = segment.getX(i);
+                double y = segment.getY(i);
+                if (x >= min.x && x <= max.x && y >= min.y && y <= max.y)
+                    density.increment(windowCS.getX(x, ownCS) - x0, windowCS.getY(y, ownCS) - y0);
+            }
+        }
+        density.paint(canvas, windowCS);
+    }
+
+    /**
+     * Получить группу цвета для значения {@link #pixelSets}
+     *
+     * @param set множество точки с флагом выделения
+     * @return номер множества или кол-во множеств для выделенных точек
+     */
+    private static int pointGroup(int set) {
+        return (set & SELECTED_PIXEL) != 0 ? PointStore.SETS.length : set;
+    }
+
+    /**
+     * Рисование выпуклой оболочки одним путём
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    private void renderHull(Canvas canvas, CoordinateSystem2i windowCS) {
+        int n = hull.size();
+        if (n < 2)
+            return;
+        // переводим вершины в СК окна
+        float[] coords = new float[n * 2];
+        for (int i = 0; i < n; i++) {
+            coords[i * 2] = windowCS.getX(hull.getX(i), ownCS);
+            coords[i * 2 + 1] = windowCS.getY(hull.getY(i), ownCS);
+        }
+        try (var path = new Path().addPoly(coords, true);
+             var paint = new Paint().setMode(PaintMode.STROKE).setStrokeWidth(1).setColor(HULL_COLOR)) {
+            canvas.drawPath(path, paint);
+        }
+    }
+
+    /**
+     * Рисование найденной окружности
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    private void renderAnswer(Canvas canvas, CoordinateSystem2i windowCS) {
+        if (!solved || answer == null)
+            return;
+        try (var paint = new Paint().setMode(PaintMode.STROKE).setStrokeWidth(2).setColor(ANSWER_COLOR)) {
+            circleRenderer.draw(canvas, paint, answer.centre.x, answer.centre.y, answer.radius, windowCS, ownCS);
+        }
+    }
+
 
     /**
      * Рисование
@@ -263,10 +629,19 @@ public class Task {
     public void paint(Canvas canvas, CoordinateSystem2i windowCS) {
         // Сохраняем последнюю СК
         lastWindowCS = windowCS;
+        // новые сегменты журнала делают найденную окружность устаревшей
+        consumeFeed();
         // рисуем координатную сетку
         renderGrid(canvas, lastWindowCS);
-        // рисуем задачу
-        renderTask(canvas, windowCS);
+        // рисуем задачу: точками или, если они слишком плотные, растром плотности
+        if (isDense(windowCS))
+            renderDensity(canvas, windowCS);
+        else
+            renderTask(canvas, windowCS);
+        // рисуем выпуклую оболочку
+        renderHull(canvas, windowCS);
+        // рисуем ответ
+        renderAnswer(canvas, windowCS);
     }
 
     /**
@@ -284,8 +659,97 @@ public class Task {
         if (lastWindowCS == null) return;
         // получаем координаты центра масштабирования в СК задачи
         Vector2d realCenter = ownCS.getCoords(center, lastWindowCS);
+        Vector2d beforeMin = ownCS.getMin();
+        Vector2d beforeSize = ownCS.getSize();
         // выполняем масштабирование
         ownCS.scale(1 + delta * WHEEL_SENSITIVE, realCenter);
+        // центр вне области: СК не изменилась
+        if (ownCS.getMin() == beforeMin)
+            return;
+        // прокрутка колеса даёт много мелких шагов, история сливает их в один
+        history.pushScale(beforeMin, beforeSize, ownCS.getMin(), ownCS.getSize());
+    }
+
+    /**
+     * Задать границы СК задачи, не записывая шаг в историю
+     *
+     * @param min  минимальные координаты
+     * @param size размер
+     */
+    void setBounds(Vector2d min, Vector2d size) {
+        ownCS.set(min.x, min.y, size.x, size.y);
+    }
+
+    /**
+     * Отменить последнее изменение задачи
+     *
+     * @return флаг, было ли что отменять
+     */
+    public boolean undo() {
+        String description = history.undo(this);
+        if (description == null) {
+            PanelLog.info("отменять нечего");
+            return false;
+        }
+        PanelLog.info("отменено: " + description + ", шагов для отмены " + history.getUndoSize() +
+                ", для повтора " + history.getRedoSize());
+        return true;
+    }
+
+    /**
+     * Повторить отменённое изменение задачи
+     *
+     * @return флаг, было ли что повторять
+     */
+    public boolean redo() {
+        String description = history.redo(this);
+        if (description == null) {
+            PanelLog.info("повторять нечего");
+            return false;
+        }
+        PanelLog.info("повторено: " + description + ", шагов для отмены " + history.getUndoSize() +
+                ", для повтора " + history.getRedoSize());
+        return true;
+    }
+
+    /**
+     * Получить историю изменений задачи
+     *
+     * @return история
+     */
+    @JsonIgnore
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * Составить отчёт о памяти задачи по разделам. Снимки делят блоки
+     * с хранилищем, поэтому отдельно не учитываются
+     *
+     * @return отчёт
+     */
+    @JsonIgnore
+    public MemoryReport getMemoryReport() {
+        MemoryReport report = new MemoryReport(points.size());
+        long ids = points.getIdBytes();
+        long attributes = points.getAttributeBytes();
+        report.add("точки (координаты и множества)", points.getHeapBytes() - ids - attributes,
+                points.getOffHeapBytes());
+        report.add("номера точек", ids, 0);
+        report.add("атрибуты точек", attributes, 0);
+        report.add("QuadTree", quadTree.getBytes(), 0);
+        report.add("KdTree", kdTree.getBytes(), 0);
+        report.add("выпуклая оболочка", hull.getBytes(), 0);
+        report.add("журнал потока", feed.getBytes(), 0);
+        report.add("оболочка потока", feedHull.getBytes(), 0);
+        report.add("история правок", history.getBytes(), 0);
+        long buffers = MemoryLayout.of(pointBuffers) + MemoryLayout.of(pointFill);
+        for (float[] buffer : pointBuffers)
+            buffers += MemoryLayout.of(buffer);
+        report.add("буфер отрисовки", pixelSets.getBytes() + visiblePoints.getBytes() + buffers +
+                circleRenderer.getBytes(), 0);
+        report.add("растр плотности", density.getBytes(), 0);
+        return report;
     }
 
 
@@ -297,6 +761,16 @@ public class Task {
      */
     public void click(Vector2i pos, MouseButton mouseButton) {
         if (lastWindowCS == null) return;
+        // если под курсором уже есть точка, выбираем её, а не добавляем новую
+        int picked = pick(pos, lastWindowCS);
+        if (picked >= 0) {
+            // правой кнопкой точка удаляется
+            if (mouseButton == MouseButton.SECONDARY)
+                removePoint(points.getId(picked));
+            else
+                PanelLog.info("выбрана точка №" + points.getId(picked) + " " + points.get(picked));
+            return;
+        }
         // получаем положение на экране
         Vector2d taskPos = ownCS.getCoords(pos, lastWindowCS);
         // если левая кнопка мыши, добавляем в первое множество
@@ -327,17 +801,57 @@ public class Task {
         // в координаты СК задачи
         CoordinateSystem2i addGrid = new CoordinateSystem2i(30, 30);
 
+        double[] xs = new double[cnt];
+        double[] ys = new double[cnt];
         // повторяем заданное количество раз
         for (int i = 0; i < cnt; i++) {
             // получаем случайные координаты на решётке
             Vector2i gridPos = addGrid.getRandomCoords();
             // получаем координаты в СК задачи
             Vector2d pos = ownCS.getCoords(gridPos, addGrid);
-            // сработает примерно в половине случаев
-
-            addPoint(pos, Point.PointSet.FIRST_SET);
+            xs[i] = pos.x;
+            ys[i] = pos.y;
+        }
+        // добавляем все точки одним пакетом
+        addPoints(xs, ys, cnt, Point.PointSet.FIRST_SET);
+    }
 
+    /**
+     * Добавить точки пакетом: хранилище растёт один раз, индексы обновляются
+     * целиком, а в лог выводится одна строка вместо строки на каждую точку
+     *
+     * @param xs       координаты X
+     * @param ys       координаты Y
+     * @param n        кол-во точек
+     * @param pointSet множество
+     */
+    public void addPoints(double[] xs, double[] ys, int n, Point.PointSet pointSet) {
+        if (n <= 0)
+            return;
+        solved = false;
+        int from = points.size();
+        points.ensureCapacity(from + n);
+        for (int i = 0; i < n; i++) {
+            points.add(xs[i], ys[i], pointSet);
+            hull.insert(xs[i], ys[i]);
         }
+        // если добавлено больше точек, чем было, дешевле построить дерево заново (параллельно)
+        if (n > from) {
+            quadTree.rebuild();
+            kdTree.rebuild();
+        } else {
+            for (int i = from; i < from + n; i++) {
+                quadTree.insert(i);
+                kdTree.insert(i);
+            }
+            // дерево перестраивается только после всего пакета
+            kdTree.compact();
+        }
+        publish();
+        // номера добавленных точек идут подряд, поэтому шаг хранит только их диапазон
+        history.push(new History.PointsDelta(points.getId(from), n));
+        PanelLog.info(n + " точек добавлено в " + Point.getSetName(pointSet) + ", всего " + points.size() +
+                ", вершин оболочки " + hull.size());
     }
 
     /**
@@ -349,16 +863,332 @@ public class Task {
     public void addPoint(Vector2d pos, Point.PointSet pointSet) {
         solved = false;
         Point newPoint = new Point(pos, pointSet);
-        points.add(newPoint);
+        int index = points.add(pos.x, pos.y, pointSet);
+        quadTree.insert(index);
+        kdTree.insert(index);
+        kdTree.compact();
+        hull.insert(pos);
+        publish();
+        history.push(new History.PointsDelta(points.getId(index), 1));
         PanelLog.info("точка " + newPoint + " добавлена в " + newPoint.getSetName());
     }
 
+    /**
+     * Удалить точку по её номеру
+     *
+     * @param id номер точки
+     * @return флаг, была ли точка удалена
+     */
+    public boolean removePoint(int id) {
+        return removePoints(new int[]{id}) == 1;
+    }
+
+    /**
+     * Удалить точки по номерам. Каждая точка удаляется за O(1): на её место
+     * в хранилище переносится последняя, индексы обновляются точечно.
+     * Оболочка перестраивается, только если удалена её вершина,
+     * ответ пересчитывается, только если удалённая точка лежала на его границе
+     *
+     * @param ids номера точек
+     * @return кол-во удалённых точек
+     */
+    public int removePoints(int[] ids) {
+        History.Packed removed = new History.Packed(ids.length);
+        int cnt = deletePoints(ids, removed);
+        if (cnt == 0)
+            return 0;
+        history.push(new History.PointsDelta(removed, false));
+        PanelLog.info(cnt + " точек удалено, осталось " + points.size());
+        return cnt;
+    }
+
+    /**
+     * Удалить точки по номерам, не записывая шаг в историю
+     *
+     * @param ids номера точек
+     * @param out набор, в который дописываются удалённые точки
+     * @return кол-во удалённых точек
+     */
+    int deletePoints(int[] ids, History.Packed out) {
+        int cnt = 0;
+        // удалённые вершины оболочки (массив заводится при первой такой вершине)
+        boolean[] removedVertices = null;
+        boolean answerChanged = false;
+        // как и при пакетном добавлении, большой пакет выгоднее перестроить целиком,
+        // чем удалять и перенумеровывать каждую точку в индексах
+        boolean rebuild = ids.length > points.size() / 8;
+        for (int id : ids) {
+            int slot = points.getSlot(id);
+            if (slot < 0)
+                continue;
+            double x = points.getX(slot);
+            double y = points.getY(slot);
+            out.append(points, slot);
+            int vertex = hull.indexOf(x, y);
+            if (vertex >= 0) {
+                if (removedVertices == null)
+                    removedVertices = new boolean[hull.size()];
+                removedVertices[vertex] = true;
+            }
+            answerChanged |= answer != null && !answer.strictlyContains(x, y);
+            if (!rebuild) {
+                // убираем точку из индексов, пока её координаты ещё лежат в хранилище
+                boolean found = quadTree.remove(slot) & kdTree.remove(slot);
+                // последняя точка переедет на место удалённой
+                int last = points.size() - 1;
+                if (last != slot)
+                    found &= quadTree.relabel(last, slot) & kdTree.relabel(last, slot);
+                // & вместо &&: обновляются все индексы, даже если один из них точку не нашёл;
+                // такой индекс рассогласован с хранилищем, поэтому индексы перестраиваются целиком
+                rebuild = !found;
+            }
+            points.swapRemove(slot);
+            cnt++;
+        }
+        if (cnt == 0)
+            return 0;
+        if (rebuild) {
+            quadTree.rebuild();
+            kdTree.rebuild();
+        } else {
+            kdTree.compact();
+        }
+        if (removedVertices != null)
+            repairHull(removedVertices);
+        if (answerChanged) {
+            if (solved && !points.isEmpty()) {
+                solve();
+            } else {
+                answer = null;
+                solved = false;
+            }
+        }
+        publish();
+        return cnt;
+    }
+
+    /**
+     * Восстановить оболочку после удаления её вершин, не перебирая все точки.
+     * Новые вершины могут появиться только в «шапке» между уцелевшими соседями
+     * a и b каждой цепочки удалённых вершин: остальные точки лежат внутри оболочки
+     * уцелевших вершин. Поэтому кандидаты берутся из квадродерева по габариту цепочки
+     * a, v1..vk, b и вставляются в оболочку уцелевших вершин
+     *
+     * @param removed флаги удалённых вершин по номерам в оболочке до удаления
+     */
+    private void repairHull(boolean[] removed) {
+        int n = removed.length;
+        double[] xs = hull.copyXs();
+        double[] ys = hull.copyYs();
+        hull.removeVertices(removed);
+        // с какой вершины начинать обход, чтобы не разрезать цепочку удалённых вершин
+        int start = -1;
+        for (int i = 0; i < n && start < 0; i++)
+            if (!removed[i])
+                start = i;
+        if (start < 0) {
+            // удалены все вершины: кандидаты - все точки внутри прежней оболочки
+            insertCandidates(xs, ys, 0, n - 1);
+            return;
+        }
+        for (int k = 1; k <= n; k++) {
+            int i = (start + k) % n;
+            int a = (i - 1 + n) % n;
+            // i - начало цепочки удалённых вершин, a - её уцелевший сосед
+            if (!removed[i] || removed[a])
+                continue;
+            int b = i;
+            while (removed[b])
+                b = (b + 1) % n;
+            insertCandidates(xs, ys, a, b);
+        }
+    }
+
+    /**
+     * Вставить в оболочку точки, лежащие в габарите вершин прежней оболочки от a до b
+     *
+     * @param xs координаты X вершин прежней оболочки
+     * @param ys координаты Y вершин прежней оболочки
+     * @param a  номер первой вершины
+     * @param b  номер последней вершины (обход по кругу, при a == b - вся оболочка)
+     */
+    private void insertCandidates(double[] xs, double[] ys, int a, int b) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int n = xs.length;
+        // кол-во шагов от a до b; при a == b (уцелела одна вершина) цепочка обходит всю оболочку
+        int steps = a == b ? n - 1 : (b - a + n) % n;
+        for (int k = 0, i = a; k <= steps; k++, i = (i + 1) % n) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        quadTree.query(new Vector2d(minX, minY), new Vector2d(maxX, maxY),
+                i -> hull.insert(points.getX(i), points.getY(i)));
+    }
+
+    /**
+     * Вернуть удалённые точки под их прежними номерами, не записывая шаг в историю
+     *
+     * @param restored точки
+     */
+    void restorePoints(History.Packed restored) {
+        int n = restored.n;
+        if (n == 0)
+            return;
+        solved = false;
+        int from = points.size();
+        points.ensureCapacity(from + n);
+        for (int i = 0; i < n; i++) {
+            double x = restored.coords[i * 2];
+            double y = restored.coords[i * 2 + 1];
+            int slot = points.restore(x, y, PointStore.SETS[restored.sets[i]], restored.ids[i]);
+            restored.restoreAttributes(i, points, slot);
+            hull.insert(x, y);
+            // ответ, не накрывающий возвращённую точку, больше не годится
+            if (answer != null && !answer.strictlyContains(x, y))
+                answer = null;
+        }
+        // как и при пакетном добавлении, большой пакет выгоднее перестроить целиком
+        if (n > from) {
+            quadTree.rebuild();
+            kdTree.rebuild();
+        } else {
+            for (int i = from; i < from + n; i++) {
+                quadTree.insert(i);
+                kdTree.insert(i);
+            }
+            // дерево перестраивается только после всего пакета
+            kdTree.compact();
+        }
+        publish();
+    }
+
+    /**
+     * Переупорядочить точки вдоль кривой Мортона, чтобы близкие точки лежали
+     * рядом в памяти, и перестроить индексы. Номера точек не меняются,
+     * поэтому шаг в историю не записывается
+     */
+    public void sortPoints() {
+        if (points.size() < 2)
+            return;
+        long start = System.nanoTime();
+        points.reorder(ZOrder.order(points));
+        quadTree.rebuild();
+        kdTree.rebuild();
+        publish();
+        PanelLog.info(points.size() + " точек упорядочено по Z-кривой за " +
+                String.format("%.2f", (System.nanoTime() - start) / 1e6).replace(",", ".") + " мс");
+    }
+
     /**
      * Очистить задачу
      */
     public void clear() {
+        // уже запечатанные точки журнала скрываем, сам журнал принадлежит писателю
+        PointLog.Segment[] segments = feed.getSealed();
+        if (segments.length > 0) {
+            PointLog.Segment last = segments[segments.length - 1];
+            feedFrom = last.getOffset() + last.size();
+        }
+        feedConsumed = feedFrom;
+        feedHull.clear();
+        // скрытые сегменты больше не нужны ни отрисовке, ни решателю
+        feed.trim(feedFrom);
+        History.Packed removed = new History.Packed(points.size());
+        clearPoints(removed);
+        if (removed.n > 0)
+            history.push(new History.PointsDelta(removed, true));
+    }
+
+    /**
+     * Очистить задачу, не записывая шаг в историю
+     *
+     * @param out набор, в который дописываются удалённые точки
+     */
+    void clearPoints(History.Packed out) {
+        for (int i = 0; i < points.size(); i++)
+            out.append(points, i);
         points.clear();
+        quadTree.clear();
+        kdTree.clear();
+        hull.clear();
+        answer = null;
         solved = false;
+        publish();
+    }
+
+    /**
+     * Опубликовать снимок текущей версии точек (O(1))
+     */
+    private void publish() {
+        snapshot = points.snapshot();
+    }
+
+    /**
+     * Получить последний опубликованный снимок точек. Снимок неизменяем,
+     * поэтому его можно читать из любого потока без блокировок
+     *
+     * @return снимок точек
+     */
+    @JsonIgnore
+    public PointStore getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Получить квадродерево над точками задачи
+     *
+     * @return квадродерево
+     */
+    @JsonIgnore
+    public QuadTree getQuadTree() {
+        return quadTree;
+    }
+
+    /**
+     * Получить KD-дерево над точками задачи
+     *
+     * @return KD-дерево
+     */
+    @JsonIgnore
+    public KdTree getKdTree() {
+        return kdTree;
+    }
+
+    /**
+     * Найти точку под курсором
+     *
+     * @param pos      положение курсора
+     * @param windowCS СК окна
+     * @return индекс ближайшей точки в радиусе попадания или -1, если такой нет
+     */
+    public int pick(Vector2i pos, CoordinateSystem2i windowCS) {
+        Vector2d realPos = getRealPos(pos.x, pos.y, windowCS);
+        // переводим радиус попадания из пикселей в единицы СК задачи
+        double radius = PICK_RADIUS * ownCS.getSize().x / windowCS.getSize().x;
+        return kdTree.nearest(realPos.x, realPos.y, radius);
+    }
+
+    /**
+     * Получить выпуклую оболочку точек задачи
+     *
+     * @return выпуклая оболочка
+     */
+    @JsonIgnore
+    public ConvexHull getHull() {
+        return hull;
+    }
+
+    /**
+     * Получить найденную окружность
+     *
+     * @return найденная окружность или null, если задача не решена
+     */
+    @JsonIgnore
+    public Circle getAnswer() {
+        return solved ? answer : null;
     }
 
     /**
@@ -366,28 +1196,255 @@ public class Task {
      */
 
     public void solve() {
+        // минимальная окружность множества совпадает с минимальной окружностью
+        // его выпуклой оболочки, поэтому решаем только по её вершинам.
+        // Обычно вершин меньше CircleSolver.FLOAT_THRESHOLD, и решатель работает в double:
+        // переход к оболочке сокращает перебор сильнее, чем float. Поиск во float
+        // включается, когда вершин много (например, точки лежат на окружности)
+        consumeFeed();
+        int n = hull.size();
+        int m = feedHull.size();
+        double[] xs = Arrays.copyOf(hull.copyXs(), n + m);
+        double[] ys = Arrays.copyOf(hull.copyYs(), n + m);
+        // точки журнала учитываем вершинами их собственной оболочки
+        for (int i = 0; i < m; i++) {
+            xs[n + i] = feedHull.getX(i);
+            ys[n + i] = feedHull.getY(i);
+        }
+        answer = CircleSolver.solve(xs, ys, n + m);
+        // задача решена
+        solved = true;
+    }
 
-        Point centr;
-        double rad = 10000000;
-        // перебираем пары точек
-        for (int i = 0; i < points.size(); i++) {
-            Point cent = points.get(i);
-            double dist = 0;
-            for (int j = i + 1; j < points.size(); j++) {
-                Point a = points.get(i);
-                if (Math.sqrt((cent.pos.x - a.pos.x) * (cent.pos.x - a.pos.x) + (cent.pos.y - a.pos.y) * (cent.pos.y - a.pos.y)) > dist) {
-                    dist = (cent.pos.x - a.pos.x) * (cent.pos.x - a.pos.x) + (cent.pos.y - a.pos.y) * (cent.pos.y - a.pos.y);
-                    centr = cent;
-                }
-            }
-            if (dist < rad) rad = dist;
+
+    /**
+     * Выделить точки, проходящие фильтр. Фильтр собирается в цепочку MethodHandle
+     * и проверяет опубликованный снимок параллельно
+     *
+     * @param expression выражение фильтра, например {@code x > 0 && dist(0, 0) < 5}
+     * @return выделение
+     * @throws IllegalArgumentException ошибка в выражении
+     */
+    public Selection select(String expression) {
+        long start = System.nanoTime();
+        PointFilter filter = PointFilter.compile(expression);
+        return setSelection(filter.select(snapshot), start);
+    }
+
+    /**
+     * Выделить точки в прямоугольнике. Кандидаты берутся из квадродерева:
+     * узлы, целиком лежащие в прямоугольнике, выделяются без проверки точек
+     *
+     * @param min минимальные координаты прямоугольника в СК задачи
+     * @param max максимальные координаты прямоугольника в СК задачи
+     * @return выделение
+     */
+    public Selection selectRect(Vector2d min, Vector2d max) {
+        long start = System.nanoTime();
+        Selection res = new Selection(points.size(), snapshot.getVersion());
+        quadTree.query(min, max, res::set);
+        return setSelection(res, start);
+    }
+
+    /**
+     * Выделить точки внутри лассо. Кандидаты берутся из квадродерева:
+     * узлы, которые граница лассо не пересекает, выделяются или отбрасываются целиком
+     *
+     * @param lasso лассо в СК задачи
+     * @return выделение
+     */
+    public Selection selectLasso(Lasso lasso) {
+        long start = System.nanoTime();
+        Selection res = new Selection(points.size(), snapshot.getVersion());
+        quadTree.query(lasso, res::set);
+        return setSelection(res, start);
+    }
+
+    /**
+     * Запомнить выделение и вывести его размер в лог
+     *
+     * @param res   выделение
+     * @param start время начала выделения, нс
+     * @return выделение
+     */
+    private Selection setSelection(Selection res, long start) {
+        selection = res;
+        PanelLog.info(res.cardinality() + " из " + res.size() + " точек выделено за " +
+                String.format("%.2f", (System.nanoTime() - start) / 1e6).replace(",", ".") + " мс");
+        return res;
+    }
+
+    /**
+     * Получить выделение точек
+     *
+     * @return выделение или null, если ничего не выделено или точки с тех пор менялись
+     */
+    @JsonIgnore
+    public Selection getSelection() {
+        Selection res = selection;
+        return res != null && res.getVersion() == snapshot.getVersion() ? res : null;
+    }
+
+    /**
+     * Снять выделение
+     */
+    public void clearSelection() {
+        selection = null;
+    }
+
+    /**
+     * Удалить выделенные точки (одним шагом истории)
+     *
+     * @return кол-во удалённых точек
+     */
+    public int removeSelection() {
+        Selection res = getSelection();
+        if (res == null || res.isEmpty())
+            return 0;
+        selection = null;
+        return removePoints(res.toIds(points));
+    }
+
+    /**
+     * Перенести выделенные точки в следующее множество (после множества
+     * первой выделенной точки, по кругу). Ячейки точек не меняются,
+     * поэтому выделение сохраняется
+     *
+     * @return кол-во перенесённых точек
+     */
+    public int moveSelection() {
+        Selection res = getSelection();
+        if (res == null || res.isEmpty())
+            return 0;
+        int next = (points.getSetType(res.first()).ordinal() + 1) % PointStore.SETS.length;
+        return moveSelection(PointStore.SETS[next]);
+    }
+
+    /**
+     * Перенести выделенные точки в множество (одним шагом истории)
+     *
+     * @param pointSet множество
+     * @return кол-во перенесённых точек
+     */
+    public int moveSelection(Point.PointSet pointSet) {
+        Selection res = getSelection();
+        if (res == null || res.isEmpty())
+            return 0;
+        int[] ids = res.toIds(points);
+        byte[] before = new byte[ids.length];
+        int[] cnt = {0};
+        res.forEach(i -> {
+            before[cnt[0]++] = (byte) points.getSetType(i).ordinal();
+            points.setSetType(i, pointSet);
+        });
+        publish();
+        selection = res.withVersion(snapshot.getVersion());
+        history.push(new History.SetsDelta(ids, before, pointSet));
+        PanelLog.info(ids.length + " точек перенесено в " + Point.getSetName(pointSet));
+        return ids.length;
+    }
+
+    /**
+     * Вернуть точкам прежние множества, не записывая шаг в историю
+     *
+     * @param ids  номера точек
+     * @param sets множества точек (порядковые номера)
+     */
+    void setPointSets(int[] ids, byte[] sets) {
+        for (int i = 0; i < ids.length; i++) {
+            int slot = points.getSlot(ids[i]);
+            if (slot >= 0)
+                points.setSetType(slot, PointStore.SETS[sets[i]]);
         }
+        republish();
+    }
 
+    /**
+     * Перенести точки в множество, не записывая шаг в историю
+     *
+     * @param ids      номера точек
+     * @param pointSet множество
+     */
+    void setPointSets(int[] ids, Point.PointSet pointSet) {
+        for (int id : ids) {
+            int slot = points.getSlot(id);
+            if (slot >= 0)
+                points.setSetType(slot, pointSet);
+        }
+        republish();
+    }
 
-        // задача решена
+    /**
+     * Опубликовать снимок после смены множеств: ячейки точек не меняются,
+     * поэтому действующее выделение переносится на новую версию
+     */
+    private void republish() {
+        Selection res = getSelection();
+        publish();
+        if (res != null)
+            selection = res.withVersion(snapshot.getVersion());
+    }
+
+    /**
+     * Решить задачу только для выделенных точек: окружность строится
+     * по вершинам выпуклой оболочки выделения
+     */
+    public void solveSelection() {
+        Selection res = getSelection();
+        if (res == null || res.isEmpty()) {
+            PanelLog.warning("нет выделенных точек");
+            return;
+        }
+        ConvexHull part = new ConvexHull();
+        res.forEach(i -> part.insert(points.getX(i), points.getY(i)));
+        answer = CircleSolver.solve(part.copyXs(), part.copyYs(), part.size());
         solved = true;
+        PanelLog.info("задача решена для " + res.cardinality() + " выделенных точек");
+    }
+
+    /**
+     * Учесть в оболочке журнала сегменты, запечатанные с прошлого раза.
+     * Если такие сегменты есть, найденная окружность устаревает
+     */
+    private void consumeFeed() {
+        for (PointLog.Segment segment : feed.getSealed()) {
+            long end = segment.getOffset() + segment.size();
+            if (end <= feedConsumed)
+                continue;
+            int from = (int) Math.max(0, Math.max(feedFrom, feedConsumed) - segment.getOffset());
+            for (int i = from; i < segment.size(); i++)
+                feedHull.insert(segment.getX(i), segment.getY(i));
+            feedConsumed = end;
+            solved = false;
+        }
     }
 
+    /**
+     * Получить журнал точек непрерывного потока. Дописывать в него должен
+     * один поток; отрисовка и решение учитывают только запечатанные сегменты
+     *
+     * @return журнал точек
+     */
+    @JsonIgnore
+    public PointLog getFeed() {
+        return feed;
+    }
+
+    /**
+     * Освободить объекты отрисовки вне кучи: записанную сетку и перо точек.
+     * Вызывается, когда задачу заменяет другая (если задачу снова нарисуют,
+     * объекты создадутся заново)
+     */
+    public void close() {
+        if (gridPicture != null) {
+            gridPicture.close();
+            gridPicture = null;
+        }
+        if (pointPaint != null) {
+            pointPaint.close();
+            pointPaint = null;
+        }
+    }
 
     /**
      * Отмена решения задачи
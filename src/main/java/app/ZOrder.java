@@ -0,0 +1,315 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Упорядочивание точек вдоль кривой Мортона (Z-порядок).
+ * Координаты квантуются по габариту точек в 32-битные целые, биты X и Y
+ * чередуются в 64-битный ключ, а ключи сортируются параллельной поразрядной сортировкой.
+ * После перестановки близкие на плоскости точки лежат рядом и в памяти,
+ * что ускоряет построение индексов и обход точек в запросах и при отрисовке
+ */
+public class ZOrder {
+    /**
+     * Системное свойство, отключающее сортировку точек при загрузке (-Dgeom.zorder=false)
+     */
+    public static final String PROPERTY = "geom.zorder";
+    /**
+     * Кол-во бит в разряде поразрядной сортировки
+     * (11 бит дают 6 проходов вместо 8 при гистограмме, ещё помещающейся в кэш)
+     */
+    private static final int RADIX_BITS = 11;
+    /**
+     * Кол-во значений разряда
+     */
+    private static final int RADIX = 1 << RADIX_BITS;
+    /**
+     * Кол-во разрядов в ключе
+     */
+    private static final int PASSES = (Long.SIZE + RADIX_BITS - 1) / RADIX_BITS;
+    /**
+     * Минимальное кол-во ключей на один параллельный блок
+     */
+    private static final int PARALLEL_THRESHOLD = 65536;
+    /**
+     * Наибольшее значение квантованной координаты
+     */
+    private static final double QUANT_MAX = 4294967295.0;
+
+    /**
+     * Конструктор утилитного класса
+     */
+    private ZOrder() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+
+    /**
+     * Проверить, нужно ли сортировать точки при загрузке
+     *
+     * @return флаг, включена ли сортировка при загрузке
+     */
+    public static boolean isEnabledOnLoad() {
+        return Boolean.parseBoolean(System.getProperty(PROPERTY, "true"));
+    }
+
+    /**
+     * Раздвинуть биты 32-битного числа через один (бит i переходит в бит 2i)
+     *
+     * @param v число (используются младшие 32 бита)
+     * @return раздвинутые биты
+     */
+    private static long spread(long v) {
+        v &= 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    /**
+     * Получить ключ Мортона квантованных координат
+     *
+     * @param qx квантованная координата X (беззнаковое 32-битное)
+     * @param qy квантованная координата Y (беззнаковое 32-битное)
+     * @return ключ: биты X на чётных позициях, биты Y на нечётных
+     */
+    public static long key(int qx, int qy) {
+        return spread(qx) | (spread(qy) << 1);
+    }
+
+    /**
+     * Получить ключи Мортона точек хранилища, квантуя координаты по их габариту
+     *
+     * @param store хранилище точек
+     * @return ключи по ячейкам
+     */
+    public static long[] keys(PointStore store) {
+        int n = store.size();
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double x = store.getX(i);
+            double y = store.getY(i);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        // вырожденный габарит (все точки на одной прямой) квантуется в ноль
+        double sx = maxX > minX ? QUANT_MAX / (maxX - minX) : 0;
+        double sy = maxY > minY ? QUANT_MAX / (maxY - minY) : 0;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            // long -> int сохраняет младшие 32 бита, то есть беззнаковое значение
+            int qx = (int) (long) ((store.getX(i) - minX) * sx);
+            int qy = (int) (long) ((store.getY(i) - minY) * sy);
+            keys[i] = key(qx, qy);
+        }
+        return keys;
+    }
+
+    /**
+     * Получить порядок ячеек хранилища вдоль кривой Мортона
+     *
+     * @param store хранилище точек
+     * @return ячейки в Z-порядке
+     */
+    public static int[] order(PointStore store) {
+        long[] keys = keys(store);
+        int[] perm = new int[keys.length];
+        for (int i = 0; i < perm.length; i++)
+            perm[i] = i;
+        sort(keys, perm);
+        return perm;
+    }
+
+    /**
+     * Устойчивая поразрядная сортировка беззнаковых ключей вместе с перестановкой.
+     * Разряды идут от младшего к старшему, разряд, одинаковый у всех ключей, пропускается.
+     * Большие массивы делятся на блоки: гистограммы и раскладка блоков считаются параллельно
+     *
+     * @param keys ключи (сортируются на месте)
+     * @param perm значения, переставляемые вместе с ключами
+     */
+    public static void sort(long[] keys, int[] perm) {
+        int n = keys.length;
+        if (n < 2)
+            return;
+        int blocks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, n / PARALLEL_THRESHOLD));
+        long[] srcKeys = keys, dstKeys = new long[n];
+        int[] srcPerm = perm, dstPerm = new int[n];
+        int[][] counts = new int[blocks][RADIX];
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+            for (int[] c : counts)
+                Arrays.fill(c, 0);
+            run(srcKeys, srcPerm, dstKeys, dstPerm, counts, shift, false);
+            // если все ключи совпадают в этом разряде, раскладка ничего не меняет
+            if (isSingleDigit(counts, n))
+                continue;
+            // гистограммы превращаем в начальные позиции каждого разряда в каждом блоке
+            int offset = 0;
+            for (int d = 0; d < RADIX; d++) {
+                for (int[] c : counts) {
+                    int cnt = c[d];
+                    c[d] = offset;
+                    offset += cnt;
+                }
+            }
+            run(srcKeys, srcPerm, dstKeys, dstPerm, counts, shift, true);
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            int[] tp = srcPerm;
+            srcPerm = dstPerm;
+            dstPerm = tp;
+        }
+        // после нечётного числа раскладок результат лежит во временных массивах
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcPerm, 0, perm, 0, n);
+        }
+    }
+
+    /**
+     * Проверить, попадают ли все ключи в одно значение разряда
+     *
+     * @param counts гистограммы блоков
+     * @param n      кол-во ключей
+     * @return флаг, одинаков ли разряд у всех ключей
+     */
+    private static boolean isSingleDigit(int[][] counts, int n) {
+        for (int d = 0; d < RADIX; d++) {
+            int total = 0;
+            for (int[] c : counts)
+                total += c[d];
+            if (total == n)
+                return true;
+            if (total > 0)
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Выполнить фазу прохода по всем блокам (параллельно, если блоков больше одного)
+     *
+     * @param srcKeys исходные ключи
+     * @param srcPerm исходная перестановка
+     * @param dstKeys ключи после раскладки
+     * @param dstPerm перестановка после раскладки
+     * @param counts  гистограммы или начальные позиции блоков
+     * @param shift   сдвиг разряда
+     * @param scatter флаг раскладки (иначе подсчёт гистограмм)
+     */
+    private static void run(long[] srcKeys, int[] srcPerm, long[] dstKeys, int[] dstPerm,
+                            int[][] counts, int shift, boolean scatter) {
+        int blocks = counts.length;
+        int n = srcKeys.length;
+        if (blocks == 1) {
+            new BlockTask(srcKeys, srcPerm, dstKeys, dstPerm, counts[0], shift, 0, n, scatter).compute();
+            return;
+        }
+        List<BlockTask> tasks = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            int from = (int) ((long) n * b / blocks);
+            int to = (int) ((long) n * (b + 1) / blocks);
+            tasks.add(new BlockTask(srcKeys, srcPerm, dstKeys, dstPerm, counts[b], shift, from, to, scatter));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Фаза прохода по одному блоку ключей
+     */
+    private static class BlockTask extends RecursiveAction {
+        /**
+         * Исходные ключи
+         */
+        private final long[] srcKeys;
+        /**
+         * Исходная перестановка
+         */
+        private final int[] srcPerm;
+        /**
+         * Ключи после раскладки
+         */
+        private final long[] dstKeys;
+        /**
+         * Перестановка после раскладки
+         */
+        private final int[] dstPerm;
+        /**
+         * Гистограмма блока или следующие позиции записи по значениям разряда
+         */
+        private final int[] count;
+        /**
+         * Сдвиг разряда
+         */
+        private final int shift;
+        /**
+         * Начало блока
+         */
+        private final int from;
+        /**
+         * Конец блока (не включительно)
+         */
+        private final int to;
+        /**
+         * Флаг раскладки (иначе подсчёт гистограммы)
+         */
+        private final boolean scatter;
+
+        /**
+         * Конструктор фазы
+         *
+         * @param srcKeys исходные ключи
+         * @param srcPerm исходная перестановка
+         * @param dstKeys ключи после раскладки
+         * @param dstPerm перестановка после раскладки
+         * @param count   гистограмма блока или начальные позиции
+         * @param shift   сдвиг разряда
+         * @param from    начало блока
+         * @param to      конец блока (не включительно)
+         * @param scatter флаг раскладки
+         */
+        BlockTask(long[] srcKeys, int[] srcPerm, long[] dstKeys, int[] dstPerm,
+                  int[] count, int shift, int from, int to, boolean scatter) {
+            this.srcKeys = srcKeys;
+            this.srcPerm = srcPerm;
+            this.dstKeys = dstKeys;
+            this.dstPerm = dstPerm;
+            this.count = count;
+            this.shift = shift;
+            this.from = from;
+            this.to = to;
+            this.scatter = scatter;
+        }
+
+        @Override
+        protected void compute() {
+            if (!scatter) {
+                for (int i = from; i < to; i++)
+                    count[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                long k = srcKeys[i];
+                int pos = count[(int) (k >>> shift) & (RADIX - 1)]++;
+                dstKeys[pos] = k;
+                dstPerm[pos] = srcPerm[i];
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package controls;
 
 import io.github.humbleui.jwm.Window;
+import misc.IntArrayList;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,7 +28,7 @@ public class InputFactory {
     /**
      * группа индексов для переключения по tab
      */
-    private static final List<Integer> tabGroup = new ArrayList<>();
+    private static final IntArrayList tabGroup = new IntArrayList();
     /**
      * положение в tab группе
      */
@@ -174,10 +174,29 @@ public class CoordinateSystem2i {
      * @return координаты вектора в текущей системе координат
      */
     public Vector2i getCoords(double x, double y, CoordinateSystem2d coordinateSystem) {
-        return new Vector2i(
-                (int) ((x - coordinateSystem.getMin().x) * (size.x - 1) / coordinateSystem.getSize().x + min.x),
-                (int) ((y - coordinateSystem.getMin().y) * (size.y - 1) / coordinateSystem.getSize().y + min.y)
-        );
+        return new Vector2i(getX(x, coordinateSystem), getY(y, coordinateSystem));
+    }
+
+    /**
+     * Получить координату X в текущей системе координат (без создания вектора)
+     *
+     * @param x                координата X в другой системе координат
+     * @param coordinateSystem система координат, в которой задана координата
+     * @return координата X в текущей системе координат
+     */
+    public int getX(double x, CoordinateSystem2d coordinateSystem) {
+        return (int) ((x - coordinateSystem.getMin().x) * (size.x - 1) / coordinateSystem.getSize().x + min.x);
+    }
+
+    /**
+     * Получить координату Y в текущей системе координат (без создания вектора)
+     *
+     * @param y                координата Y в другой системе координат
+     * @param coordinateSystem система координат, в которой задана координата
+     * @return координата Y в текущей системе координат
+     */
+    public int getY(double y, CoordinateSystem2d coordinateSystem) {
+        return (int) ((y - coordinateSystem.getMin().y) * (size.y - 1) / coordinateSystem.getSize().y + min.y);
     }
 
     /**
@@ -0,0 +1,136 @@
+package misc;
+
+import java.util.Arrays;
+
+/**
+ * Расширяемый список значений double без упаковки в Double
+ */
+public class DoubleArrayList {
+    /**
+     * Начальная ёмкость
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Значения
+     */
+    private double[] values;
+    /**
+     * Кол-во значений
+     */
+    private int size;
+
+    /**
+     * Конструктор пустого списка
+     */
+    public DoubleArrayList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Конструктор пустого списка заданной ёмкости
+     *
+     * @param capacity ёмкость
+     */
+    public DoubleArrayList(int capacity) {
+        values = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Обеспечить ёмкость не меньше заданной
+     *
+     * @param capacity требуемая ёмкость
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length)
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1)));
+    }
+
+    /**
+     * Добавить значение в конец
+     *
+     * @param value значение
+     */
+    public void add(double value) {
+        if (size == values.length)
+            ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * Получить значение
+     *
+     * @param index индекс
+     * @return значение
+     */
+    public double get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Индекс " + index + " при размере " + size);
+        return values[index];
+    }
+
+    /**
+     * Заменить значение
+     *
+     * @param index индекс
+     * @param value новое значение
+     */
+    public void set(int index, double value) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Индекс " + index + " при размере " + size);
+        values[index] = value;
+    }
+
+    /**
+     * Получить кол-во значений
+     *
+     * @return кол-во значений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверить, пуст ли список
+     *
+     * @return флаг, пуст ли список
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Отбросить значения с конца списка (ёмкость сохраняется)
+     *
+     * @param size новое кол-во значений (не больше текущего)
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > this.size)
+            throw new IndexOutOfBoundsException("размер " + size + " вне [0, " + this.size + "]");
+        this.size = size;
+    }
+
+    /**
+     * Очистить список (ёмкость сохраняется)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Получить объём памяти списка (по раскладке {@link MemoryLayout})
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(MemoryLayout.REFERENCE + Integer.BYTES) + MemoryLayout.of(values);
+    }
+
+    /**
+     * Скопировать значения в массив
+     *
+     * @return массив значений
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
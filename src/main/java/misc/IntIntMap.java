@@ -0,0 +1,337 @@
+package misc;
+
+import java.util.Arrays;
+
+/**
+ * Отображение int -> int с открытой адресацией (линейное пробирование)
+ * без упаковки ключей и значений.
+ * Ноль помечает свободную ячейку, поэтому значение для ключа 0 хранится отдельно
+ */
+public class IntIntMap {
+    /**
+     * Обработчик пары ключ-значение
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Обработать пару
+         *
+         * @param key   ключ
+         * @param value значение
+         */
+        void accept(int key, int value);
+    }
+
+    /**
+     * Начальная ёмкость таблицы
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Множитель перемешивания (золотое сечение)
+     */
+    private static final int PHI = 0x9E3779B9;
+
+    /**
+     * Значение, возвращаемое для отсутствующих ключей
+     */
+    private final int noValue;
+    /**
+     * Ключи (0 - свободная ячейка)
+     */
+    private int[] keys;
+    /**
+     * Значения
+     */
+    private int[] values;
+    /**
+     * Маска индекса таблицы
+     */
+    private int mask;
+    /**
+     * Флаг, что есть ключ 0
+     */
+    private boolean hasZero;
+    /**
+     * Значение для ключа 0
+     */
+    private int zeroValue;
+    /**
+     * Кол-во пар
+     */
+    private int size;
+
+    /**
+     * Конструктор пустого отображения
+     *
+     * @param noValue значение, возвращаемое для отсутствующих ключей
+     */
+    public IntIntMap(int noValue) {
+        this(INITIAL_CAPACITY, noValue);
+    }
+
+    /**
+     * Конструктор пустого отображения на ожидаемое кол-во пар
+     *
+     * @param expected ожидаемое кол-во пар
+     * @param noValue  значение, возвращаемое для отсутствующих ключей
+     */
+    public IntIntMap(int expected, int noValue) {
+        this.noValue = noValue;
+        allocate(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1));
+    }
+
+    /**
+     * Выделить пустую таблицу
+     *
+     * @param capacity ёмкость (степень двойки)
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Получить начальную ячейку ключа
+     *
+     * @param key ключ
+     * @return индекс ячейки
+     */
+    private int slot(int key) {
+        int h = key * PHI;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Получить значение по ключу
+     *
+     * @param key ключ
+     * @return значение или noValue, если ключа нет
+     */
+    public int get(int key) {
+        if (key == 0)
+            return hasZero ? zeroValue : noValue;
+        int i = slot(key);
+        int k;
+        while ((k = keys[i]) != 0) {
+            if (k == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return noValue;
+    }
+
+    /**
+     * Проверить, есть ли ключ
+     *
+     * @param key ключ
+     * @return флаг, есть ли ключ
+     */
+    public boolean containsKey(int key) {
+        if (key == 0)
+            return hasZero;
+        int i = slot(key);
+        int k;
+        while ((k = keys[i]) != 0) {
+            if (k == key)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Задать значение по ключу
+     *
+     * @param key   ключ
+     * @param value значение
+     * @return прежнее значение или noValue, если ключа не было
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int old = hasZero ? zeroValue : noValue;
+            if (!hasZero)
+                size++;
+            hasZero = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = slot(key);
+        int k;
+        while ((k = keys[i]) != 0) {
+            if (k == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        // таблицу держим заполненной не больше чем наполовину
+        if (size * 2 > keys.length)
+            rehash(keys.length * 2);
+        return noValue;
+    }
+
+    /**
+     * Удалить ключ
+     *
+     * @param key ключ
+     * @return прежнее значение или noValue, если ключа не было
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!hasZero)
+                return noValue;
+            hasZero = false;
+            size--;
+            return zeroValue;
+        }
+        int i = slot(key);
+        int k;
+        while ((k = keys[i]) != 0) {
+            if (k == key) {
+                int old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return noValue;
+    }
+
+    /**
+     * Освободить ячейку, сдвинув назад следующие за ней ключи цепочки,
+     * чтобы поиск не обрывался на образовавшейся дыре
+     *
+     * @param hole индекс освобождаемой ячейки
+     */
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == 0)
+                break;
+            int home = slot(k);
+            // ключ можно перенести в дыру, если его начальная ячейка не лежит между дырой и ним
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    /**
+     * Перенести пары в таблицу новой ёмкости
+     *
+     * @param capacity новая ёмкость (степень двойки)
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k == 0)
+                continue;
+            int i = slot(k);
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Перебрать все пары (порядок не определён)
+     *
+     * @param consumer обработчик пар
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasZero)
+            consumer.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != 0)
+                consumer.accept(keys[i], values[i]);
+    }
+
+    /**
+     * Получить ячейку следующей пары, чтобы перебирать пары простым циклом без обработчика:
+     * {@code for (int s = map.next(-1); s >= 0; s = map.next(s))}.
+     * Ключ 0 лежит в ячейке с номером, равным ёмкости таблицы
+     *
+     * @param slot текущая ячейка (-1 - начать перебор)
+     * @return ячейка следующей пары или -1, если пар больше нет
+     */
+    public int next(int slot) {
+        for (int i = slot + 1; i < keys.length; i++)
+            if (keys[i] != 0)
+                return i;
+        return hasZero && slot < keys.length ? keys.length : -1;
+    }
+
+    /**
+     * Получить ключ пары в ячейке
+     *
+     * @param slot ячейка, полученная из {@link #next(int)}
+     * @return ключ
+     */
+    public int keyAt(int slot) {
+        return slot == keys.length ? 0 : keys[slot];
+    }
+
+    /**
+     * Получить значение пары в ячейке
+     *
+     * @param slot ячейка, полученная из {@link #next(int)}
+     * @return значение
+     */
+    public int valueAt(int slot) {
+        return slot == keys.length ? zeroValue : values[slot];
+    }
+
+    /**
+     * Получить кол-во пар
+     *
+     * @return кол-во пар
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверить, пусто ли отображение
+     *
+     * @return флаг, пусто ли отображение
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Получить объём памяти отображения (по раскладке {@link MemoryLayout})
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(2 * MemoryLayout.REFERENCE + 4 * Integer.BYTES + 1) +
+                MemoryLayout.of(keys) + MemoryLayout.of(values);
+    }
+
+    /**
+     * Очистить отображение (таблица сохраняется)
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+}
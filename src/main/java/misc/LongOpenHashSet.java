@@ -0,0 +1,186 @@
+package misc;
+
+import java.util.Arrays;
+
+/**
+ * Множество значений long с открытой адресацией (линейное пробирование)
+ * без упаковки в Long и без объектов на каждый элемент.
+ * Ноль помечает свободную ячейку, поэтому он хранится отдельным флагом
+ */
+public class LongOpenHashSet {
+    /**
+     * Начальная ёмкость таблицы
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Множитель перемешивания (золотое сечение)
+     */
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Таблица значений (0 - свободная ячейка)
+     */
+    private long[] table;
+    /**
+     * Маска индекса таблицы
+     */
+    private int mask;
+    /**
+     * Флаг, что в множестве есть ноль
+     */
+    private boolean hasZero;
+    /**
+     * Кол-во значений
+     */
+    private int size;
+
+    /**
+     * Конструктор пустого множества
+     */
+    public LongOpenHashSet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Конструктор пустого множества на ожидаемое кол-во значений
+     *
+     * @param expected ожидаемое кол-во значений
+     */
+    public LongOpenHashSet(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    /**
+     * Получить ёмкость таблицы (степень двойки), при которой она заполнена не больше чем наполовину
+     *
+     * @param expected кол-во значений
+     * @return ёмкость таблицы
+     */
+    private static int capacityFor(int expected) {
+        return Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1);
+    }
+
+    /**
+     * Выделить пустую таблицу
+     *
+     * @param capacity ёмкость (степень двойки)
+     */
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Получить начальную ячейку значения
+     *
+     * @param value значение
+     * @return индекс ячейки
+     */
+    private int slot(long value) {
+        long h = value * PHI;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Добавить значение
+     *
+     * @param value значение
+     * @return флаг, что значения ещё не было
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero)
+                return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(value);
+        while (table[i] != 0) {
+            if (table[i] == value)
+                return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        // таблицу держим заполненной не больше чем наполовину
+        if (size * 2 > table.length)
+            rehash(table.length * 2);
+        return true;
+    }
+
+    /**
+     * Проверить, есть ли значение в множестве
+     *
+     * @param value значение
+     * @return флаг, есть ли значение
+     */
+    public boolean contains(long value) {
+        if (value == 0)
+            return hasZero;
+        int i = slot(value);
+        long v;
+        while ((v = table[i]) != 0) {
+            if (v == value)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Перенести значения в таблицу новой ёмкости
+     *
+     * @param capacity новая ёмкость (степень двойки)
+     */
+    private void rehash(int capacity) {
+        long[] old = table;
+        allocate(capacity);
+        for (long v : old) {
+            if (v == 0)
+                continue;
+            int i = slot(v);
+            while (table[i] != 0)
+                i = (i + 1) & mask;
+            table[i] = v;
+        }
+    }
+
+    /**
+     * Получить кол-во значений
+     *
+     * @return кол-во значений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверить, пусто ли множество
+     *
+     * @return флаг, пусто ли множество
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Получить объём памяти множества (по раскладке {@link MemoryLayout})
+     *
+     * @return объём, байт
+     */
+    public long getBytes() {
+        return MemoryLayout.object(MemoryLayout.REFERENCE + 2 * Integer.BYTES + 1) + MemoryLayout.of(table);
+    }
+
+    /**
+     * Очистить множество (таблица сохраняется)
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(table, 0);
+        hasZero = false;
+        size = 0;
+    }
+}
@@ -0,0 +1,135 @@
+package misc;
+
+/**
+ * Размеры объектов и массивов в куче по раскладке HotSpot (64 бита, сжатые ссылки,
+ * т.е. куча меньше 32 ГБ): заголовок объекта 12 байт, заголовок массива 16 байт,
+ * ссылка 4 байта, выравнивание по 8 байт.
+ * Нужны для отчёта о памяти: объём считается по известной раскладке,
+ * а не по разнице занятой кучи, которая зависит от сборщика мусора
+ */
+public class MemoryLayout {
+    /**
+     * Заголовок объекта, байт
+     */
+    public static final int OBJECT_HEADER = 12;
+    /**
+     * Заголовок массива (с длиной), байт
+     */
+    public static final int ARRAY_HEADER = 16;
+    /**
+     * Размер ссылки, байт
+     */
+    public static final int REFERENCE = 4;
+    /**
+     * Выравнивание объектов, байт
+     */
+    public static final int ALIGNMENT = 8;
+
+    /**
+     * Выровнять размер
+     *
+     * @param bytes размер, байт
+     * @return размер, кратный выравниванию
+     */
+    public static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Получить размер объекта без учёта объектов, на которые он ссылается
+     *
+     * @param fieldBytes суммарный размер полей, байт
+     * @return размер объекта, байт
+     */
+    public static long object(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * Получить размер массива
+     *
+     * @param length       длина
+     * @param elementBytes размер элемента, байт
+     * @return размер массива, байт
+     */
+    public static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * Получить размер массива int
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(int[] arr) {
+        return arr == null ? 0 : array(arr.length, Integer.BYTES);
+    }
+
+    /**
+     * Получить размер массива long
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(long[] arr) {
+        return arr == null ? 0 : array(arr.length, Long.BYTES);
+    }
+
+    /**
+     * Получить размер массива double
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(double[] arr) {
+        return arr == null ? 0 : array(arr.length, Double.BYTES);
+    }
+
+    /**
+     * Получить размер массива float
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(float[] arr) {
+        return arr == null ? 0 : array(arr.length, Float.BYTES);
+    }
+
+    /**
+     * Получить размер массива byte
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(byte[] arr) {
+        return arr == null ? 0 : array(arr.length, Byte.BYTES);
+    }
+
+    /**
+     * Получить размер массива ссылок (без объектов, на которые он ссылается)
+     *
+     * @param arr массив или null
+     * @return размер массива, байт (0 для null)
+     */
+    public static long of(Object[] arr) {
+        return arr == null ? 0 : array(arr.length, REFERENCE);
+    }
+
+    /**
+     * Записать объём в мегабайтах с двумя знаками
+     *
+     * @param bytes объём, байт
+     * @return строка
+     */
+    public static String toMegabytes(long bytes) {
+        return String.format("%.2f", bytes / 1048576.0).replace(",", ".");
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private MemoryLayout() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+}
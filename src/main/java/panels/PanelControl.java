@@ -1,6 +1,7 @@
 package panels;
 
 import app.Point;
+import app.SolverStats;
 import app.Task;
 
 import java.util.ArrayList;
@@ -75,28 +76,28 @@ public class PanelControl extends GridPanel {
         // задание
         task = new MultiLineLabel(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 0, 6, 2, Task.TASK_TEXT,
+                6, 9, 0, 0, 6, 2, Task.TASK_TEXT,
                 false, true);
         // добавление вручную
         Label xLabel = new Label(window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 2, 1, 1, "X", true, true);
+                6, 9, 0, 2, 1, 1, "X", true, true);
         labels.add(xLabel);
         Input xField = InputFactory.getInput(window, false, FIELD_BACKGROUND_COLOR, PANEL_PADDING,
-                6, 7, 1, 2, 2, 1, "0.0", true,
+                6, 9, 1, 2, 2, 1, "0.0", true,
                 FIELD_TEXT_COLOR, true);
         inputs.add(xField);
         Label yLabel = new Label(window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 3, 2, 1, 1, "Y", true, true);
+                6, 9, 3, 2, 1, 1, "Y", true, true);
         labels.add(yLabel);
         Input yField = InputFactory.getInput(window, false, FIELD_BACKGROUND_COLOR, PANEL_PADDING,
-                6, 7, 4, 2, 2, 1, "0.0", true,
+                6, 9, 4, 2, 2, 1, "0.0", true,
                 FIELD_TEXT_COLOR, true);
         inputs.add(yField);
 
 
         Button addToFirstSet = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 3, 6, 1, "Добавить в точку",
+                6, 9, 0, 3, 6, 1, "Добавить в точку",
                 true, true);
         addToFirstSet.setOnClick(() -> {
             // если числа введены верно
@@ -116,17 +117,17 @@ public class PanelControl extends GridPanel {
 
         // случайное добавление
         Label cntLabel = new Label(window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 4, 1, 1, "Кол-во", true, true);
+                6, 9, 0, 4, 1, 1, "Кол-во", true, true);
         labels.add(cntLabel);
 
         Input cntField = InputFactory.getInput(window, false, FIELD_BACKGROUND_COLOR, PANEL_PADDING,
-                6, 7, 1, 4, 2, 1, "5", true,
+                6, 9, 1, 4, 2, 1, "5", true,
                 FIELD_TEXT_COLOR, true);
         inputs.add(cntField);
 
         Button addPoints = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 3, 4, 3, 1, "Добавить\nслучайные точки",
+                6, 9, 3, 4, 3, 1, "Добавить\nслучайные точки",
                 true, true);
         addPoints.setOnClick(() -> {
             // если числа введены верно
@@ -141,7 +142,7 @@ public class PanelControl extends GridPanel {
         // управление
         Button load = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 5, 3, 1, "Загрузить",
+                6, 9, 0, 5, 3, 1, "Загрузить",
                 true, true);
         load.setOnClick(() -> {
             PanelRendering.load();
@@ -151,26 +152,29 @@ public class PanelControl extends GridPanel {
 
         Button save = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 3, 5, 3, 1, "Сохранить",
+                6, 9, 3, 5, 3, 1, "Сохранить",
                 true, true);
         save.setOnClick(PanelRendering::save);
         buttons.add(save);
 
         Button clear = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 0, 6, 3, 1, "Очистить",
+                6, 9, 0, 6, 3, 1, "Очистить",
                 true, true);
         clear.setOnClick(() -> PanelRendering.task.clear());
         buttons.add(clear);
 
         solve = new Button(
                 window, false, backgroundColor, PANEL_PADDING,
-                6, 7, 3, 6, 3, 1, "Решить",
+                6, 9, 3, 6, 3, 1, "Решить",
                 true, true);
         solve.setOnClick(() -> {
             if (!PanelRendering.task.isSolved()) {
                 PanelRendering.task.solve();
                 String s = "Задача решена\n";
+                if (PanelRendering.task.getAnswer() != null)
+                    s += "Окружность: " + PanelRendering.task.getAnswer() + "\n";
+                PanelLog.info("статистика решателя:\n" + SolverStats.getReport());
 
                 PanelInfo.show(s + "\n\nНажмите Esc, чтобы вернуться");
                 PanelLog.success(s);
@@ -182,6 +186,49 @@ public class PanelControl extends GridPanel {
         });
         buttons.add(solve);
 
+        // выделение точек фильтром
+        Input filterField = InputFactory.getInput(window, false, FIELD_BACKGROUND_COLOR, PANEL_PADDING,
+                6, 9, 0, 7, 4, 1, "x > 0 && dist(0, 0) < 5", true,
+                FIELD_TEXT_COLOR, true);
+        inputs.add(filterField);
+
+        Button select = new Button(
+                window, false, backgroundColor, PANEL_PADDING,
+                6, 9, 4, 7, 2, 1, "Выбрать",
+                true, true);
+        select.setOnClick(() -> {
+            try {
+                PanelRendering.task.select(filterField.getText());
+            } catch (IllegalArgumentException ex) {
+                PanelLog.warning("фильтр: " + ex.getMessage());
+            }
+        });
+        buttons.add(select);
+
+        Button removeSelected = new Button(
+                window, false, backgroundColor, PANEL_PADDING,
+                6, 9, 0, 8, 2, 1, "Удалить\nвыбранные",
+                true, true);
+        removeSelected.setOnClick(() -> PanelRendering.task.removeSelection());
+        buttons.add(removeSelected);
+
+        Button moveSelected = new Button(
+                window, false, backgroundColor, PANEL_PADDING,
+                6, 9, 2, 8, 2, 1, "Сменить\nмножество",
+                true, true);
+        moveSelected.setOnClick(() -> PanelRendering.task.moveSelection());
+        buttons.add(moveSelected);
+
+        Button solveSelected = new Button(
+                window, false, backgroundColor, PANEL_PADDING,
+                6, 9, 4, 8, 2, 1, "Решить\nдля выбранных",
+                true, true);
+        solveSelected.setOnClick(() -> {
+            PanelRendering.task.solveSelection();
+            if (PanelRendering.task.isSolved())
+                solve.text = "Сбросить";
+        });
+        buttons.add(solveSelected);
 
     }
 
@@ -55,9 +55,16 @@ public class PanelHelp extends GridPanel {
         shortcuts.add(new Shortcut("H", true, "Свернуть"));
         shortcuts.add(new Shortcut("1", true, "Во весь экран/Обычный размер"));
         shortcuts.add(new Shortcut("2", true, "Полупрозрачное окно/обычное"));
+        shortcuts.add(new Shortcut("Z", true, "Отменить"));
+        shortcuts.add(new Shortcut("Y", true, "Повторить"));
+        shortcuts.add(new Shortcut("M", true, "Упорядочить точки по Z-кривой"));
+        shortcuts.add(new Shortcut("R", true, "Отчёт о памяти"));
+        shortcuts.add(new Shortcut("E", true, "Выгрузить отчёт о памяти"));
         shortcuts.add(new Shortcut("Esc", false, "Закрыть окно"));
-        shortcuts.add(new Shortcut("ЛКМ", false, "Добавить в первое множество"));
-        shortcuts.add(new Shortcut("ПКМ", false, "Добавить во второе множество"));
+        shortcuts.add(new Shortcut("ЛКМ", false, "Добавить в первое множество/выбрать точку"));
+        shortcuts.add(new Shortcut("ПКМ", false, "Удалить точку под курсором"));
+        shortcuts.add(new Shortcut("Shift ЛКМ", false, "Выделить прямоугольником"));
+        shortcuts.add(new Shortcut("Shift ПКМ", false, "Выделить лассо"));
     }
 
     /**
@@ -86,6 +93,14 @@ public class PanelHelp extends GridPanel {
             try (TextLine line = TextLine.make(modifier + "W", FONT12)) {
                 bgWidth = line.getWidth() + 4 * HELP_PADDING;
             }
+            // команды без модификатора бывают длиннее
+            for (Shortcut shortcut : shortcuts) {
+                if (shortcut.ctrl)
+                    continue;
+                try (TextLine line = TextLine.make(shortcut.command, FONT12)) {
+                    bgWidth = Math.max(bgWidth, line.getWidth() + 4 * HELP_PADDING);
+                }
+            }
             // получаем высоту
             float bgHeight = capHeight + HELP_PADDING * 2;
 
@@ -61,6 +61,10 @@ public class PanelLog extends GridPanel {
          */
         private final String text;
         private final Date date;
+        /**
+         * Готовая строка записи (форматируется один раз, а не при каждой отрисовке)
+         */
+        private final String line;
 
         /**
          * Конструктор
@@ -69,6 +73,7 @@ public class PanelLog extends GridPanel {
             this.recordType = recordType;
             this.text = text;
             this.date = date;
+            this.line = new SimpleDateFormat("  HH:mm:ss").format(date) + ": " + text;
         }
 
         /**
@@ -78,7 +83,7 @@ public class PanelLog extends GridPanel {
          */
         @Override
         public String toString() {
-            return new SimpleDateFormat("  HH:mm:ss").format(date) + ": " + text;
+            return line;
         }
     }
 
@@ -1,19 +1,24 @@
 package panels;
 
+import app.Lasso;
 import app.Point;
 import app.Task;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dialogs.PanelInfo;
 import dialogs.PanelSelectFile;
 import io.github.humbleui.jwm.*;
 import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Paint;
+import io.github.humbleui.skija.PaintMode;
+import io.github.humbleui.types.Rect;
 import misc.*;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static app.Colors.SELECTION_COLOR;
 import static app.Fonts.FONT12;
 
 
@@ -26,6 +31,20 @@ public class PanelRendering extends GridPanel {
      */
     public static Task task;
     ArrayList<Point> points;
+    /**
+     * Минимальное смещение курсора между вершинами лассо, пикселей
+     */
+    private static final int LASSO_STEP = 3;
+    /**
+     * Кнопка, которой тянется выделение (левая - прямоугольник, правая - лассо),
+     * или null, если выделение не тянется
+     */
+    private MouseButton dragButton;
+    /**
+     * Положения курсора при выделении в координатах панели (x и y подряд):
+     * для прямоугольника - начальный угол, для лассо - вершины
+     */
+    private final IntArrayList dragPath = new IntArrayList();
 
     /**
      * Панель управления
@@ -53,7 +72,7 @@ public class PanelRendering extends GridPanel {
         );
 
         // создаём задачу без точек
-        task = new Task(cs, new ArrayList<>());
+        setTask(new Task(cs, new ArrayList<>()));
         // добавляем в нё 10 случайных
         task.addRandomPoints(10);
 
@@ -85,6 +104,82 @@ public class PanelRendering extends GridPanel {
         // рисуем перекрестие, если мышь внутри области рисования этой панели
         if (lastInside && lastMove != null)
             task.paintMouse(canvas, windowCS, FONT12, lastWindowCS.getRelativePos(lastMove));
+        // рисуем выделение, которое сейчас тянется
+        if (dragButton != null && lastMove != null)
+            paintDrag(canvas, lastWindowCS.getRelativePos(lastMove));
+    }
+
+    /**
+     * Нарисовать тянущееся выделение
+     *
+     * @param canvas область рисования
+     * @param pos    положение курсора в координатах панели
+     */
+    private void paintDrag(Canvas canvas, Vector2i pos) {
+        try (var paint = new Paint().setColor(SELECTION_COLOR).setMode(PaintMode.STROKE).setStrokeWidth(1)) {
+            if (dragButton == MouseButton.PRIMARY) {
+                int x0 = dragPath.get(0);
+                int y0 = dragPath.get(1);
+                canvas.drawRect(Rect.makeLTRB(Math.min(x0, pos.x), Math.min(y0, pos.y),
+                        Math.max(x0, pos.x), Math.max(y0, pos.y)), paint);
+            } else {
+                // ломаная по вершинам лассо, замкнутая через курсор на первую вершину
+                float[] coords = new float[dragPath.size() + 4];
+                for (int i = 0; i < dragPath.size(); i++)
+                    coords[i] = dragPath.get(i);
+                coords[dragPath.size()] = pos.x;
+                coords[dragPath.size() + 1] = pos.y;
+                coords[dragPath.size() + 2] = dragPath.get(0);
+                coords[dragPath.size() + 3] = dragPath.get(1);
+                canvas.drawPolygon(coords, paint);
+            }
+        }
+    }
+
+    /**
+     * Закончить выделение: перевести его в СК задачи и выделить точки
+     *
+     * @param pos положение курсора в координатах панели
+     */
+    private void finishDrag(Vector2i pos) {
+        if (dragButton == MouseButton.PRIMARY) {
+            Vector2d a = task.getRealPos(dragPath.get(0), dragPath.get(1), lastWindowCS);
+            Vector2d b = task.getRealPos(pos.x, pos.y, lastWindowCS);
+            // ось Y окна направлена вниз, поэтому углы упорядочиваем заново
+            task.selectRect(new Vector2d(Math.min(a.x, b.x), Math.min(a.y, b.y)),
+                    new Vector2d(Math.max(a.x, b.x), Math.max(a.y, b.y)));
+        } else {
+            addLassoVertex(pos);
+            int n = dragPath.size() / 2;
+            if (n < 3) {
+                PanelLog.warning("лассо слишком маленькое");
+            } else {
+                double[] xs = new double[n];
+                double[] ys = new double[n];
+                for (int i = 0; i < n; i++) {
+                    Vector2d v = task.getRealPos(dragPath.get(i * 2), dragPath.get(i * 2 + 1), lastWindowCS);
+                    xs[i] = v.x;
+                    ys[i] = v.y;
+                }
+                task.selectLasso(new Lasso(xs, ys, n));
+            }
+        }
+        dragButton = null;
+        dragPath.clear();
+    }
+
+    /**
+     * Добавить вершину лассо, если курсор достаточно сместился от предыдущей
+     *
+     * @param pos положение курсора в координатах панели
+     */
+    private void addLassoVertex(Vector2i pos) {
+        int n = dragPath.size();
+        if (n >= 2 && Math.abs(dragPath.get(n - 2) - pos.x) < LASSO_STEP &&
+                Math.abs(dragPath.get(n - 1) - pos.y) < LASSO_STEP)
+            return;
+        dragPath.add(pos.x);
+        dragPath.add(pos.y);
     }
 
 
@@ -124,8 +219,15 @@ public class PanelRendering extends GridPanel {
         PanelSelectFile.show("Выберите файл", path -> {
             if (!path.isEmpty()) {
                 try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    objectMapper.writeValue(new File(path), task);
+                    if (path.endsWith(Task.BINARY_EXTENSION)) {
+                        try (DataOutputStream out = new DataOutputStream(
+                                new BufferedOutputStream(new FileOutputStream(path)))) {
+                            task.writeBinary(out);
+                        }
+                    } else {
+                        ObjectMapper objectMapper = new ObjectMapper();
+                        objectMapper.writeValue(new File(path), task);
+                    }
                     PanelLog.success("Файл " + path + " успешно сохранён");
                 } catch (IOException e) {
                     PanelLog.error("не получилось записать файл \n" + e);
@@ -133,22 +235,66 @@ public class PanelRendering extends GridPanel {
             }
         });
     }
+
+    /**
+     * Показать отчёт о памяти задачи
+     */
+    public static void showMemoryReport() {
+        PanelInfo.show(task.getMemoryReport().format());
+    }
+
+    /**
+     * Выгрузить отчёт о памяти задачи в файл
+     */
+    public static void exportMemoryReport() {
+        PanelSelectFile.show("Выберите файл отчёта", path -> {
+            if (!path.isEmpty()) {
+                try {
+                    task.getMemoryReport().export(new File(path).toPath());
+                    PanelLog.success("Отчёт о памяти записан в " + path);
+                } catch (IOException e) {
+                    PanelLog.error("не получилось записать отчёт о памяти \n" + e);
+                }
+            }
+        });
+    }
     /**
      * Загрузить файл
      */
 
+    /**
+     * Заменить задачу, освободив объекты отрисовки прежней
+     *
+     * @param newTask новая задача
+     */
+    private static void setTask(Task newTask) {
+        if (task != null)
+            task.close();
+        task = newTask;
+    }
+
     /**
      * Загружаем из файла
      *
      * @param path путь к файлу
      */
     public static void loadFromFile(String path) {
-        // создаём загрузчик JSON
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            // считываем систему координат
-            task = objectMapper.readValue(new File(path), Task.class);
+            if (path.endsWith(Task.BINARY_EXTENSION)) {
+                // двоичный файл читаем по столбцам
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(path)))) {
+                    setTask(Task.readBinary(in));
+                }
+            } else {
+                // создаём загрузчик JSON
+                ObjectMapper objectMapper = new ObjectMapper();
+                // считываем систему координат
+                setTask(objectMapper.readValue(new File(path), Task.class));
+            }
             PanelLog.success("Файл " + path + " успешно загружен");
+            // память под точки вне кучи не видна в статистике кучи, поэтому выводим её отдельно
+            PanelLog.info("память точек: " + task.getPoints().getFootprint());
         } catch (IOException e) {
             PanelLog.error("Не получилось прочитать файл " + path + "\n" + e);
         }
@@ -181,13 +327,30 @@ public class PanelRendering extends GridPanel {
         super.accept(e);
         // если событие - это клик мышью
         if (e instanceof EventMouseButton ee) {
+            // отпускание кнопки заканчивает тянущееся выделение
+            if (!ee.isPressed() && dragButton == ee.getButton() && lastMove != null) {
+                finishDrag(lastWindowCS.getRelativePos(lastMove));
+                window.requestFrame();
+            }
             // если последнее положение мыши сохранено и курсор был внутри
             if (lastMove != null && lastInside && ee.isPressed()) {
-                // если событие - нажатие мыши
-                if (ee.isPressed())
+                Vector2i pos = lastWindowCS.getRelativePos(lastMove);
+                // с зажатым Shift левая кнопка тянет прямоугольник, правая - лассо
+                if (ee.isModifierDown(KeyModifier.SHIFT) && (ee.getButton() == MouseButton.PRIMARY ||
+                        ee.getButton() == MouseButton.SECONDARY)) {
+                    dragButton = ee.getButton();
+                    dragPath.clear();
+                    dragPath.add(pos.x);
+                    dragPath.add(pos.y);
+                } else {
                     // обрабатываем клик по задаче
-                    task.click(lastWindowCS.getRelativePos(lastMove), ee.getButton());
+                    task.click(pos, ee.getButton());
+                }
             }
+        } else if (e instanceof EventMouseMove && dragButton != null) {
+            if (dragButton == MouseButton.SECONDARY && lastMove != null)
+                addLassoVertex(lastWindowCS.getRelativePos(lastMove));
+            window.requestFrame();
         } else if (e instanceof EventMouseScroll ee) {
             if (lastMove != null && lastInside)
                 task.scale(ee.getDeltaY(), lastWindowCS.getRelativePos(lastMove));
@@ -0,0 +1,208 @@
+import app.ConvexHull;
+import app.History;
+import app.Point;
+import app.PointStore;
+import app.Task;
+import misc.CoordinateSystem2d;
+import misc.CoordinateSystem2i;
+import misc.Vector2d;
+import misc.Vector2i;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Тестирование отмены и повтора изменений задачи
+ */
+public class HistoryTest {
+
+    /**
+     * Получить состояние задачи: точки по номерам и размер оболочки
+     *
+     * @param task задача
+     * @return строковое представление состояния
+     */
+    private static String state(Task task) {
+        PointStore points = task.getPoints();
+        TreeMap<Integer, String> byId = new TreeMap<>();
+        ConvexHull hull = new ConvexHull();
+        for (int i = 0; i < points.size(); i++) {
+            byId.put(points.getId(i), points.getX(i) + " " + points.getY(i) + " " + points.getSetType(i));
+            hull.insert(points.getX(i), points.getY(i));
+        }
+        // оболочка задачи должна совпадать с оболочкой её точек
+        assert task.getHull().size() == hull.size();
+        return byId.toString();
+    }
+
+    /**
+     * Добавить случайные точки
+     *
+     * @param task задача
+     * @param rnd  генератор
+     * @param n    кол-во точек
+     */
+    private static void addRandom(Task task, Random rnd, int n) {
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextGaussian();
+            ys[i] = rnd.nextGaussian();
+        }
+        task.addPoints(xs, ys, n, Point.PointSet.FIRST_SET);
+    }
+
+    /**
+     * Получить номера первых точек задачи
+     *
+     * @param task задача
+     * @param n    кол-во точек
+     * @return номера точек
+     */
+    private static int[] firstIds(Task task, int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++)
+            ids[i] = task.getPoints().getId(i);
+        return ids;
+    }
+
+    /**
+     * Отменить и повторить все шаги, проверяя состояние после каждого
+     *
+     * @param task   задача
+     * @param states состояния до первого шага и после каждого шага
+     */
+    private static void test(Task task, ArrayList<String> states) {
+        int last = states.size() - 1;
+        assert task.getHistory().getUndoSize() == last;
+        for (int i = last - 1; i >= 0; i--) {
+            assert task.undo();
+            assert state(task).equals(states.get(i));
+        }
+        assert !task.undo();
+        for (int i = 1; i <= last; i++) {
+            assert task.redo();
+            assert state(task).equals(states.get(i));
+        }
+        assert !task.redo();
+    }
+
+    /**
+     * Добавление, удаление и очистка точек
+     */
+    @Test
+    public void test1() {
+        Random rnd = new Random(1);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        ArrayList<String> states = new ArrayList<>();
+        states.add(state(task));
+        addRandom(task, rnd, 200);
+        states.add(state(task));
+        task.addPoint(new Vector2d(5, 5), Point.PointSet.SECOND_SET);
+        states.add(state(task));
+        // удаление вершин оболочки и внутренних точек
+        task.removePoints(firstIds(task, 30));
+        states.add(state(task));
+        task.removePoint(task.getPoints().getId(task.getPoints().size() - 1));
+        states.add(state(task));
+        task.clear();
+        states.add(state(task));
+        test(task, states);
+
+        // новый шаг после отмены сбрасывает шаги для повтора
+        task.undo();
+        task.undo();
+        addRandom(task, rnd, 10);
+        assert task.getHistory().getRedoSize() == 0;
+        assert !task.redo();
+    }
+
+    /**
+     * Перенос выделенных точек в другое множество
+     */
+    @Test
+    public void test2() {
+        Random rnd = new Random(2);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        addRandom(task, rnd, 500);
+        task.getHistory().clear();
+        ArrayList<String> states = new ArrayList<>();
+        states.add(state(task));
+        task.selectRect(new Vector2d(-1, -1), new Vector2d(1, 1));
+        assert task.moveSelection(Point.PointSet.SECOND_SET) > 0;
+        states.add(state(task));
+        task.selectRect(new Vector2d(0, -3), new Vector2d(3, 3));
+        assert task.moveSelection(Point.PointSet.FIRST_SET) > 0;
+        states.add(state(task));
+        test(task, states);
+    }
+
+    /**
+     * Подряд идущие масштабирования сливаются в один шаг
+     */
+    @Test
+    public void test3() {
+        CoordinateSystem2d cs = new CoordinateSystem2d(-10, -10, 20, 20);
+        Task task = new Task(cs, new ArrayList<>()) {
+            {
+                lastWindowCS = new CoordinateSystem2i(400, 400);
+            }
+        };
+        Vector2d min = cs.getMin();
+        Vector2d size = cs.getSize();
+        for (int i = 0; i < 5; i++)
+            task.scale(-120, new Vector2i(100, 300));
+        Vector2d scaledMin = cs.getMin();
+        Vector2d scaledSize = cs.getSize();
+        assert scaledSize.x < size.x;
+        assert task.getHistory().getUndoSize() == 1;
+
+        // после другого шага масштабирование начинает новый шаг
+        task.addPoint(new Vector2d(1, 1), Point.PointSet.FIRST_SET);
+        task.scale(120, new Vector2i(200, 200));
+        assert task.getHistory().getUndoSize() == 3;
+
+        assert task.undo();
+        assert task.undo();
+        assert task.undo();
+        assert cs.getMin().equals(min) && cs.getSize().equals(size);
+        assert task.redo();
+        assert cs.getMin().equals(scaledMin) && cs.getSize().equals(scaledSize);
+    }
+
+    /**
+     * Самые старые шаги вытесняются, когда объём истории превышает бюджет
+     */
+    @Test
+    public void test4() {
+        long budget = 64 * 1024;
+        System.setProperty(History.BUDGET_PROPERTY, Long.toString(budget));
+        Task task;
+        try {
+            task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        } finally {
+            System.clearProperty(History.BUDGET_PROPERTY);
+        }
+        Random rnd = new Random(4);
+        addRandom(task, rnd, 20000);
+        ArrayList<String> states = new ArrayList<>();
+        states.add(state(task));
+        // каждое удаление хранит около 25 байт на точку
+        for (int k = 0; k < 10; k++) {
+            task.removePoints(firstIds(task, 500));
+            states.add(state(task));
+            assert task.getHistory().getBytes() <= budget;
+        }
+        int kept = task.getHistory().getUndoSize();
+        assert kept > 0 && kept < states.size() - 1;
+        // отменить можно только уцелевшие шаги
+        for (int i = 0; i < kept; i++)
+            assert task.undo();
+        assert !task.undo();
+        assert state(task).equals(states.get(states.size() - 1 - kept));
+        // возвращённые точки снова хранятся в шагах, но бюджет соблюдается
+        assert task.getHistory().getBytes() <= budget;
+    }
+}
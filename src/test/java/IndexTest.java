@@ -0,0 +1,133 @@
+import app.BallTree;
+import app.KdTree;
+import app.Point;
+import app.PointStore;
+import app.Task;
+import misc.CoordinateSystem2d;
+import misc.Vector2d;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Тестирование индексов над точками задачи
+ */
+public class IndexTest {
+
+    /**
+     * Проверить KD-дерево задачи: в нём ровно точки хранилища, и ближайшая точка
+     * совпадает с найденной перебором
+     *
+     * @param task задача
+     * @param rnd  генератор
+     */
+    private static void testKdTree(Task task, Random rnd) {
+        PointStore points = task.getPoints();
+        KdTree tree = task.getKdTree();
+        assert tree.size() == points.size() : tree.size() + " " + points.size();
+        for (int k = 0; k < 1000; k++) {
+            double x = rnd.nextGaussian() * 2;
+            double y = rnd.nextGaussian() * 2;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < points.size(); i++)
+                best = Math.min(best, Math.hypot(x - points.getX(i), y - points.getY(i)));
+            int found = tree.nearest(x, y);
+            assert found >= 0 && found < points.size();
+            assert Math.hypot(x - points.getX(found), y - points.getY(found)) == best;
+        }
+    }
+
+    /**
+     * KD-дерево не получает точки пакета дважды, если перестраивается во время
+     * пакетного добавления или возврата точек при отмене
+     */
+    @Test
+    public void test1() {
+        Random rnd = new Random(1);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        for (int i = 0; i < 300; i++)
+            task.addPoint(new Vector2d(rnd.nextGaussian(), rnd.nextGaussian()), Point.PointSet.FIRST_SET);
+        // точки пакета по диагонали за облаком уходят в одну ветку и часто её перестраивают,
+        // так что брошенных узлов становится больше, чем живых, посреди пакета
+        double[] xs = new double[100];
+        double[] ys = new double[100];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 5 + i / 10.0;
+            ys[i] = 5 + i / 10.0;
+        }
+        task.addPoints(xs, ys, xs.length, Point.PointSet.SECOND_SET);
+        testKdTree(task, rnd);
+
+        int[] ids = new int[50];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = task.getPoints().getId(i * 7);
+        task.removePoints(ids);
+        testKdTree(task, rnd);
+
+        // удалённые точки возвращаются по одной в уже заполненное дерево
+        assert task.undo();
+        testKdTree(task, rnd);
+        assert task.redo();
+        testKdTree(task, rnd);
+    }
+
+    /**
+     * Окружность переполненного и разделённого листа расширяет окружности предков:
+     * иначе удаление не находит точки за прежними границами
+     */
+    @Test
+    public void test2() {
+        PointStore store = PointStore.create();
+        // корень с двумя полными листами из совпадающих точек
+        for (int i = 0; i < BallTree.LEAF_SIZE; i++) {
+            store.add(0, 0, Point.PointSet.FIRST_SET);
+            store.add(0, 10, Point.PointSet.FIRST_SET);
+        }
+        BallTree tree = BallTree.build(store);
+        // первая же точка левее листа делит его, и окружность листа точно вмещает
+        // обоих потомков, но не лежит в окружности корня
+        int from = store.size();
+        for (int i = 0; i < BallTree.LEAF_SIZE * 4; i++) {
+            int index = store.add(-1 - i, 0, Point.PointSet.FIRST_SET);
+            tree.insert(index);
+            assert tree.getBounds().contains(store.getX(index), store.getY(index));
+        }
+        assert tree.size() == store.size();
+        for (int i = store.size() - 1; i >= from; i--)
+            assert tree.remove(i);
+        assert tree.size() == from;
+    }
+
+    /**
+     * Поиск k ближайших точек переиспользует кучу: результат не зависит
+     * от k предыдущих запросов
+     */
+    @Test
+    public void test3() {
+        Random rnd = new Random(3);
+        PointStore store = PointStore.create();
+        for (int i = 0; i < 2000; i++)
+            store.add(rnd.nextGaussian(), rnd.nextGaussian(), Point.PointSet.FIRST_SET);
+        KdTree tree = KdTree.build(store);
+        int[] ks = {16, 1, 40, 3, 0, 16};
+        for (int q = 0; q < 300; q++) {
+            double x = rnd.nextGaussian();
+            double y = rnd.nextGaussian();
+            double[] dists = new double[store.size()];
+            for (int i = 0; i < store.size(); i++)
+                dists[i] = Math.hypot(x - store.getX(i), y - store.getY(i));
+            double[] sorted = dists.clone();
+            Arrays.sort(sorted);
+            int k = ks[q % ks.length];
+            int[] found = tree.nearest(x, y, k);
+            assert found.length == k;
+            for (int j = 0; j < k; j++)
+                assert dists[found[j]] == sorted[j];
+            // в радиусе меньше расстояния до ближайшей точки ничего нет
+            assert tree.nearest(x, y, sorted[0] / 2) == -1;
+            assert dists[tree.nearest(x, y)] == sorted[0];
+        }
+    }
+}
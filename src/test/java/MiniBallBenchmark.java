@@ -0,0 +1,114 @@
+import app.CircleSolver;
+import app.MiniBall;
+import app.SolverStats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Замер времени поиска минимального шара в зависимости от размерности и кол-ва точек.
+ * Запускается вручную (не тест), например:
+ * java -cp target/classes:target/test-classes MiniBallBenchmark
+ */
+public class MiniBallBenchmark {
+    /**
+     * Размерности
+     */
+    private static final int[] DIMENSIONS = {2, 3, 5, 8, 10};
+    /**
+     * Кол-ва точек
+     */
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    /**
+     * Кол-во замеров на одну конфигурацию
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Сгенерировать нормально распределённые точки
+     *
+     * @param n   кол-во точек
+     * @param d   размерность
+     * @param rnd генератор
+     * @return точки
+     */
+    private static double[][] gaussian(int n, int d, Random rnd) {
+        double[][] rows = new double[n][d];
+        for (double[] row : rows)
+            for (int k = 0; k < d; k++)
+                row[k] = rnd.nextGaussian();
+        return rows;
+    }
+
+    /**
+     * Получить столбец координат
+     *
+     * @param rows точки
+     * @param k    номер координаты
+     * @return столбец координат
+     */
+    private static double[] column(double[][] rows, int k) {
+        double[] res = new double[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            res[i] = rows[i][k];
+        return res;
+    }
+
+    /**
+     * Медиана времени выполнения в миллисекундах
+     *
+     * @param task замеряемая задача
+     * @return медиана времени
+     */
+    private static double median(Runnable task) {
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    /**
+     * Точка входа
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(42);
+        // прогрев JIT
+        for (int i = 0; i < 20; i++) {
+            double[][] rows = gaussian(10_000, 2, rnd);
+            new MiniBall(rows);
+            CircleSolver.solve(column(rows, 0), column(rows, 1), rows.length);
+            // небольшие множества решаются в double
+            CircleSolver.solve(column(rows, 0), column(rows, 1), CircleSolver.FLOAT_THRESHOLD - 1);
+        }
+        SolverStats.reset();
+
+        System.out.printf("%4s %10s %14s %14s%n", "d", "n", "MiniBall, ms", "ns/point");
+        for (int d : DIMENSIONS) {
+            for (int n : SIZES) {
+                double[][] rows = gaussian(n, d, rnd);
+                double ms = median(() -> new MiniBall(rows));
+                System.out.printf("%4d %10d %14.3f %14.2f%n", d, n, ms, ms * 1e6 / n);
+            }
+        }
+
+        // сравнение со специализированным плоским вариантом
+        System.out.printf("%n%10s %14s %18s%n", "n", "MiniBall, ms", "CircleSolver, ms");
+        for (int n : SIZES) {
+            double[][] rows = gaussian(n, 2, rnd);
+            double[] xs = column(rows, 0);
+            double[] ys = column(rows, 1);
+            double ball = median(() -> new MiniBall(rows));
+            double circle = median(() -> CircleSolver.solve(xs, ys, n));
+            System.out.printf("%10d %14.3f %18.3f%n", n, ball, circle);
+        }
+        // сравнение поиска опорных точек во float и в double
+        System.out.println();
+        System.out.println(SolverStats.getReport());
+    }
+}
@@ -0,0 +1,163 @@
+import app.HeapPointStore;
+import app.Point;
+import app.PointFilter;
+import app.PointStore;
+import app.Selection;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BiPredicate;
+
+/**
+ * Тестирование фильтра точек
+ */
+public class PointFilterTest {
+
+    /**
+     * Хранилище, считающее чтения координаты Y
+     */
+    private static class CountingStore extends HeapPointStore {
+        /**
+         * Кол-во чтений координаты Y
+         */
+        int reads;
+
+        @Override
+        public double getY(int index) {
+            reads++;
+            return super.getY(index);
+        }
+    }
+
+    /**
+     * Заполнить хранилище случайными точками
+     *
+     * @param store хранилище
+     * @param n     кол-во точек
+     * @return то же хранилище
+     */
+    private static PointStore fill(PointStore store, int n) {
+        Random rnd = new Random(n);
+        for (int i = 0; i < n; i++)
+            store.add(rnd.nextInt(9) - 4 + rnd.nextDouble() / 4, rnd.nextInt(9) - 4, Point.PointSet.FIRST_SET);
+        return store;
+    }
+
+    /**
+     * Тест: фильтр совпадает с тем же условием на Java для каждой точки
+     *
+     * @param expression выражение
+     * @param expected   условие на Java от (x, y)
+     */
+    private static void test(String expression, BiPredicate<Double, Double> expected) {
+        PointStore store = fill(new HeapPointStore(), 2000);
+        PointFilter filter = PointFilter.compile(expression);
+        Selection selection = filter.select(store.snapshot());
+        for (int i = 0; i < store.size(); i++) {
+            boolean value = expected.test(store.getX(i), store.getY(i));
+            assert filter.test(store, i) == value;
+            assert selection.get(i) == value;
+        }
+    }
+
+    /**
+     * Тест: разбор выражения завершается ошибкой с заданным сообщением
+     *
+     * @param expression выражение
+     * @param message    ожидаемое сообщение
+     */
+    private static void testError(String expression, String message) {
+        try {
+            PointFilter.compile(expression);
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().equals(message) : e.getMessage();
+            return;
+        }
+        assert false : expression;
+    }
+
+    /**
+     * Приоритет и ассоциативность операций
+     */
+    @Test
+    public void test1() {
+        test("x + y * 2 > 1 || x < 0 && y > 0", (x, y) -> x + y * 2 > 1 || x < 0 && y > 0);
+        test("(x + y) * 2 > 1", (x, y) -> (x + y) * 2 > 1);
+        test("x - y - 1 >= 0", (x, y) -> x - y - 1 >= 0);
+        test("x / 2 / 2 < y", (x, y) -> x / 2 / 2 < y);
+        test("-x * -y == 2 || !(x > 0) && !!(y != 0)", (x, y) -> -x * -y == 2 || !(x > 0) && y != 0);
+        test("!x > 0 || y <= -1", (x, y) -> !(x > 0) || y <= -1);
+        test("dist(1, 2) < 2.5e0 || abs(x - y) <= .5",
+                (x, y) -> Math.hypot(x - 1, y - 2) < 2.5 || Math.abs(x - y) <= .5);
+        test("min(x, y) > max(-1, y - 3) && sqrt(x * x) < 3", (x, y) -> Math.min(x, y) > Math.max(-1, y - 3) &&
+                Math.sqrt(x * x) < 3);
+    }
+
+    /**
+     * Правая часть && и || вычисляется, только если от неё зависит результат
+     */
+    @Test
+    public void test2() {
+        CountingStore store = (CountingStore) fill(new CountingStore(), 1000);
+        int positive = 0;
+        for (int i = 0; i < store.size(); i++)
+            if (store.getX(i) > 0)
+                positive++;
+        assert positive > 0 && positive < store.size();
+
+        PointFilter and = PointFilter.compile("x > 0 && y > 0");
+        store.reads = 0;
+        for (int i = 0; i < store.size(); i++)
+            and.test(store, i);
+        assert store.reads == positive;
+
+        PointFilter or = PointFilter.compile("x > 0 || y > 0");
+        store.reads = 0;
+        for (int i = 0; i < store.size(); i++)
+            or.test(store, i);
+        assert store.reads == store.size() - positive;
+    }
+
+    /**
+     * Сообщения об ошибках указывают позицию в тексте (с единицы)
+     */
+    @Test
+    public void test3() {
+        testError("x > ", "неожиданный конец выражения в позиции 5");
+        testError("x > 1 $ 2", "недопустимый символ «$» в позиции 7");
+        testError("x > 1 y", "лишний текст «y» в позиции 7");
+        testError("(x > 1", "ожидалось «)» в позиции 7");
+        testError("x > 1.2.3", "неверное число «1.2.3» в позиции 5");
+        testError("z > 1", "неизвестная переменная «z» в позиции 1");
+        testError("foo(x) > 1", "неизвестная функция «foo» в позиции 1");
+        testError("y > 0 && dist(1) < 2", "функция dist принимает 2 аргумент(а), передано 1 в позиции 10");
+        testError("x && y > 1", "ожидалось условие, а не число в позиции 3");
+        testError("x > 0 || y", "ожидалось условие, а не число в позиции 7");
+        testError("x > 0 + (y < 1)", "ожидалось число, а не условие в позиции 7");
+        testError("x + 1", "выражение должно быть условием, а не числом");
+    }
+
+    /**
+     * Параллельная проверка больших хранилищ: блоки не делят слова выделения
+     */
+    @Test
+    public void test4() {
+        // несколько блоков параллельной проверки и неполное последнее слово
+        int n = (1 << 18) + 37;
+        PointStore store = fill(new HeapPointStore(), n);
+        PointFilter filter = PointFilter.compile("x > 0 && y != 1");
+        Selection selection = filter.select(store.snapshot());
+        int cardinality = 0;
+        for (int i = 0; i < n; i++) {
+            boolean value = store.getX(i) > 0 && store.getY(i) != 1;
+            assert selection.get(i) == value;
+            if (value)
+                cardinality++;
+        }
+        assert selection.size() == n;
+        assert selection.cardinality() == cardinality;
+
+        // все точки проходят: ни один бит на границах блоков не потерян
+        assert PointFilter.compile("x > -10").select(store.snapshot()).cardinality() == n;
+    }
+}
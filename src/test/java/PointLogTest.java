@@ -0,0 +1,135 @@
+import app.Point;
+import app.PointLog;
+import app.Task;
+import misc.CoordinateSystem2d;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Тестирование журнала точек
+ */
+public class PointLogTest {
+
+    /**
+     * Проверить запечатанные сегменты: они идут подряд, а точка с номером i лежит в (i, -i)
+     *
+     * @param segments сегменты
+     * @return номер точки, следующей за последним сегментом
+     */
+    private static long check(PointLog.Segment[] segments) {
+        long next = segments.length == 0 ? 0 : segments[0].getOffset();
+        for (PointLog.Segment segment : segments) {
+            assert segment.getOffset() == next;
+            for (int i = 0; i < segment.size(); i++) {
+                assert segment.getX(i) == next + i;
+                assert segment.getY(i) == -(next + i);
+            }
+            next += segment.size();
+        }
+        return next;
+    }
+
+    /**
+     * Читатели и отбрасывающий сегменты поток работают параллельно с писателем
+     *
+     * @throws InterruptedException прерывание ожидания потоков
+     */
+    @Test
+    public void test1() throws InterruptedException {
+        PointLog log = new PointLog();
+        int n = PointLog.SEGMENT_SIZE * 20 + 123;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            Random rnd = new Random(1);
+            double[] xs = new double[5000];
+            double[] ys = new double[5000];
+            int i = 0;
+            while (i < n) {
+                // то по одной точке, то пакетами, иногда запечатывая неполный хвост
+                if (rnd.nextBoolean()) {
+                    log.append(i, -i, Point.PointSet.FIRST_SET);
+                    i++;
+                } else {
+                    int cnt = Math.min(n - i, rnd.nextInt(xs.length));
+                    for (int k = 0; k < cnt; k++) {
+                        xs[k] = i + k;
+                        ys[k] = -(i + k);
+                    }
+                    log.append(xs, ys, cnt, Point.PointSet.SECOND_SET);
+                    i += cnt;
+                }
+                if (rnd.nextInt(100) == 0)
+                    log.seal();
+            }
+            log.seal();
+            done.set(true);
+        });
+        Runnable reader = () -> {
+            try {
+                long last = 0;
+                while (!done.get()) {
+                    long next = check(log.getSealed());
+                    // запечатанные точки только прибавляются
+                    assert next >= last;
+                    last = next;
+                }
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        };
+        Thread trimmer = new Thread(() -> {
+            try {
+                while (!done.get())
+                    log.trim(log.getSealedSize() / 2);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        Thread[] readers = {new Thread(reader), new Thread(reader)};
+        for (Thread thread : readers)
+            thread.start();
+        trimmer.start();
+        writer.start();
+        writer.join();
+        trimmer.join();
+        for (Thread thread : readers)
+            thread.join();
+        assert error.get() == null;
+
+        assert log.getSealedSize() == n;
+        assert log.getTailSize() == 0;
+        assert check(log.getSealed()) == n;
+        long bytes = log.getBytes();
+        log.trim(n);
+        assert log.getSealed().length == 0;
+        assert log.getBytes() < bytes;
+    }
+
+    /**
+     * Очистка задачи отбрасывает скрытые сегменты журнала
+     */
+    @Test
+    public void test2() {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        PointLog log = task.getFeed();
+        for (int i = 0; i < PointLog.SEGMENT_SIZE * 3; i++)
+            log.append(i % 7, i % 5, Point.PointSet.FIRST_SET);
+        log.append(100, 100, Point.PointSet.FIRST_SET);
+        task.solve();
+        // точка хвоста ещё не запечатана и в решение не попадает
+        assert task.getAnswer().radius < 10;
+
+        task.clear();
+        assert log.getSealed().length == 0;
+        log.seal();
+        assert log.getSealed().length == 1;
+        task.solve();
+        assert task.getAnswer().radius == 0;
+    }
+}
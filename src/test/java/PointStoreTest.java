@@ -0,0 +1,254 @@
+import app.HeapPointStore;
+import app.OffHeapPointStore;
+import app.Point;
+import app.PointStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Тестирование хранилищ точек
+ */
+public class PointStoreTest {
+
+    /**
+     * Создать хранилище со случайными точками
+     *
+     * @param n кол-во точек
+     * @return хранилище
+     */
+    private static PointStore random(int n) {
+        Random rnd = new Random(n);
+        PointStore store = PointStore.create();
+        for (int i = 0; i < n; i++)
+            store.add(rnd.nextGaussian(), rnd.nextGaussian(),
+                    rnd.nextBoolean() ? Point.PointSet.FIRST_SET : Point.PointSet.SECOND_SET);
+        return store;
+    }
+
+    /**
+     * Проверить, что точки с уцелевшими номерами сохранили координаты
+     *
+     * @param store хранилище
+     * @param xs    координаты X по номерам
+     * @param ys    координаты Y по номерам
+     * @param alive флаги уцелевших номеров
+     */
+    private static void testIds(PointStore store, double[] xs, double[] ys, boolean[] alive) {
+        int count = 0;
+        for (int id = 0; id < alive.length; id++) {
+            int slot = store.getSlot(id);
+            if (!alive[id]) {
+                assert slot == -1;
+                continue;
+            }
+            assert store.getId(slot) == id;
+            assert store.getX(slot) == xs[id];
+            assert store.getY(slot) == ys[id];
+            count++;
+        }
+        assert count == store.size();
+    }
+
+    /**
+     * Проверить, что два хранилища содержат одинаковые точки и атрибуты
+     *
+     * @param expected исходное хранилище
+     * @param actual   прочитанное хранилище
+     */
+    private static void testEquals(PointStore expected, PointStore actual) {
+        assert actual.size() == expected.size();
+        for (Point.Attribute attribute : Point.Attribute.values())
+            assert actual.hasAttribute(attribute) == expected.hasAttribute(attribute);
+        for (int i = 0; i < expected.size(); i++) {
+            assert actual.getX(i) == expected.getX(i);
+            assert actual.getY(i) == expected.getY(i);
+            assert actual.getSetType(i) == expected.getSetType(i);
+            assert actual.getTimestamp(i) == expected.getTimestamp(i);
+            assert actual.getWeight(i) == expected.getWeight(i);
+            assert actual.getSourceId(i) == expected.getSourceId(i);
+        }
+    }
+
+    /**
+     * Создать хранилище с заданными у части точек атрибутами
+     *
+     * @return хранилище
+     */
+    private static PointStore withAttributes() {
+        PointStore store = random(1000);
+        for (int i = 0; i < store.size(); i += 3)
+            store.setTimestamp(i, 1_700_000_000_000L + i);
+        for (int i = 0; i < store.size(); i += 7)
+            store.setWeight(i, i / 4f);
+        // номер источника не задаётся: его столбец не должен появиться
+        return store;
+    }
+
+    /**
+     * Снимок не меняется при последующих изменениях хранилища
+     *
+     * @param store пустое хранилище
+     */
+    private static void testSnapshot(PointStore store) {
+        Random rnd = new Random(1);
+        // точки занимают несколько блоков, последний - частично
+        int n = HeapPointStore.CHUNK_SIZE * 3 + 5;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        Point.PointSet[] sets = new Point.PointSet[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextDouble();
+            ys[i] = rnd.nextDouble();
+            sets[i] = rnd.nextBoolean() ? Point.PointSet.FIRST_SET : Point.PointSet.SECOND_SET;
+            store.add(xs[i], ys[i], sets[i]);
+        }
+        PointStore snapshot = store.snapshot();
+
+        // записи во все блоки, удаление, дописывание и перестановка
+        for (int i = 0; i < n; i += 1000)
+            store.setSetType(i, Point.PointSet.SECOND_SET);
+        store.swapRemove(7);
+        store.remove(0);
+        for (int i = 0; i < 10; i++)
+            store.add(-1, -1, Point.PointSet.FIRST_SET);
+        int[] order = new int[store.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = order.length - 1 - i;
+        store.reorder(order);
+        // второй снимок и запись после него не должны задеть первый
+        PointStore second = store.snapshot();
+        store.swapRemove(store.size() / 2);
+
+        assert snapshot.isSnapshot();
+        assert snapshot.size() == n;
+        for (int i = 0; i < n; i++) {
+            assert snapshot.getX(i) == xs[i];
+            assert snapshot.getY(i) == ys[i];
+            assert snapshot.getSetType(i) == sets[i];
+        }
+        assert second.size() == store.size() + 1;
+        assert second.getX(0) == -1;
+    }
+
+    /**
+     * Снимок хранилища в куче
+     */
+    @Test
+    public void test1() {
+        testSnapshot(new HeapPointStore());
+    }
+
+    /**
+     * Снимок хранилища вне кучи
+     */
+    @Test
+    public void test2() {
+        testSnapshot(new OffHeapPointStore());
+    }
+
+    /**
+     * Номера точек не меняются при удалении с переносом последней точки
+     */
+    @Test
+    public void test3() {
+        int n = 1000;
+        PointStore store = random(n);
+        double[] xs = new double[n + 1];
+        double[] ys = new double[n + 1];
+        boolean[] alive = new boolean[n + 1];
+        for (int i = 0; i < n; i++) {
+            xs[i] = store.getX(i);
+            ys[i] = store.getY(i);
+            alive[i] = true;
+        }
+        Random rnd = new Random(3);
+        for (int k = 0; k < n / 2; k++) {
+            int slot = rnd.nextInt(store.size());
+            int id = store.getId(slot);
+            int last = store.getId(store.size() - 1);
+            int moved = store.swapRemove(slot);
+            alive[id] = false;
+            // на место удалённой переехала последняя точка
+            assert moved == store.size();
+            assert id == last || store.getId(slot) == last;
+        }
+        testIds(store, xs, ys, alive);
+
+        // новая точка получает новый номер, а не номер удалённой
+        int slot = store.add(5, 5, Point.PointSet.FIRST_SET);
+        assert store.getId(slot) == n;
+        xs[n] = 5;
+        ys[n] = 5;
+        alive[n] = true;
+        testIds(store, xs, ys, alive);
+    }
+
+    /**
+     * Номера точек не меняются при перестановке и удалении со сдвигом
+     */
+    @Test
+    public void test4() {
+        int n = 500;
+        PointStore store = random(n);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        boolean[] alive = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = store.getX(i);
+            ys[i] = store.getY(i);
+            alive[i] = true;
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = (i * 7 + 3) % n;
+        store.reorder(order);
+        for (int i = 0; i < n; i++)
+            assert store.getId(i) == order[i];
+        testIds(store, xs, ys, alive);
+
+        alive[store.getId(10)] = false;
+        store.remove(10);
+        testIds(store, xs, ys, alive);
+
+        // без сохранения номеров точки получают номера своих новых ячеек
+        PointStore fresh = random(n);
+        double x = fresh.getX(order[0]);
+        fresh.reorder(order, false);
+        assert fresh.getId(0) == 0 && fresh.getSlot(0) == 0;
+        assert fresh.getX(0) == x;
+    }
+
+    /**
+     * Запись и чтение в двоичном виде сохраняют координаты, множества и атрибуты
+     *
+     * @throws IOException ошибка ввода-вывода
+     */
+    @Test
+    public void test5() throws IOException {
+        PointStore store = withAttributes();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeBinary(new DataOutputStream(bytes));
+        PointStore read = PointStore.readBinary(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        testEquals(store, read);
+    }
+
+    /**
+     * Запись и чтение в JSON сохраняют координаты, множества и атрибуты
+     *
+     * @throws IOException ошибка ввода-вывода
+     */
+    @Test
+    public void test6() throws IOException {
+        PointStore store = withAttributes();
+        ObjectMapper mapper = new ObjectMapper();
+        PointStore read = mapper.readValue(mapper.writeValueAsString(store), PointStore.class);
+        testEquals(store, read);
+    }
+}
@@ -0,0 +1,82 @@
+import app.Circle;
+import app.CircleSolver;
+import app.ShardCoordinator;
+import misc.Vector2d;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Тестирование распределённого решения на локальных рабочих процессах
+ */
+public class ShardTest {
+
+    /**
+     * Записать файл задачи
+     *
+     * @param positions положения точек
+     * @return файл
+     * @throws IOException ошибка записи
+     */
+    private static File write(List<Vector2d> positions) throws IOException {
+        File file = File.createTempFile("shard", ".json");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.print("{\"@class\":\"app.Task\",\"ownCS\":{\"max\":{\"x\":10.0,\"y\":10.0},\"min\":{\"x\":-10.0,\"y\":-10.0}},\"points\":[");
+            for (int i = 0; i < positions.size(); i++) {
+                if (i > 0)
+                    out.print(',');
+                out.print("{\"pos\":{\"x\":" + positions.get(i).x + ",\"y\":" + positions.get(i).y + "},\"setType\":\"FIRST_SET\"}");
+            }
+            out.print("],\"solved\":false}");
+        }
+        return file;
+    }
+
+    /**
+     * Результат на трёх рабочих совпадает с решением в одном процессе
+     *
+     * @throws IOException ошибка ввода-вывода
+     */
+    @Test
+    public void test1() throws IOException {
+        Random rnd = new Random(1);
+        List<Vector2d> positions = new ArrayList<>();
+        for (int i = 0; i < 30000; i++)
+            positions.add(new Vector2d(rnd.nextGaussian() * 5, rnd.nextDouble() * 3));
+
+        ShardCoordinator.Result result = ShardCoordinator.solve(write(positions), 3);
+        Circle expected = CircleSolver.solve(positions);
+
+        assert result.shards.size() == 3;
+        long total = 0;
+        for (ShardCoordinator.ShardResult shard : result.shards)
+            total += shard.points;
+        assert total == positions.size();
+        assert Math.abs(result.circle.radius - expected.radius) < 1e-9;
+        assert Vector2d.subtract(result.circle.centre, expected.centre).length() < 1e-9;
+    }
+
+    /**
+     * Рабочих больше, чем порций точек
+     *
+     * @throws IOException ошибка ввода-вывода
+     */
+    @Test
+    public void test2() throws IOException {
+        List<Vector2d> positions = new ArrayList<>();
+        positions.add(new Vector2d(-1, 0));
+        positions.add(new Vector2d(1, 0));
+        positions.add(new Vector2d(0, 0.5));
+
+        ShardCoordinator.Result result = ShardCoordinator.solve(write(positions), 2);
+
+        assert Math.abs(result.circle.radius - 1) < 1e-9;
+        assert result.shards.get(1).points == 0;
+    }
+}
@@ -0,0 +1,178 @@
+import app.Circle;
+import app.CircleSolver;
+import app.ConvexHull;
+import app.MiniBall;
+import app.Point;
+import app.SolverStats;
+import app.Task;
+import misc.CoordinateSystem2d;
+import misc.Vector2d;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Тестирование поиска минимальной окружности
+ */
+public class SolverTest {
+
+    /**
+     * Тест
+     *
+     * @param points список точек
+     * @param centre ожидаемый центр
+     * @param radius ожидаемый радиус
+     */
+    private static void test(ArrayList<Point> points, Vector2d centre, double radius) {
+        Task task = new Task(new CoordinateSystem2d(10, 10, 20, 20), points);
+        task.solve();
+        Circle answer = task.getAnswer();
+        // проверяем центр и радиус
+        assert Math.abs(answer.centre.x - centre.x) < 1e-9;
+        assert Math.abs(answer.centre.y - centre.y) < 1e-9;
+        assert Math.abs(answer.radius - radius) < 1e-9;
+        // проверяем, что все точки внутри окружности
+        for (Point p : points)
+            assert answer.contains(p.getPos());
+    }
+
+    /**
+     * Квадрат с точкой внутри
+     */
+    @Test
+    public void test1() {
+        ArrayList<Point> points = new ArrayList<>();
+
+        points.add(new Point(new Vector2d(0, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(2, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(2, 2), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(0, 2), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(1, 1.5), Point.PointSet.FIRST_SET));
+
+        test(points, new Vector2d(1, 1), Math.sqrt(2));
+    }
+
+    /**
+     * Тупоугольный треугольник: окружность строится на самой длинной стороне
+     */
+    @Test
+    public void test2() {
+        ArrayList<Point> points = new ArrayList<>();
+
+        points.add(new Point(new Vector2d(-3, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(3, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(0, 1), Point.PointSet.FIRST_SET));
+
+        test(points, new Vector2d(0, 0), 3);
+    }
+
+    /**
+     * Точки на одной прямой
+     */
+    @Test
+    public void test3() {
+        ArrayList<Point> points = new ArrayList<>();
+
+        points.add(new Point(new Vector2d(1, 1), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(2, 2), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(5, 5), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(3, 3), Point.PointSet.FIRST_SET));
+
+        test(points, new Vector2d(3, 3), 2 * Math.sqrt(2));
+    }
+
+    /**
+     * Оболочка не должна содержать внутренних и коллинеарных точек
+     */
+    @Test
+    public void test4() {
+        ArrayList<Point> points = new ArrayList<>();
+
+        points.add(new Point(new Vector2d(0, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(1, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(2, 0), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(1, 1), Point.PointSet.FIRST_SET));
+        points.add(new Point(new Vector2d(1, 0.5), Point.PointSet.FIRST_SET));
+
+        Task task = new Task(new CoordinateSystem2d(10, 10, 20, 20), points);
+        assert task.getHull().size() == 3;
+    }
+
+    /**
+     * Вершины куба и симплекса в пространствах большей размерности
+     */
+    @Test
+    public void test5() {
+        // вершины единичного куба [-1,1]^3 и его центр
+        double[][] cube = new double[9][3];
+        for (int i = 0; i < 8; i++)
+            for (int k = 0; k < 3; k++)
+                cube[i][k] = (i >> k & 1) == 0 ? -1 : 1;
+        MiniBall ball = new MiniBall(cube);
+        assert Math.abs(ball.getRadius() - Math.sqrt(3)) < 1e-9;
+        for (double c : ball.getCentre())
+            assert Math.abs(c) < 1e-9;
+
+        // базисные векторы пятимерного пространства: центр (0.2, ..., 0.2)
+        double[][] simplex = new double[5][5];
+        for (int i = 0; i < 5; i++)
+            simplex[i][i] = 1;
+        ball = new MiniBall(simplex);
+        assert Math.abs(ball.getSquaredRadius() - 0.8) < 1e-9;
+        assert ball.getSupportSize() == 5;
+        for (double c : ball.getCentre())
+            assert Math.abs(c - 0.2) < 1e-9;
+    }
+
+    /**
+     * Поиск во float на большом множестве даёт ту же окружность, что и поиск в double
+     * по вершинам оболочки и многомерный решатель по всем точкам
+     */
+    @Test
+    public void test6() {
+        Random rnd = new Random(6);
+        int n = CircleSolver.FLOAT_THRESHOLD * 4;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[][] rows = new double[n][];
+        ConvexHull hull = new ConvexHull();
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextGaussian() * 100 + 20;
+            ys[i] = rnd.nextGaussian() * 50 - 10;
+            rows[i] = new double[]{xs[i], ys[i]};
+            hull.insert(xs[i], ys[i]);
+        }
+        // вершин оболочки мало, поэтому по ним решатель работает в double
+        assert hull.size() < CircleSolver.FLOAT_THRESHOLD;
+
+        long floatSolves = SolverStats.getFloatSolves();
+        Circle f = CircleSolver.solve(xs, ys, n);
+        assert SolverStats.getFloatSolves() == floatSolves + 1;
+        Circle d = CircleSolver.solve(hull.copyXs(), hull.copyYs(), hull.size());
+        MiniBall ball = new MiniBall(rows);
+
+        assert Math.abs(f.centre.x - d.centre.x) < 1e-9;
+        assert Math.abs(f.centre.y - d.centre.y) < 1e-9;
+        assert Math.abs(f.radius - d.radius) < 1e-9;
+        assert Math.abs(f.centre.x - ball.getCentre()[0]) < 1e-9;
+        assert Math.abs(f.centre.y - ball.getCentre()[1]) < 1e-9;
+        assert Math.abs(f.radius - ball.getRadius()) < 1e-9;
+    }
+
+    /**
+     * Точки на окружности: все они - вершины оболочки, и задача решается во float
+     */
+    @Test
+    public void test7() {
+        ArrayList<Point> points = new ArrayList<>();
+        int n = CircleSolver.FLOAT_THRESHOLD * 2;
+        for (int i = 0; i < n; i++) {
+            double a = 2 * Math.PI * i / n;
+            points.add(new Point(new Vector2d(3 + 5 * Math.cos(a), -1 + 5 * Math.sin(a)), Point.PointSet.FIRST_SET));
+        }
+        long floatSolves = SolverStats.getFloatSolves();
+        test(points, new Vector2d(3, -1), 5);
+        assert SolverStats.getFloatSolves() == floatSolves + 1;
+    }
+}
@@ -0,0 +1,160 @@
+import app.BallTree;
+import app.HeapPointStore;
+import app.KdTree;
+import app.Point;
+import app.PointStore;
+import app.QuadTree;
+import app.ZOrder;
+import misc.Vector2d;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Замер построения индексов и запросов до и после упорядочивания точек по Z-кривой.
+ * Запускается вручную (не тест), например:
+ * java -cp target/classes:target/test-classes ZOrderBenchmark
+ */
+public class ZOrderBenchmark {
+    /**
+     * Кол-ва точек
+     */
+    private static final int[] SIZES = {100_000, 1_000_000, 4_000_000};
+    /**
+     * Кол-во замеров на одну конфигурацию
+     */
+    private static final int RUNS = 5;
+    /**
+     * Кол-во запросов в одном замере
+     */
+    private static final int QUERIES = 10_000;
+
+    /**
+     * Заполнить хранилище скоплениями точек в случайном порядке
+     *
+     * @param n   кол-во точек
+     * @param rnd генератор
+     * @return хранилище
+     */
+    private static PointStore clusters(int n, Random rnd) {
+        PointStore store = new HeapPointStore(n);
+        double[] cx = new double[64];
+        double[] cy = new double[64];
+        for (int c = 0; c < cx.length; c++) {
+            cx[c] = rnd.nextDouble() * 100;
+            cy[c] = rnd.nextDouble() * 100;
+        }
+        for (int i = 0; i < n; i++) {
+            int c = rnd.nextInt(cx.length);
+            store.add(cx[c] + rnd.nextGaussian() * 3, cy[c] + rnd.nextGaussian() * 3, Point.PointSet.FIRST_SET);
+        }
+        return store;
+    }
+
+    /**
+     * Медиана времени выполнения в миллисекундах
+     *
+     * @param task замеряемая задача
+     * @return медиана времени
+     */
+    private static double median(Runnable task) {
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    /**
+     * Прямоугольные запросы к квадродереву с чтением координат найденных точек
+     * (как при отсечении по области просмотра)
+     *
+     * @param store хранилище
+     * @param tree  квадродерево
+     * @param seed  зерно генератора запросов
+     * @return сумма координат, чтобы JIT не выбросил обход
+     */
+    private static double rangeQueries(PointStore store, QuadTree tree, long seed) {
+        Random rnd = new Random(seed);
+        double[] sum = new double[1];
+        for (int q = 0; q < QUERIES; q++) {
+            double x = rnd.nextDouble() * 100;
+            double y = rnd.nextDouble() * 100;
+            tree.query(new Vector2d(x, y), new Vector2d(x + 2, y + 2),
+                    i -> sum[0] += store.getX(i) + store.getY(i));
+        }
+        return sum[0];
+    }
+
+    /**
+     * Запросы ближайших соседей к KD-дереву
+     *
+     * @param tree KD-дерево
+     * @param seed зерно генератора запросов
+     * @return сумма индексов, чтобы JIT не выбросил обход
+     */
+    private static long nearestQueries(KdTree tree, long seed) {
+        Random rnd = new Random(seed);
+        long sum = 0;
+        for (int q = 0; q < QUERIES; q++)
+            for (int i : tree.nearest(rnd.nextDouble() * 100, rnd.nextDouble() * 100, 16))
+                sum += i;
+        return sum;
+    }
+
+    /**
+     * Замерить построение индексов и запросы
+     *
+     * @param store хранилище
+     * @return времена: квадродерево, KD-дерево, дерево шаров, прямоугольники, соседи
+     */
+    private static double[] measure(PointStore store) {
+        QuadTree quad = QuadTree.build(store);
+        KdTree kd = KdTree.build(store);
+        return new double[]{
+                median(quad::rebuild),
+                median(kd::rebuild),
+                median(() -> BallTree.build(store)),
+                median(() -> rangeQueries(store, quad, 7)),
+                median(() -> nearestQueries(kd, 7))
+        };
+    }
+
+    /**
+     * Точка входа
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        Random rnd = new Random(42);
+        // прогрев JIT
+        for (int i = 0; i < 5; i++) {
+            PointStore store = clusters(50_000, rnd);
+            measure(store);
+            store.reorder(ZOrder.order(store));
+        }
+
+        System.out.printf("%10s %14s %16s%n", "n", "Z-sort, ms", "Arrays.sort, ms");
+        for (int n : SIZES) {
+            PointStore store = clusters(n, rnd);
+            long[] keys = ZOrder.keys(store);
+            double radix = median(() -> ZOrder.sort(keys.clone(), new int[n]));
+            double jdk = median(() -> Arrays.sort(keys.clone()));
+            System.out.printf("%10d %14.3f %16.3f%n", n, radix, jdk);
+        }
+
+        String[] names = {"QuadTree", "KdTree", "BallTree", "range", "16-nearest"};
+        System.out.printf("%n%10s %12s %14s %14s %8s%n", "n", "", "before, ms", "after, ms", "speedup");
+        for (int n : SIZES) {
+            PointStore store = clusters(n, rnd);
+            double[] before = measure(store);
+            store.reorder(ZOrder.order(store));
+            double[] after = measure(store);
+            for (int k = 0; k < names.length; k++)
+                System.out.printf("%10d %12s %14.3f %14.3f %8.2f%n", n, names[k], before[k], after[k], before[k] / after[k]);
+        }
+    }
+}